@@ -0,0 +1,448 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.audit;
+
+import com.groupon.android.dichecks.checks.common.Severity;
+import com.groupon.android.dichecks.checks.duplicate.DuplicateDICheckIssue;
+import com.groupon.android.dichecks.checks.duplicate.DuplicateInjectionAnalyzer;
+import com.groupon.android.dichecks.export.GraphReader;
+import com.groupon.android.dichecks.model.InjectionModel;
+import com.groupon.android.dichecks.model.InjectionSite;
+import com.groupon.android.dichecks.processor.DiChecksProcessor;
+import com.groupon.android.dichecks.scanner.BytecodeScanner;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Runs the processor based checks on many modules from a single JVM, i.e. for a nightly audit of
+ * all the modules of an app, and writes one consolidated report.
+ *
+ * <p>Modules are processed by a fixed pool of threads (javac is CPU bound, one compilation per
+ * core). Each thread keeps its javac file manager from one module to the next, so the jars shared
+ * by the classpaths of the modules are opened and indexed once per thread instead of once per
+ * module. Javac only runs the annotation processing ({@code -proc:only}), no class is written.
+ *
+ * <p>The other processors of the modules don't run: the types they generate, like the ones
+ * generated by the build (R, BuildConfig), are resolved from the generated source roots of the
+ * module, which must come from a previous build. Without them, the sources referencing generated
+ * types report javac errors.
+ *
+ * <p>Each module exports its injection graph. Once all the modules are processed, the graphs are
+ * merged into a single model checked for the duplicates spanning several modules, which the
+ * processor can't see module by module. The prebuilt libraries of the classpaths are part of the
+ * merged model too: each classpath entry is scanned once for all the modules and its model is
+ * cached, unmodified, for the next audits of this instance.
+ */
+public class BatchAudit {
+
+  private static final String GRAPH_FILE_EXTENSION = ".digraph";
+  private static final String SOURCE_FILE_EXTENSION = ".java";
+  private static final String COMMENT_PREFIX = "#";
+  private static final String ALL_MODULES = "all modules";
+
+  private final int threadCount;
+  private final Map<String, String> processorOptions;
+  private final File outputDir;
+  private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+  private final BytecodeScanner scanner;
+  // the models of the classpath entries, never modified once scanned
+  private final Map<File, InjectionModel> upstreamModels = new HashMap<>();
+  private final Set<File> classpathEntries = new LinkedHashSet<>();
+  private final List<StandardJavaFileManager> fileManagers =
+      Collections.synchronizedList(new ArrayList<StandardJavaFileManager>());
+  private final ThreadLocal<StandardJavaFileManager> threadFileManager =
+      new ThreadLocal<StandardJavaFileManager>() {
+        @Override
+        protected StandardJavaFileManager initialValue() {
+          final StandardJavaFileManager fileManager =
+              compiler.getStandardFileManager(null, Locale.US, StandardCharsets.UTF_8);
+          fileManagers.add(fileManager);
+          return fileManager;
+        }
+      };
+
+  /**
+   * @param processorOptions options of the processor, without the {@code -A} prefix.
+   * @param outputDir directory the graph of each module is written to.
+   */
+  public BatchAudit(
+      int threadCount, @NotNull Map<String, String> processorOptions, @NotNull File outputDir) {
+    if (compiler == null) {
+      throw new IllegalStateException("No system java compiler, the audit must run on a JDK.");
+    }
+    this.threadCount = Math.max(1, threadCount);
+    this.processorOptions = processorOptions;
+    this.outputDir = outputDir;
+    scanner = new BytecodeScanner(this.threadCount, BytecodeScanner.DEFAULT_QUEUE_CAPACITY);
+  }
+
+  /**
+   * @return the result of each module, in the order of {@code modules}.
+   * @throws IllegalArgumentException if two modules have the same name, their graph files would
+   *     collide.
+   */
+  public List<ModuleResult> audit(@NotNull List<ModuleSpec> modules) throws IOException {
+    final Set<String> names = new HashSet<>();
+    for (ModuleSpec module : modules) {
+      if (!names.add(module.getName())) {
+        throw new IllegalArgumentException("Duplicate module name: " + module.getName());
+      }
+      classpathEntries.addAll(module.getClasspath());
+    }
+    if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+      throw new IOException("Unable to create directory " + outputDir);
+    }
+    final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      final List<Future<ModuleResult>> futures = new ArrayList<>(modules.size());
+      for (final ModuleSpec module : modules) {
+        futures.add(
+            executor.submit(
+                new Callable<ModuleResult>() {
+                  @Override
+                  public ModuleResult call() throws IOException {
+                    return auditModule(module);
+                  }
+                }));
+      }
+      final List<ModuleResult> results = new ArrayList<>(modules.size());
+      for (Future<ModuleResult> future : futures) {
+        results.add(getResult(future));
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+      for (StandardJavaFileManager fileManager : fileManagers) {
+        fileManager.close();
+      }
+      fileManagers.clear();
+    }
+  }
+
+  /**
+   * Checks the merged graph of the audited modules and of the libraries of their classpaths. Only
+   * the duplicates of an ancestor defined in another module or library are reported, the processor
+   * reported the others with the module. The sites record whether they are suppressed and the
+   * severity of the processor options in their package, the duplicates are reported with it.
+   *
+   * @return the issues spanning several modules, sorted, and their error count.
+   */
+  public ModuleResult checkAllModules(@NotNull List<ModuleResult> results) throws IOException {
+    final InjectionModel model = new InjectionModel();
+    final Map<String, String> moduleByType = new HashMap<>();
+    for (ModuleResult result : results) {
+      if (result.getGraphFile() != null) {
+        final InjectionModel moduleModel;
+        try (GraphReader reader = new GraphReader(new FileInputStream(result.getGraphFile()))) {
+          moduleModel = reader.readModel();
+        }
+        model.addAll(moduleModel);
+        for (String type : moduleModel.getDefinedTypes()) {
+          moduleByType.put(type, result.getName());
+        }
+      }
+    }
+    final Map<String, String> libraryByType = new HashMap<>();
+    final List<String> messages = new ArrayList<>();
+    for (File classpathEntry : classpathEntries) {
+      try {
+        addUpstreamModel(classpathEntry, model, moduleByType, libraryByType);
+      } catch (IOException e) {
+        messages.add(Diagnostic.Kind.WARNING + ": " + e.getMessage());
+      }
+    }
+
+    int errorCount = 0;
+    for (DuplicateInjectionAnalyzer.Duplicate duplicate :
+        new DuplicateInjectionAnalyzer().analyze(model)) {
+      final InjectionSite site = duplicate.getSite();
+      final String module = moduleByType.get(site.getOwnerType());
+      if (module == null) {
+        // a site of a library, only the audited code is reported
+        continue;
+      }
+      final List<String> otherModuleAncestors = new ArrayList<>();
+      for (String ancestor : duplicate.getAncestorTypes()) {
+        final String ancestorModule = moduleByType.get(ancestor);
+        if (ancestorModule != null
+            ? !ancestorModule.equals(module)
+            : libraryByType.containsKey(ancestor)) {
+          otherModuleAncestors.add(ancestor);
+        }
+      }
+      if (otherModuleAncestors.isEmpty()) {
+        continue;
+      }
+      final Severity severity = site.getSeverity() != null ? site.getSeverity() : Severity.ERROR;
+      if (severity == Severity.ERROR) {
+        errorCount++;
+      }
+      messages.add(
+          severity.getDiagnosticKind()
+              + ": "
+              + DuplicateDICheckIssue.formatMessage(site, otherModuleAncestors));
+    }
+    Collections.sort(messages);
+    return new ModuleResult(ALL_MODULES, messages, errorCount, null);
+  }
+
+  /**
+   * Adds the model of a classpath entry to {@code model}. The types defined by the audited modules
+   * come from their graphs: the class files don't record the suppressions nor the severities.
+   */
+  private void addUpstreamModel(
+      File classpathEntry,
+      InjectionModel model,
+      Map<String, String> moduleByType,
+      Map<String, String> libraryByType)
+      throws IOException {
+    InjectionModel upstreamModel = upstreamModels.get(classpathEntry);
+    if (upstreamModel == null) {
+      if (!classpathEntry.exists()) {
+        return;
+      }
+      try {
+        upstreamModel = scanner.scan(Collections.singletonList(classpathEntry));
+      } catch (IOException e) {
+        throw new IOException("Unable to scan " + classpathEntry + ": " + e.getMessage(), e);
+      }
+      upstreamModels.put(classpathEntry, upstreamModel);
+    }
+    final String library = classpathEntry.getPath();
+    for (String type : upstreamModel.getDefinedTypes()) {
+      if (!moduleByType.containsKey(type) && !libraryByType.containsKey(type)) {
+        libraryByType.put(type, library);
+      }
+    }
+    for (Map.Entry<String, String> superClass : upstreamModel.getSuperClasses().entrySet()) {
+      if (!model.hasSuperClass(superClass.getKey())) {
+        model.addSuperClass(superClass.getKey(), superClass.getValue());
+      }
+    }
+    for (InjectionSite site : upstreamModel.getInjectionSites()) {
+      if (library.equals(libraryByType.get(site.getOwnerType()))) {
+        model.addInjectionSite(site);
+      }
+    }
+  }
+
+  private ModuleResult auditModule(ModuleSpec module) throws IOException {
+    final List<File> sourceFiles = new ArrayList<>();
+    for (File sourceRoot : module.getSourceRoots()) {
+      collectSourceFiles(sourceRoot, sourceFiles);
+    }
+    final File graphFile = new File(outputDir, module.getName() + GRAPH_FILE_EXTENSION);
+    if (graphFile.exists() && !graphFile.delete()) {
+      throw new IOException("Unable to delete " + graphFile);
+    }
+    if (sourceFiles.isEmpty()) {
+      return new ModuleResult(module.getName(), new ArrayList<String>(), 0, null);
+    }
+
+    final StandardJavaFileManager fileManager = threadFileManager.get();
+    fileManager.setLocation(StandardLocation.CLASS_PATH, module.getClasspath());
+    // on the source path the generated types are only resolved, not processed
+    fileManager.setLocation(StandardLocation.SOURCE_PATH, module.getGeneratedSourceRoots());
+    final List<String> options = new ArrayList<>();
+    options.add("-proc:only");
+    options.add("-implicit:none");
+    for (Map.Entry<String, String> option : processorOptions.entrySet()) {
+      options.add("-A" + option.getKey() + "=" + option.getValue());
+    }
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setGraphExportOutputFile(graphFile.getPath());
+    final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    final JavaCompiler.CompilationTask task =
+        compiler.getTask(
+            null,
+            fileManager,
+            diagnostics,
+            options,
+            null,
+            fileManager.getJavaFileObjectsFromFiles(sourceFiles));
+    task.setProcessors(Collections.singletonList(processor));
+    task.call();
+
+    final List<String> messages = new ArrayList<>();
+    int errorCount = 0;
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+        errorCount++;
+      }
+      messages.add(format(diagnostic));
+    }
+    Collections.sort(messages);
+    return new ModuleResult(
+        module.getName(), messages, errorCount, graphFile.isFile() ? graphFile : null);
+  }
+
+  private static String format(Diagnostic<? extends JavaFileObject> diagnostic) {
+    final String message = diagnostic.getKind() + ": " + diagnostic.getMessage(Locale.US);
+    if (diagnostic.getSource() == null) {
+      return message;
+    }
+    return diagnostic.getSource().getName() + ":" + diagnostic.getLineNumber() + ": " + message;
+  }
+
+  private static void collectSourceFiles(File file, List<File> sourceFiles) {
+    if (file.isDirectory()) {
+      final File[] children = file.listFiles();
+      if (children != null) {
+        Arrays.sort(children);
+        for (File child : children) {
+          collectSourceFiles(child, sourceFiles);
+        }
+      }
+    } else if (file.getName().endsWith(SOURCE_FILE_EXTENSION)) {
+      sourceFiles.add(file);
+    }
+  }
+
+  private static ModuleResult getResult(Future<ModuleResult> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while auditing modules");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IllegalStateException("Unable to audit a module", e.getCause());
+    }
+  }
+
+  /** Writes the diagnostics of each module and the issues spanning several modules. */
+  public static void writeReport(
+      @NotNull List<ModuleResult> results, @NotNull ModuleResult allModules, Writer writer)
+      throws IOException {
+    for (ModuleResult result : results) {
+      writer.write(
+          String.format(
+              "# module %s: %d diagnostic(s), %d error(s)%n",
+              result.getName(), result.getDiagnostics().size(), result.getErrorCount()));
+      for (String diagnostic : result.getDiagnostics()) {
+        writer.write(diagnostic);
+        writer.write('\n');
+      }
+    }
+    writer.write(
+        String.format(
+            "# %s: %d issue(s), %d error(s)%n",
+            allModules.getName(), allModules.getDiagnostics().size(), allModules.getErrorCount()));
+    for (String issue : allModules.getDiagnostics()) {
+      writer.write(issue);
+      writer.write('\n');
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    File modulesFile = null;
+    File report = null;
+    File outputDir = null;
+    int threadCount = Runtime.getRuntime().availableProcessors();
+    final Map<String, String> processorOptions = new LinkedHashMap<>();
+    for (int i = 0; i < args.length; i++) {
+      if ("--modules".equals(args[i]) && i + 1 < args.length) {
+        modulesFile = new File(args[++i]);
+      } else if ("-o".equals(args[i]) && i + 1 < args.length) {
+        report = new File(args[++i]);
+      } else if ("--graphs".equals(args[i]) && i + 1 < args.length) {
+        outputDir = new File(args[++i]);
+      } else if ("--threads".equals(args[i]) && i + 1 < args.length) {
+        threadCount = Integer.parseInt(args[++i]);
+      } else if (args[i].startsWith("-A") && args[i].indexOf('=') > 2) {
+        final int separator = args[i].indexOf('=');
+        processorOptions.put(args[i].substring(2, separator), args[i].substring(separator + 1));
+      } else {
+        modulesFile = null;
+        break;
+      }
+    }
+    if (modulesFile == null || report == null) {
+      System.err.println(
+          "usage: BatchAudit --modules <modules file> -o <report> [--graphs <dir>]"
+              + " [--threads <count>] [-A<option>=<value>...]\n"
+              + "modules file: one module per line,"
+              + " <name>\\t<source roots>\\t<classpath>[\\t<generated source roots>]");
+      System.exit(1);
+      return;
+    }
+    if (outputDir == null) {
+      outputDir = new File(report.getAbsoluteFile().getParentFile(), "dichecks-graphs");
+    }
+
+    final List<ModuleSpec> modules = new ArrayList<>();
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(new FileInputStream(modulesFile), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.trim().isEmpty() && !line.startsWith(COMMENT_PREFIX)) {
+          modules.add(ModuleSpec.parse(line));
+        }
+      }
+    }
+
+    final BatchAudit audit = new BatchAudit(threadCount, processorOptions, outputDir);
+    final List<ModuleResult> results = audit.audit(modules);
+    final ModuleResult allModules = audit.checkAllModules(results);
+    try (Writer writer =
+        new OutputStreamWriter(new FileOutputStream(report), StandardCharsets.UTF_8)) {
+      writeReport(results, allModules, writer);
+    }
+
+    // like javac, only the errors fail the audit
+    int errorCount = allModules.getErrorCount();
+    for (ModuleResult result : results) {
+      errorCount += result.getErrorCount();
+    }
+    System.exit(errorCount > 0 ? 2 : 0);
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.audit;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/** The outcome of the audit of a module: the diagnostics of its compilation and its graph. */
+public final class ModuleResult {
+
+  private final String name;
+  private final List<String> diagnostics;
+  private final int errorCount;
+  private final File graphFile;
+
+  ModuleResult(
+      @NotNull String name,
+      @NotNull List<String> diagnostics,
+      int errorCount,
+      @Nullable File graphFile) {
+    this.name = name;
+    this.diagnostics = Collections.unmodifiableList(diagnostics);
+    this.errorCount = errorCount;
+    this.graphFile = graphFile;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** @return the diagnostics printed by javac and the checks, sorted. */
+  public List<String> getDiagnostics() {
+    return diagnostics;
+  }
+
+  public int getErrorCount() {
+    return errorCount;
+  }
+
+  /** @return the injection graph exported by the processor, {@code null} if none was written. */
+  @Nullable
+  public File getGraphFile() {
+    return graphFile;
+  }
+}
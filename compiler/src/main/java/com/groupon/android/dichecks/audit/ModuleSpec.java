@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.audit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A module audited by {@link BatchAudit}: its source roots, its compile classpath and the roots of
+ * the sources generated by its build (R, BuildConfig, factories of the other processors), which
+ * its sources may reference.
+ */
+public final class ModuleSpec {
+
+  private static final String FIELD_SEPARATOR = "\t";
+
+  private final String name;
+  private final List<File> sourceRoots;
+  private final List<File> classpath;
+  private final List<File> generatedSourceRoots;
+
+  public ModuleSpec(
+      @NotNull String name, @NotNull List<File> sourceRoots, @NotNull List<File> classpath) {
+    this(name, sourceRoots, classpath, new ArrayList<File>());
+  }
+
+  public ModuleSpec(
+      @NotNull String name,
+      @NotNull List<File> sourceRoots,
+      @NotNull List<File> classpath,
+      @NotNull List<File> generatedSourceRoots) {
+    this.name = name;
+    this.sourceRoots = Collections.unmodifiableList(new ArrayList<>(sourceRoots));
+    this.classpath = Collections.unmodifiableList(new ArrayList<>(classpath));
+    this.generatedSourceRoots =
+        Collections.unmodifiableList(new ArrayList<>(generatedSourceRoots));
+  }
+
+  /**
+   * Parses a line of a modules file: the name, the source roots, the classpath and the generated
+   * source roots separated by tabs, the roots and the classpath entries separated by {@link
+   * File#pathSeparator}. The classpath and the generated source roots are optional.
+   *
+   * @throws IllegalArgumentException if the line is not a module.
+   */
+  public static ModuleSpec parse(@NotNull String line) {
+    final String[] fields = line.split(FIELD_SEPARATOR, -1);
+    if (fields.length < 2 || fields.length > 4 || fields[0].isEmpty()) {
+      throw new IllegalArgumentException("Invalid module: " + line);
+    }
+    final List<File> classpath = fields.length > 2 ? toFiles(fields[2]) : new ArrayList<File>();
+    final List<File> generatedSourceRoots =
+        fields.length > 3 ? toFiles(fields[3]) : new ArrayList<File>();
+    return new ModuleSpec(fields[0], toFiles(fields[1]), classpath, generatedSourceRoots);
+  }
+
+  private static List<File> toFiles(String paths) {
+    final List<File> files = new ArrayList<>();
+    for (String path : paths.split(File.pathSeparator)) {
+      if (!path.isEmpty()) {
+        files.add(new File(path));
+      }
+    }
+    return files;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public List<File> getSourceRoots() {
+    return sourceRoots;
+  }
+
+  public List<File> getClasspath() {
+    return classpath;
+  }
+
+  /** @return the roots javac resolves the generated types from, they are not audited. */
+  public List<File> getGeneratedSourceRoots() {
+    return generatedSourceRoots;
+  }
+}
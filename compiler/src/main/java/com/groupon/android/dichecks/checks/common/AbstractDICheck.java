@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.checks.common;
+
+import java.util.EnumSet;
+import java.util.Set;
+import javax.lang.model.element.ElementKind;
+
+/** Base class of the DI checks declaring the kinds of injected elements they need. */
+public abstract class AbstractDICheck implements DICheck {
+
+  /**
+   * The kinds of injected elements this check needs. The processor skips the rounds that contain
+   * none of the kinds required by the enabled checks.
+   *
+   * @return the element kinds passed to {@link #addInjectedElements(Set)}, all of them by default.
+   */
+  public Set<ElementKind> getRequiredElementKinds() {
+    return EnumSet.allOf(ElementKind.class);
+  }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.checks.common;
+
+import javax.tools.Diagnostic;
+
+/** Records that a check ran out of time and that its issues are incomplete. */
+public class BudgetExceededDICheckIssue extends DICheckIssue {
+
+  private static final String MESSAGE_FORMAT =
+      "%s exceeded its time budget of %dms, its issues are incomplete and reported as warnings.";
+
+  public BudgetExceededDICheckIssue(String checkName, long budgetMillis) {
+    super(Diagnostic.Kind.WARNING, String.format(MESSAGE_FORMAT, checkName, budgetMillis), null);
+  }
+}
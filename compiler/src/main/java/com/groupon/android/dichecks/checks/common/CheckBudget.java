@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.checks.common;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time a check may spend analyzing a round. Checks poll {@link #isExhausted()} in their main loop
+ * and stop early, reporting the issues found so far, once the budget is spent.
+ */
+public class CheckBudget {
+
+  /** A budget that is never exhausted. */
+  public static final CheckBudget UNLIMITED = new CheckBudget(Long.MAX_VALUE);
+
+  private final long budgetMillis;
+  private final long deadlineNanos;
+  private boolean exhausted;
+
+  public CheckBudget(long budgetMillis) {
+    this.budgetMillis = budgetMillis;
+    deadlineNanos =
+        budgetMillis == Long.MAX_VALUE
+            ? Long.MAX_VALUE
+            : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+  }
+
+  /** @return true once the budget is spent, it then remains exhausted. */
+  public boolean isExhausted() {
+    if (!exhausted && deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos > 0) {
+      exhausted = true;
+    }
+    return exhausted;
+  }
+
+  /** @return whether a previous call to {@link #isExhausted()} found the budget spent. */
+  public boolean wasExhausted() {
+    return exhausted;
+  }
+
+  public long getBudgetMillis() {
+    return budgetMillis;
+  }
+}
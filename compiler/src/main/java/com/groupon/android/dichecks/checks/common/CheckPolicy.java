@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.checks.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reporting policy of a check: the severity of its issues, optionally overridden for some packages,
+ * and the time the check may spend analyzing a round.
+ *
+ * <p>Package patterns are either a package name, matching only this package, or a package name
+ * followed by {@code .*}, matching the package and all its sub packages. When several patterns
+ * match, the most specific (longest) one wins.
+ */
+public class CheckPolicy {
+
+  public static final long NO_TIME_BUDGET = -1;
+
+  private static final String SUB_PACKAGES_SUFFIX = ".*";
+
+  private final Severity defaultSeverity;
+  private final List<String> packagePatterns = new ArrayList<>();
+  private final List<Severity> packageSeverities = new ArrayList<>();
+  private long timeBudgetMillis = NO_TIME_BUDGET;
+
+  public CheckPolicy(@NotNull Severity defaultSeverity) {
+    this.defaultSeverity = defaultSeverity;
+  }
+
+  /** Reports the issues of the classes matching {@code packagePattern} with {@code severity}. */
+  public CheckPolicy addPackageSeverity(
+      @NotNull String packagePattern, @NotNull Severity severity) {
+    packagePatterns.add(packagePattern);
+    packageSeverities.add(severity);
+    return this;
+  }
+
+  /** @param timeBudgetMillis the budget of the check per round, {@link #NO_TIME_BUDGET} if none. */
+  public CheckPolicy setTimeBudgetMillis(long timeBudgetMillis) {
+    this.timeBudgetMillis = timeBudgetMillis;
+    return this;
+  }
+
+  public long getTimeBudgetMillis() {
+    return timeBudgetMillis;
+  }
+
+  /** @return false if the issues of the check are not reported in any package. */
+  public boolean isEnabled() {
+    if (defaultSeverity != Severity.OFF) {
+      return true;
+    }
+    for (Severity severity : packageSeverities) {
+      if (severity != Severity.OFF) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** @return the severity of the issues found in the classes of {@code packageName}. */
+  public Severity getSeverity(@NotNull String packageName) {
+    Severity severity = defaultSeverity;
+    int matchLength = -1;
+    for (int i = 0; i < packagePatterns.size(); i++) {
+      final String pattern = packagePatterns.get(i);
+      if (pattern.length() > matchLength && matches(pattern, packageName)) {
+        severity = packageSeverities.get(i);
+        matchLength = pattern.length();
+      }
+    }
+    return severity;
+  }
+
+  /** Starts the time budget of a round, the returned budget is exhausted once it is spent. */
+  public CheckBudget startBudget() {
+    return timeBudgetMillis < 0 ? CheckBudget.UNLIMITED : new CheckBudget(timeBudgetMillis);
+  }
+
+  private static boolean matches(String pattern, String packageName) {
+    if (!pattern.endsWith(SUB_PACKAGES_SUFFIX)) {
+      return pattern.equals(packageName);
+    }
+    final int prefixLength = pattern.length() - SUB_PACKAGES_SUFFIX.length();
+    return packageName.startsWith(pattern.substring(0, prefixLength))
+        && (packageName.length() == prefixLength || packageName.charAt(prefixLength) == '.');
+  }
+}
@@ -20,7 +20,15 @@ import java.util.List;
 import java.util.Set;
 import javax.lang.model.element.Element;
 
-/** Base class of all DI checks. */
+/**
+ * Base class of all DI checks.
+ *
+ * <p>Checks walking class hierarchies receive the {@link TypeHierarchyIndex} of the compilation in
+ * their constructor rather than resolving super classes themselves.
+ *
+ * <p>Checks extending {@link AbstractDICheck} can declare the kinds of elements they need, the
+ * others receive all the injected elements.
+ */
 public interface DICheck {
 
   /**
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.checks.common;
+
+import java.util.Locale;
+import javax.tools.Diagnostic;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/** How the issues of a check are reported, from not reported at all to failing the build. */
+public enum Severity {
+  OFF(null),
+  NOTE(Diagnostic.Kind.NOTE),
+  WARNING(Diagnostic.Kind.WARNING),
+  ERROR(Diagnostic.Kind.ERROR);
+
+  private final Diagnostic.Kind diagnosticKind;
+
+  Severity(Diagnostic.Kind diagnosticKind) {
+    this.diagnosticKind = diagnosticKind;
+  }
+
+  /** @return the kind of the diagnostics reported with this severity, {@code null} for OFF. */
+  @Nullable
+  public Diagnostic.Kind getDiagnosticKind() {
+    return diagnosticKind;
+  }
+
+  /**
+   * @param value the case insensitive name of a severity, i.e. {@code "warning"}.
+   * @throws IllegalArgumentException if {@code value} is not a severity.
+   */
+  public static Severity parse(@NotNull String value) {
+    return valueOf(value.trim().toUpperCase(Locale.US));
+  }
+}
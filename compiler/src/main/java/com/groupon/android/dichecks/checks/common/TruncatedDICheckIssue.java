@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.checks.common;
+
+import javax.tools.Diagnostic;
+import org.jetbrains.annotations.NotNull;
+
+/** Summarizes the issues of a check that were not reported because the check reported too many. */
+public class TruncatedDICheckIssue extends DICheckIssue {
+
+  private static final String MESSAGE_FORMAT =
+      "%d more dependency injection issue(s) not reported, "
+          + "see option com.groupon.android.dichecks.maxIssuesPerCheck";
+
+  public TruncatedDICheckIssue(@NotNull Diagnostic.Kind kind, int omittedIssueCount) {
+    super(kind, String.format(MESSAGE_FORMAT, omittedIssueCount), null);
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.checks.common;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Super class chains of the types of a compilation, shared by all the checks so each chain is
+ * resolved once however many checks walk it.
+ *
+ * <p>Each type is a node pointing to its super class node: chains share their common part. Nodes
+ * also know their depth and their 2<sup>i</sup>-th ancestors (binary lifting), so the ancestor of
+ * a type at any distance, and whether a type is a subclass of another, are found in O(log depth).
+ *
+ * <p>{@link Object} is the implicit root of every chain, it is never returned as an ancestor.
+ *
+ * <p>Nodes are keyed by element identity: {@link #clear()} must be called at the start of each
+ * round, javac 8 creates new elements for every round.
+ */
+public class TypeHierarchyIndex {
+
+  private static final String OBJECT_CLASS_NAME = Object.class.getCanonicalName();
+
+  private final Types typeUtils;
+  private final Map<TypeElement, Node> nodes = new IdentityHashMap<>();
+
+  public TypeHierarchyIndex(@NotNull Types typeUtils) {
+    this.typeUtils = typeUtils;
+  }
+
+  /** Forgets the chains resolved so far, they are resolved again when first needed. */
+  public void clear() {
+    nodes.clear();
+  }
+
+  /** @return the super class of {@code type}, {@code null} if it's {@link Object}. */
+  @Nullable
+  public TypeElement getSuperClass(@NotNull TypeElement type) {
+    final Node parent = getNode(type).parent;
+    return parent != null ? parent.type : null;
+  }
+
+  /** @return the number of ancestors of {@code type}, {@link Object} excluded. */
+  public int getDepth(@NotNull TypeElement type) {
+    return getNode(type).depth;
+  }
+
+  /** @return the ancestors of {@code type}, closest first, {@link Object} excluded. */
+  public List<TypeElement> getAncestors(@NotNull TypeElement type) {
+    final Node node = getNode(type);
+    final List<TypeElement> ancestors = new ArrayList<>(node.depth);
+    for (Node ancestor = node.parent; ancestor != null; ancestor = ancestor.parent) {
+      ancestors.add(ancestor.type);
+    }
+    return ancestors;
+  }
+
+  /**
+   * @param distance the number of levels to go up, 1 for the super class.
+   * @return the ancestor of {@code type} {@code distance} levels up, {@code null} past the root.
+   */
+  @Nullable
+  public TypeElement getAncestor(@NotNull TypeElement type, int distance) {
+    final Node ancestor = ancestor(getNode(type), distance);
+    return ancestor != null ? ancestor.type : null;
+  }
+
+  /** @return true if {@code ancestor} is a strict ancestor of {@code type}. */
+  public boolean isSubclassOf(@NotNull TypeElement type, @NotNull TypeElement ancestor) {
+    final Node node = getNode(type);
+    final Node ancestorNode = getNode(ancestor);
+    final int distance = node.depth - ancestorNode.depth;
+    return distance > 0 && ancestor(node, distance) == ancestorNode;
+  }
+
+  /**
+   * Creates the nodes of {@code type} and of its ancestors not indexed yet, from the closest
+   * indexed ancestor (or the root) down to {@code type}, so parents are always created first.
+   */
+  private Node getNode(TypeElement type) {
+    Node node = nodes.get(type);
+    if (node != null) {
+      return node;
+    }
+    final List<TypeElement> unindexedTypes = new ArrayList<>();
+    Node parent = null;
+    TypeElement current = type;
+    while (current != null) {
+      parent = nodes.get(current);
+      if (parent != null) {
+        break;
+      }
+      unindexedTypes.add(current);
+      current = resolveSuperClass(current);
+    }
+    for (int i = unindexedTypes.size() - 1; i >= 0; i--) {
+      node = new Node(unindexedTypes.get(i), parent);
+      nodes.put(node.type, node);
+      parent = node;
+    }
+    return node;
+  }
+
+  @Nullable
+  private TypeElement resolveSuperClass(TypeElement type) {
+    final TypeMirror superClass = type.getSuperclass();
+    if (superClass.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+    final TypeElement superClassElement = (TypeElement) typeUtils.asElement(superClass);
+    if (OBJECT_CLASS_NAME.contentEquals(superClassElement.getQualifiedName())) {
+      return null;
+    }
+    return superClassElement;
+  }
+
+  @Nullable
+  private static Node ancestor(Node node, int distance) {
+    if (distance > node.depth) {
+      return null;
+    }
+    Node current = node;
+    for (int i = 0; distance > 0; i++, distance >>>= 1) {
+      if ((distance & 1) != 0) {
+        current = current.jumps[i];
+      }
+    }
+    return current;
+  }
+
+  private static final class Node {
+
+    private final TypeElement type;
+    private final Node parent;
+    private final int depth;
+    // jumps[i] is the 2^i-th ancestor, only the jumps within the chain are stored
+    private final Node[] jumps;
+
+    private Node(TypeElement type, Node parent) {
+      this.type = type;
+      this.parent = parent;
+      depth = parent != null ? parent.depth + 1 : 0;
+      jumps = new Node[32 - Integer.numberOfLeadingZeros(depth)];
+      if (jumps.length > 0) {
+        jumps[0] = parent;
+        for (int i = 1; i < jumps.length; i++) {
+          jumps[i] = jumps[i - 1].jumps[i - 1];
+        }
+      }
+    }
+  }
+}
@@ -17,6 +17,9 @@
 package com.groupon.android.dichecks.checks.duplicate;
 
 import com.groupon.android.dichecks.checks.common.DICheckIssue;
+import com.groupon.android.dichecks.model.InjectionSite;
+import java.util.Collections;
+import java.util.List;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
 import javax.tools.Diagnostic;
@@ -32,13 +35,61 @@ public class DuplicateDICheckIssue extends DICheckIssue {
       @NotNull Element element,
       @NotNull TypeElement enclosingClass,
       @NotNull TypeElement duplicateClass) {
+    this(
+        type,
+        element,
+        enclosingClass.getQualifiedName().toString(),
+        duplicateClass.getQualifiedName().toString());
+  }
+
+  public DuplicateDICheckIssue(
+      @NotNull Diagnostic.Kind type,
+      @NotNull Element element,
+      @NotNull String enclosingClass,
+      @NotNull String duplicateClass) {
+    this(type, element, enclosingClass, Collections.singletonList(duplicateClass));
+  }
+
+  /** A single issue for all the ancestors of {@code enclosingClass} duplicating the injection. */
+  public DuplicateDICheckIssue(
+      @NotNull Diagnostic.Kind type,
+      @NotNull Element element,
+      @NotNull String enclosingClass,
+      @NotNull List<String> duplicateClasses) {
     super(
         type,
-        String.format(
-            MESSAGE_FORMAT,
-            element.asType().toString(),
-            enclosingClass.getQualifiedName().toString(),
-            duplicateClass.getQualifiedName().toString()),
+        formatMessage(element.asType().toString(), enclosingClass, duplicateClasses),
         element);
   }
+
+  /**
+   * A single issue for all the ancestors of the owner of {@code site} injecting it. The message is
+   * formatted from the site only, like the issues of the gradle plugin, the daemon and the batch
+   * audit that are found in a model.
+   */
+  public DuplicateDICheckIssue(
+      @NotNull Diagnostic.Kind type,
+      @NotNull Element element,
+      @NotNull InjectionSite site,
+      @NotNull List<String> duplicateClasses) {
+    super(type, formatMessage(site, duplicateClasses), element);
+  }
+
+  /** @return the message of a duplicate {@code site}, the wrapped type names the injection. */
+  public static String formatMessage(
+      @NotNull InjectionSite site, @NotNull List<String> duplicateClasses) {
+    return formatMessage(site.getInjectedType(), site.getOwnerType(), duplicateClasses);
+  }
+
+  public static String formatMessage(
+      String injectedClass, String enclosingClass, List<String> duplicateClasses) {
+    final StringBuilder duplicates = new StringBuilder();
+    for (String duplicateClass : duplicateClasses) {
+      if (duplicates.length() > 0) {
+        duplicates.append(", ");
+      }
+      duplicates.append(duplicateClass);
+    }
+    return String.format(MESSAGE_FORMAT, injectedClass, enclosingClass, duplicates);
+  }
 }
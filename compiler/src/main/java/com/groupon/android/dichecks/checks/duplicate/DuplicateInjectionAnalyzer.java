@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.checks.duplicate;
+
+import com.groupon.android.dichecks.checks.common.CheckBudget;
+import com.groupon.android.dichecks.checks.common.Severity;
+import com.groupon.android.dichecks.model.InjectionKind;
+import com.groupon.android.dichecks.model.InjectionModel;
+import com.groupon.android.dichecks.model.InjectionSite;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Compiler independent engine of the {@link DuplicateInjectionInHierarchyCheck}: finds the
+ * injection sites of an {@link InjectionModel} that duplicate an injection of one of the super
+ * classes of their owner.
+ *
+ * <p>The model can be built by any front end (javac, bytecode, a merged graph file...) as long as
+ * it contains the inheritance edges between the owners of the injection sites. Suppressed sites are
+ * ignored: they are neither reported nor duplicated by their subclasses. Sites recorded with the
+ * {@link Severity#OFF} severity are not reported, but their subclasses still duplicate them.
+ */
+public class DuplicateInjectionAnalyzer {
+
+  /**
+   * The sites of each injection definition are grouped by owner type, each site then walks up the
+   * hierarchy of its owner once, looking up each ancestor in the group: the cost is linear in the
+   * number of sites times the depth of the hierarchy.
+   *
+   * @return one duplicate per duplicated site, in the iteration order of the model's sites.
+   */
+  public List<Duplicate> analyze(@NotNull InjectionModel model) {
+    return analyze(model, CheckBudget.UNLIMITED);
+  }
+
+  /**
+   * Same as {@link #analyze(InjectionModel)} but stops as soon as {@code budget} is exhausted.
+   *
+   * @return the duplicates found before the budget was exhausted.
+   */
+  public List<Duplicate> analyze(@NotNull InjectionModel model, @NotNull CheckBudget budget) {
+    final List<Duplicate> duplicates = new ArrayList<>();
+    final SiteIndex siteIndex = new SiteIndex();
+    for (InjectionSite site : model.getInjectionSites()) {
+      if (budget.isExhausted()) {
+        return duplicates;
+      }
+      siteIndex.add(site);
+    }
+
+    for (InjectionSite site : model.getInjectionSites()) {
+      if (budget.isExhausted()) {
+        return duplicates;
+      }
+      findDuplicates(site, model, siteIndex, duplicates);
+    }
+    return duplicates;
+  }
+
+  /**
+   * Adds the duplicate of a single site, if any, to {@code duplicates}. Used to analyze a model
+   * incrementally.
+   *
+   * @param siteIndex the index of all the sites of {@code model}.
+   */
+  public void findDuplicates(
+      @NotNull InjectionSite site,
+      @NotNull InjectionModel model,
+      @NotNull SiteIndex siteIndex,
+      @NotNull List<Duplicate> duplicates) {
+    if (site.isSuppressed() || site.getSeverity() == Severity.OFF) {
+      return;
+    }
+    final Map<String, Set<InjectionSite>> sitesByOwner =
+        siteIndex.sitesByDefinition.get(new InjectionDefinition(site));
+    if (sitesByOwner == null || sitesByOwner.size() < 2) {
+      return;
+    }
+    List<String> ancestorTypes = null;
+    String ancestor = model.getSuperClass(site.getOwnerType());
+    while (ancestor != null) {
+      if (sitesByOwner.containsKey(ancestor)) {
+        if (ancestorTypes == null) {
+          ancestorTypes = new ArrayList<>();
+        }
+        ancestorTypes.add(ancestor);
+      }
+      ancestor = model.getSuperClass(ancestor);
+    }
+    if (ancestorTypes != null) {
+      duplicates.add(new Duplicate(site, ancestorTypes));
+    }
+  }
+
+  /**
+   * Injection sites grouped by injection definition and owner type, updated incrementally.
+   * Suppressed sites are not indexed.
+   */
+  public static final class SiteIndex {
+
+    private final Map<InjectionDefinition, Map<String, Set<InjectionSite>>> sitesByDefinition =
+        new HashMap<>();
+
+    public void add(@NotNull InjectionSite site) {
+      if (site.isSuppressed()) {
+        return;
+      }
+      final InjectionDefinition definition = new InjectionDefinition(site);
+      Map<String, Set<InjectionSite>> sitesByOwner = sitesByDefinition.get(definition);
+      if (sitesByOwner == null) {
+        sitesByOwner = new HashMap<>();
+        sitesByDefinition.put(definition, sitesByOwner);
+      }
+      Set<InjectionSite> ownerSites = sitesByOwner.get(site.getOwnerType());
+      if (ownerSites == null) {
+        ownerSites = new HashSet<>();
+        sitesByOwner.put(site.getOwnerType(), ownerSites);
+      }
+      ownerSites.add(site);
+    }
+
+    public void remove(@NotNull InjectionSite site) {
+      final InjectionDefinition definition = new InjectionDefinition(site);
+      final Map<String, Set<InjectionSite>> sitesByOwner = sitesByDefinition.get(definition);
+      if (sitesByOwner == null) {
+        return;
+      }
+      final Set<InjectionSite> ownerSites = sitesByOwner.get(site.getOwnerType());
+      if (ownerSites != null && ownerSites.remove(site) && ownerSites.isEmpty()) {
+        sitesByOwner.remove(site.getOwnerType());
+        if (sitesByOwner.isEmpty()) {
+          sitesByDefinition.remove(definition);
+        }
+      }
+    }
+
+    /** @return the sites injecting the same definition as {@code site}, {@code site} included. */
+    public List<InjectionSite> getSitesOfSameDefinition(@NotNull InjectionSite site) {
+      final List<InjectionSite> sites = new ArrayList<>();
+      final Map<String, Set<InjectionSite>> sitesByOwner =
+          sitesByDefinition.get(new InjectionDefinition(site));
+      if (sitesByOwner != null) {
+        for (Set<InjectionSite> ownerSites : sitesByOwner.values()) {
+          sites.addAll(ownerSites);
+        }
+      }
+      return sites;
+    }
+  }
+
+  /** An injection site that is also injected by {@link #getAncestorTypes()}. */
+  public static final class Duplicate implements Comparable<Duplicate> {
+
+    private final InjectionSite site;
+    private final List<String> ancestorTypes;
+
+    public Duplicate(@NotNull InjectionSite site, @NotNull List<String> ancestorTypes) {
+      this.site = site;
+      this.ancestorTypes = Collections.unmodifiableList(ancestorTypes);
+    }
+
+    public InjectionSite getSite() {
+      return site;
+    }
+
+    /** @return the ancestors of the site's owner injecting the same definition, closest first. */
+    public List<String> getAncestorTypes() {
+      return ancestorTypes;
+    }
+
+    @Override
+    public int compareTo(@NotNull Duplicate other) {
+      return site.compareTo(other.site);
+    }
+  }
+
+  /**
+   * Identifies an injection in the source code: the injected type, the qualifier and whether or
+   * not a new instance is provided each time. Lazy and direct injections of the same type are
+   * duplicates.
+   */
+  static final class InjectionDefinition {
+
+    private final String injectionType;
+    private final String named;
+    private final boolean isProvider;
+
+    InjectionDefinition(@NotNull InjectionSite site) {
+      injectionType = site.getInjectedType();
+      named = site.getQualifier();
+      isProvider = site.getKind() == InjectionKind.PROVIDER;
+    }
+
+    String getInjectionType() {
+      return injectionType;
+    }
+
+    String getNamed() {
+      return named;
+    }
+
+    boolean isProvider() {
+      return isProvider;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == null || !(obj instanceof InjectionDefinition)) {
+        return false;
+      }
+      final InjectionDefinition other = (InjectionDefinition) obj;
+      return injectionType.equals(other.injectionType)
+          && (named == null && other.named == null || named != null && named.equals(other.named))
+          && (isProvider == other.isProvider);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = injectionType.hashCode();
+      result = 31 * result + (named != null ? named.hashCode() : 0);
+      result = 31 * result + (isProvider ? 1 : 0);
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return injectionType + (named != null ? "(named='" + named + "\')" : "");
+    }
+  }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.checks.duplicate;
+
+import com.groupon.android.dichecks.model.InjectionModel;
+import com.groupon.android.dichecks.model.InjectionSite;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Finds the injections repeated by many sibling subclasses that could be hoisted into their common
+ * ancestor, i.e. 30 fragments extending {@code BaseFragment} that each inject the same {@code
+ * Tracker}. Unlike {@link DuplicateInjectionAnalyzer} these are not errors, only refactoring hints.
+ *
+ * <p>The model only tracks super classes so the inheritance graph is a forest. Each injection
+ * definition gets an index and each type the {@link BitSet} of the definitions injected in its
+ * subtree. Types are visited once, deepest first: the subtree set of a type is the union of its
+ * own injections and of the sets of its direct subclasses, which are counted per definition on the
+ * way. The cost is linear in the number of types times the number of definitions per subtree,
+ * without comparing subclasses pairwise.
+ *
+ * <p>Only the types defined by the analyzed code are candidate ancestors: an injection can't be
+ * hoisted into a library class such as {@code Fragment}.
+ */
+public class HoistingAnalyzer {
+
+  public static final int DEFAULT_MIN_SUBCLASSES = 3;
+
+  private final int minSubclasses;
+
+  public HoistingAnalyzer() {
+    this(DEFAULT_MIN_SUBCLASSES);
+  }
+
+  /**
+   * @param minSubclasses minimum number of direct subclasses whose subtree injects a definition
+   *     for their super class to be a hoisting candidate.
+   */
+  public HoistingAnalyzer(int minSubclasses) {
+    this.minSubclasses = minSubclasses;
+  }
+
+  /** @return the hoisting candidates sorted by ancestor type and injected type. */
+  public List<Candidate> analyze(@NotNull InjectionModel model) {
+    final Map<DuplicateInjectionAnalyzer.InjectionDefinition, Integer> definitionIndexes =
+        new HashMap<>();
+    final List<DuplicateInjectionAnalyzer.InjectionDefinition> definitions = new ArrayList<>();
+    final Map<String, BitSet> ownDefinitions = new HashMap<>();
+    for (InjectionSite site : model.getInjectionSites()) {
+      final DuplicateInjectionAnalyzer.InjectionDefinition definition =
+          new DuplicateInjectionAnalyzer.InjectionDefinition(site);
+      Integer index = definitionIndexes.get(definition);
+      if (index == null) {
+        index = definitions.size();
+        definitionIndexes.put(definition, index);
+        definitions.add(definition);
+      }
+      getOrCreate(ownDefinitions, site.getOwnerType()).set(index);
+    }
+
+    final Map<String, List<String>> subclasses = new HashMap<>();
+    for (Map.Entry<String, String> superClass : model.getSuperClasses().entrySet()) {
+      List<String> typeSubclasses = subclasses.get(superClass.getValue());
+      if (typeSubclasses == null) {
+        typeSubclasses = new ArrayList<>();
+        subclasses.put(superClass.getValue(), typeSubclasses);
+      }
+      typeSubclasses.add(superClass.getKey());
+    }
+
+    final List<Candidate> candidates = new ArrayList<>();
+    final Map<String, BitSet> subtreeDefinitions = new HashMap<>();
+    final int[] subclassCounts = new int[definitions.size()];
+    for (String type : typesDeepestFirst(model)) {
+      final BitSet subtree = getOrCreate(subtreeDefinitions, type);
+      final BitSet own = ownDefinitions.get(type);
+      if (own != null) {
+        subtree.or(own);
+      }
+      final List<String> typeSubclasses = subclasses.get(type);
+      if (typeSubclasses == null) {
+        continue;
+      }
+      final BitSet counted = new BitSet();
+      for (String subclass : typeSubclasses) {
+        final BitSet subclassSubtree = subtreeDefinitions.get(subclass);
+        for (int i = subclassSubtree.nextSetBit(0); i >= 0; i = subclassSubtree.nextSetBit(i + 1)) {
+          subclassCounts[i]++;
+        }
+        counted.or(subclassSubtree);
+        subtree.or(subclassSubtree);
+      }
+      final boolean defined = model.isDefined(type);
+      for (int i = counted.nextSetBit(0); i >= 0; i = counted.nextSetBit(i + 1)) {
+        if (defined
+            && subclassCounts[i] >= minSubclasses
+            && !isInheritedBy(type, i, model, ownDefinitions)) {
+          candidates.add(
+              new Candidate(
+                  type,
+                  definitions.get(i),
+                  subclassesInjecting(typeSubclasses, i, subtreeDefinitions)));
+        }
+        subclassCounts[i] = 0;
+      }
+    }
+    Collections.sort(candidates);
+    return candidates;
+  }
+
+  /**
+   * Orders the types of the model so that every type comes after all its subclasses, bucketing
+   * them by depth in the hierarchy.
+   */
+  private static List<String> typesDeepestFirst(InjectionModel model) {
+    final Map<String, Integer> depths = new HashMap<>();
+    final List<List<String>> typesByDepth = new ArrayList<>();
+    for (String type : model.getTypes()) {
+      final int depth = depth(type, model, depths);
+      while (typesByDepth.size() <= depth) {
+        typesByDepth.add(new ArrayList<String>());
+      }
+      typesByDepth.get(depth).add(type);
+    }
+    final List<String> types = new ArrayList<>(depths.size());
+    for (int depth = typesByDepth.size() - 1; depth >= 0; depth--) {
+      types.addAll(typesByDepth.get(depth));
+    }
+    return types;
+  }
+
+  /** @return the depth of {@code type}, memoized so each type is walked once. */
+  private static int depth(String type, InjectionModel model, Map<String, Integer> depths) {
+    final List<String> unknownTypes = new ArrayList<>();
+    String current = type;
+    int depth = -1;
+    while (current != null) {
+      final Integer knownDepth = depths.get(current);
+      if (knownDepth != null) {
+        depth = knownDepth;
+        break;
+      }
+      unknownTypes.add(current);
+      current = model.getSuperClass(current);
+    }
+    for (int i = unknownTypes.size() - 1; i >= 0; i--) {
+      depths.put(unknownTypes.get(i), ++depth);
+    }
+    return depths.get(type);
+  }
+
+  /** Injections of the type or one of its ancestors are duplicates, not hoisting candidates. */
+  private static boolean isInheritedBy(
+      String type, int definition, InjectionModel model, Map<String, BitSet> ownDefinitions) {
+    String current = type;
+    while (current != null) {
+      final BitSet own = ownDefinitions.get(current);
+      if (own != null && own.get(definition)) {
+        return true;
+      }
+      current = model.getSuperClass(current);
+    }
+    return false;
+  }
+
+  private static List<String> subclassesInjecting(
+      List<String> subclasses, int definition, Map<String, BitSet> subtreeDefinitions) {
+    final List<String> injectingSubclasses = new ArrayList<>();
+    for (String subclass : subclasses) {
+      if (subtreeDefinitions.get(subclass).get(definition)) {
+        injectingSubclasses.add(subclass);
+      }
+    }
+    Collections.sort(injectingSubclasses);
+    return injectingSubclasses;
+  }
+
+  private static BitSet getOrCreate(Map<String, BitSet> bitSets, String type) {
+    BitSet bitSet = bitSets.get(type);
+    if (bitSet == null) {
+      bitSet = new BitSet();
+      bitSets.put(type, bitSet);
+    }
+    return bitSet;
+  }
+
+  /** A definition injected in the subtrees of several direct subclasses of an ancestor. */
+  public static final class Candidate implements Comparable<Candidate> {
+
+    private static final String MESSAGE_FORMAT =
+        "Hoisting candidate: %1$s%2$s is injected by %3$d subclasses of %4$s (%5$s),"
+            + " consider injecting it in %4$s.";
+
+    private final String ancestorType;
+    private final String injectedType;
+    private final String qualifier;
+    private final boolean provider;
+    private final List<String> subclasses;
+
+    Candidate(
+        String ancestorType,
+        DuplicateInjectionAnalyzer.InjectionDefinition definition,
+        List<String> subclasses) {
+      this.ancestorType = ancestorType;
+      injectedType = definition.getInjectionType();
+      qualifier = definition.getNamed();
+      provider = definition.isProvider();
+      this.subclasses = Collections.unmodifiableList(subclasses);
+    }
+
+    public String getAncestorType() {
+      return ancestorType;
+    }
+
+    public String getInjectedType() {
+      return injectedType;
+    }
+
+    @Nullable
+    public String getQualifier() {
+      return qualifier;
+    }
+
+    /** @return whether the subclasses inject a provider of the injected type. */
+    public boolean isProvider() {
+      return provider;
+    }
+
+    /** @return the direct subclasses of the ancestor whose subtree injects the definition. */
+    public List<String> getSubclasses() {
+      return subclasses;
+    }
+
+    public String formatMessage() {
+      final StringBuilder subclassList = new StringBuilder();
+      for (String subclass : subclasses) {
+        if (subclassList.length() > 0) {
+          subclassList.append(", ");
+        }
+        subclassList.append(subclass);
+      }
+      return String.format(
+          MESSAGE_FORMAT,
+          provider ? "provider of " + injectedType : injectedType,
+          qualifier != null ? "(named='" + qualifier + "')" : "",
+          subclasses.size(),
+          ancestorType,
+          subclassList);
+    }
+
+    @Override
+    public int compareTo(@NotNull Candidate other) {
+      int result = ancestorType.compareTo(other.ancestorType);
+      if (result == 0) {
+        result = injectedType.compareTo(other.injectedType);
+      }
+      if (result == 0 && qualifier != other.qualifier) {
+        if (qualifier == null || other.qualifier == null) {
+          result = qualifier == null ? -1 : 1;
+        } else {
+          result = qualifier.compareTo(other.qualifier);
+        }
+      }
+      if (result == 0 && provider != other.provider) {
+        result = provider ? 1 : -1;
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.checks.reflection;
+
+import com.groupon.android.dichecks.checks.common.AbstractDICheck;
+import com.groupon.android.dichecks.checks.common.CheckPolicy;
+import com.groupon.android.dichecks.checks.common.DICheckIssue;
+import com.groupon.android.dichecks.model.InjectionModelCollector;
+import com.groupon.android.dichecks.model.InjectionSite;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.inject.Inject;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reports the injected members that Toothpick is likely to inject by reflection, which is slow on
+ * Android, because it can't use the member injectors and factories generated for their class:
+ *
+ * <ul>
+ *   <li>private members, and members of private classes, can't be accessed by the generated code
+ *       that lives in the package of their class.
+ *   <li>classes without a generated {@code __MemberInjector} (injected fields and methods) or
+ *       {@code __Factory} ({@code @Inject} constructors), i.e. when the Toothpick processor doesn't
+ *       run on the module.
+ * </ul>
+ *
+ * <p>Unlike the other checks, this one lives for the whole compilation: the generated classes only
+ * exist after the round of their class, so the members are checked in the last round. The injected
+ * fields are read from the injection model shared with the graph export, only the owners of the
+ * injected methods and constructors (rare) are kept by the check itself. Like the model, they are
+ * kept by name: the elements of a round may not be valid in the last one. A note counting the
+ * reflective members of the module comes with the issues.
+ */
+public class ReflectionFallbackCheck extends AbstractDICheck {
+
+  public static final String MEMBER_INJECTOR_SUFFIX = "__MemberInjector";
+  public static final String FACTORY_SUFFIX = "__Factory";
+
+  private final Elements elementUtils;
+  private final InjectionModelCollector modelCollector;
+  private final CheckPolicy policy;
+  private final String issueName;
+  private final Set<String> executableOwners = new LinkedHashSet<>();
+  private final Map<String, Boolean> generatedClasses = new HashMap<>();
+  private DICheckIssue summary;
+
+  /**
+   * @param modelCollector the collector of the injection model of the compilation, the processor
+   *     adds the injected fields of every round to it.
+   */
+  public ReflectionFallbackCheck(
+      ProcessingEnvironment processingEnv,
+      InjectionModelCollector modelCollector,
+      CheckPolicy policy,
+      String issueName) {
+    elementUtils = processingEnv.getElementUtils();
+    this.modelCollector = modelCollector;
+    this.policy = policy;
+    this.issueName = issueName;
+  }
+
+  /** Fields come from the shared model, only methods and constructors are passed to the check. */
+  @Override
+  public Set<ElementKind> getRequiredElementKinds() {
+    return EnumSet.of(ElementKind.METHOD, ElementKind.CONSTRUCTOR);
+  }
+
+  /** Members of local and anonymous classes are skipped, like in the model. */
+  @Override
+  public void addInjectedElements(Set<? extends Element> injectedElements) {
+    for (Element injectedElement : injectedElements) {
+      final String owner =
+          ((TypeElement) injectedElement.getEnclosingElement()).getQualifiedName().toString();
+      if (!owner.isEmpty()) {
+        executableOwners.add(owner);
+      }
+    }
+  }
+
+  /**
+   * Must be called once, in the last round, when the generated classes of all the rounds exist.
+   *
+   * @return one issue per reflective member, sorted by class and member name. The summary note is
+   *     not part of them, see {@link #getSummary()}.
+   */
+  @Override
+  public List<DICheckIssue> processInjectedElements() {
+    final List<ReflectiveMember> members = new ArrayList<>();
+    for (InjectionSite site : modelCollector.getModel().getInjectionSites()) {
+      final Element field = resolveField(site);
+      if (field != null) {
+        addIfReflective(field, members);
+      }
+    }
+    for (String owner : executableOwners) {
+      final TypeElement ownerType = elementUtils.getTypeElement(owner);
+      if (ownerType == null) {
+        continue;
+      }
+      for (Element member : ownerType.getEnclosedElements()) {
+        if ((member.getKind() == ElementKind.METHOD || member.getKind() == ElementKind.CONSTRUCTOR)
+            && member.getAnnotation(Inject.class) != null) {
+          addIfReflective(member, members);
+        }
+      }
+    }
+    Collections.sort(members);
+
+    final List<DICheckIssue> issues = new ArrayList<>();
+    final Map<ReflectionFallbackReason, Integer> countsByReason =
+        new EnumMap<>(ReflectionFallbackReason.class);
+    for (ReflectiveMember member : members) {
+      final Diagnostic.Kind kind =
+          policy
+              .getSeverity(elementUtils.getPackageOf(member.element).getQualifiedName().toString())
+              .getDiagnosticKind();
+      if (kind != null) {
+        issues.add(
+            new ReflectionFallbackDICheckIssue(
+                kind, member.element, member.ownerType, member.reason));
+        final Integer count = countsByReason.get(member.reason);
+        countsByReason.put(member.reason, count == null ? 1 : count + 1);
+      }
+    }
+    summary = issues.isEmpty() ? null : new ReflectionFallbackSummaryDICheckIssue(countsByReason);
+    return issues;
+  }
+
+  /**
+   * @return the note counting all the reflective members found by {@link
+   *     #processInjectedElements()}, {@code null} if there is none. It's reported before the issues
+   *     and isn't counted in their limit.
+   */
+  @Nullable
+  public DICheckIssue getSummary() {
+    return summary;
+  }
+
+  private void addIfReflective(Element member, List<ReflectiveMember> members) {
+    final TypeElement owner = (TypeElement) member.getEnclosingElement();
+    if (isSuppressed(member) || isSuppressed(owner)) {
+      return;
+    }
+    final ReflectionFallbackReason reason = getReason(member, owner);
+    if (reason != null) {
+      members.add(new ReflectiveMember(member, owner.getQualifiedName().toString(), reason));
+    }
+  }
+
+  @Nullable
+  private ReflectionFallbackReason getReason(Element member, TypeElement owner) {
+    if (member.getModifiers().contains(Modifier.PRIVATE)) {
+      return ReflectionFallbackReason.PRIVATE_MEMBER;
+    }
+    if (isInPrivateClass(owner)) {
+      return ReflectionFallbackReason.PRIVATE_CLASS;
+    }
+    if (member.getKind() == ElementKind.CONSTRUCTOR) {
+      return hasGeneratedClass(owner, FACTORY_SUFFIX)
+          ? null
+          : ReflectionFallbackReason.MISSING_FACTORY;
+    }
+    return hasGeneratedClass(owner, MEMBER_INJECTOR_SUFFIX)
+        ? null
+        : ReflectionFallbackReason.MISSING_MEMBER_INJECTOR;
+  }
+
+  private static boolean isInPrivateClass(TypeElement owner) {
+    Element current = owner;
+    while (current.getKind().isClass() || current.getKind().isInterface()) {
+      if (current.getModifiers().contains(Modifier.PRIVATE)) {
+        return true;
+      }
+      current = current.getEnclosingElement();
+    }
+    return false;
+  }
+
+  /**
+   * Toothpick generates {@code <binary name of the class><suffix>} in the package of the class.
+   * The lookups are memoized: classes with many injected fields are looked up once.
+   */
+  private boolean hasGeneratedClass(TypeElement owner, String suffix) {
+    final String generatedClass = elementUtils.getBinaryName(owner) + suffix;
+    Boolean exists = generatedClasses.get(generatedClass);
+    if (exists == null) {
+      exists = elementUtils.getTypeElement(generatedClass) != null;
+      generatedClasses.put(generatedClass, exists);
+    }
+    return exists;
+  }
+
+  private boolean isSuppressed(Element element) {
+    final SuppressWarnings suppressAnnotation = element.getAnnotation(SuppressWarnings.class);
+    return suppressAnnotation != null
+        && Arrays.asList(suppressAnnotation.value()).contains(issueName);
+  }
+
+  /** Looks up the field of an injection site of the model by owner type and name. */
+  @Nullable
+  private Element resolveField(InjectionSite site) {
+    final TypeElement ownerType = elementUtils.getTypeElement(site.getOwnerType());
+    if (ownerType == null) {
+      return null;
+    }
+    for (VariableElement field : ElementFilter.fieldsIn(ownerType.getEnclosedElements())) {
+      if (field.getSimpleName().contentEquals(site.getName())) {
+        return field;
+      }
+    }
+    return null;
+  }
+
+  private static final class ReflectiveMember implements Comparable<ReflectiveMember> {
+
+    private final Element element;
+    private final String ownerType;
+    private final ReflectionFallbackReason reason;
+
+    ReflectiveMember(Element element, String ownerType, ReflectionFallbackReason reason) {
+      this.element = element;
+      this.ownerType = ownerType;
+      this.reason = reason;
+    }
+
+    @Override
+    public int compareTo(ReflectiveMember other) {
+      final int result = ownerType.compareTo(other.ownerType);
+      if (result != 0) {
+        return result;
+      }
+      return element.getSimpleName().toString().compareTo(other.element.getSimpleName().toString());
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.checks.reflection;
+
+import com.groupon.android.dichecks.checks.common.DICheckIssue;
+import javax.lang.model.element.Element;
+import javax.tools.Diagnostic;
+import org.jetbrains.annotations.NotNull;
+
+public class ReflectionFallbackDICheckIssue extends DICheckIssue {
+
+  private static final String MESSAGE_FORMAT =
+      "Reflective injection: %1$s %2$s in %3$s is injected by reflection because %4$s.";
+
+  public ReflectionFallbackDICheckIssue(
+      @NotNull Diagnostic.Kind kind,
+      @NotNull Element member,
+      @NotNull String ownerType,
+      @NotNull ReflectionFallbackReason reason) {
+    super(kind, formatMessage(member, ownerType, reason), member);
+  }
+
+  private static String formatMessage(
+      Element member, String ownerType, ReflectionFallbackReason reason) {
+    final String memberKind;
+    switch (member.getKind()) {
+      case CONSTRUCTOR:
+        memberKind = "constructor";
+        break;
+      case METHOD:
+        memberKind = "method";
+        break;
+      default:
+        memberKind = "field";
+        break;
+    }
+    return String.format(
+        MESSAGE_FORMAT, memberKind, member.getSimpleName(), ownerType, reason.getDescription());
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.checks.reflection;
+
+/** Why an injected member is likely to be injected by reflection at runtime. */
+public enum ReflectionFallbackReason {
+  PRIVATE_MEMBER("it is private, the generated injector can't access it"),
+  PRIVATE_CLASS("its class or an enclosing class is private"),
+  MISSING_MEMBER_INJECTOR("no member injector was generated for its class"),
+  MISSING_FACTORY("no factory was generated for its class");
+
+  private final String description;
+
+  ReflectionFallbackReason(String description) {
+    this.description = description;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.checks.reflection;
+
+import com.groupon.android.dichecks.checks.common.DICheckIssue;
+import java.util.Locale;
+import java.util.Map;
+import javax.tools.Diagnostic;
+import org.jetbrains.annotations.NotNull;
+
+/** Per module count of the injected members falling back to reflection, by reason. */
+public class ReflectionFallbackSummaryDICheckIssue extends DICheckIssue {
+
+  private static final String MESSAGE_FORMAT =
+      "%d injected member(s) of this module are likely injected by reflection (%s).";
+
+  public ReflectionFallbackSummaryDICheckIssue(
+      @NotNull Map<ReflectionFallbackReason, Integer> countsByReason) {
+    super(Diagnostic.Kind.NOTE, formatMessage(countsByReason), null);
+  }
+
+  private static String formatMessage(Map<ReflectionFallbackReason, Integer> countsByReason) {
+    int total = 0;
+    final StringBuilder counts = new StringBuilder();
+    for (Map.Entry<ReflectionFallbackReason, Integer> count : countsByReason.entrySet()) {
+      total += count.getValue();
+      if (counts.length() > 0) {
+        counts.append(", ");
+      }
+      counts.append(count.getKey().name().toLowerCase(Locale.US)).append(": ");
+      counts.append(count.getValue());
+    }
+    return String.format(MESSAGE_FORMAT, total, counts);
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.checks.startup;
+
+import com.groupon.android.dichecks.checks.common.TypeHierarchyIndex;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Classifies classes by Android lifecycle base type. The base classes in the classpath are resolved
+ * once, a class is then classified with one {@link TypeHierarchyIndex#isSubclassOf} query per base
+ * class, each in O(log depth) whatever the depth of the class.
+ */
+class EntryPointClassifier {
+
+  private final TypeHierarchyIndex hierarchyIndex;
+  private final Map<TypeElement, EntryPointType> typesByBaseClass = new LinkedHashMap<>();
+
+  EntryPointClassifier(Elements elementUtils, TypeHierarchyIndex hierarchyIndex) {
+    this.hierarchyIndex = hierarchyIndex;
+    for (EntryPointType type : EntryPointType.values()) {
+      for (String baseClassName : type.getBaseClasses()) {
+        final TypeElement baseClass = elementUtils.getTypeElement(baseClassName);
+        // the base classes of the libraries that are not in the classpath are ignored
+        if (baseClass != null) {
+          typesByBaseClass.put(baseClass, type);
+        }
+      }
+    }
+  }
+
+  /** @return the lifecycle type of {@code typeElement} or {@code null} if it's not one. */
+  @Nullable
+  EntryPointType classify(TypeElement typeElement) {
+    for (Map.Entry<TypeElement, EntryPointType> baseClass : typesByBaseClass.entrySet()) {
+      if (typeElement.equals(baseClass.getKey())
+          || hierarchyIndex.isSubclassOf(typeElement, baseClass.getKey())) {
+        return baseClass.getValue();
+      }
+    }
+    return null;
+  }
+}
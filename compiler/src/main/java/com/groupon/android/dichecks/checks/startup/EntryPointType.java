@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.checks.startup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** The Android lifecycle base classes whose injections are resolved while the app starts. */
+public enum EntryPointType {
+  APPLICATION("android.app.Application"),
+  ACTIVITY("android.app.Activity"),
+  FRAGMENT(
+      "android.app.Fragment",
+      "android.support.v4.app.Fragment",
+      "androidx.fragment.app.Fragment");
+
+  private final List<String> baseClasses;
+
+  EntryPointType(String... baseClasses) {
+    this.baseClasses = Collections.unmodifiableList(Arrays.asList(baseClasses));
+  }
+
+  /** @return the fully qualified names of the framework classes of this type. */
+  public List<String> getBaseClasses() {
+    return baseClasses;
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.checks.startup;
+
+import com.groupon.android.dichecks.checks.common.DICheckIssue;
+import java.util.Locale;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import org.jetbrains.annotations.NotNull;
+
+public class StartupDICheckIssue extends DICheckIssue {
+
+  private static final String MESSAGE_FORMAT =
+      "Heavy startup injection: %1$s %2$s eagerly injects %3$d dependencies (max %4$d) "
+          + "with a dependency graph depth of %5$d (max %6$d), "
+          + "consider using Lazy or Provider injections.";
+
+  public StartupDICheckIssue(
+      @NotNull Diagnostic.Kind kind,
+      @NotNull TypeElement entryPoint,
+      @NotNull EntryPointType entryPointType,
+      int eagerInjectionCount,
+      int maxEagerInjections,
+      int graphDepth,
+      int maxGraphDepth) {
+    super(
+        kind,
+        String.format(
+            MESSAGE_FORMAT,
+            entryPointType.name().toLowerCase(Locale.US),
+            entryPoint.getQualifiedName(),
+            eagerInjectionCount,
+            maxEagerInjections,
+            graphDepth,
+            maxGraphDepth),
+        entryPoint);
+  }
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.checks.startup;
+
+import com.groupon.android.dichecks.checks.common.AbstractDICheck;
+import com.groupon.android.dichecks.checks.common.BudgetExceededDICheckIssue;
+import com.groupon.android.dichecks.checks.common.CheckBudget;
+import com.groupon.android.dichecks.checks.common.CheckPolicy;
+import com.groupon.android.dichecks.checks.common.DICheckIssue;
+import com.groupon.android.dichecks.checks.common.Severity;
+import com.groupon.android.dichecks.checks.common.TypeHierarchyIndex;
+import com.groupon.android.dichecks.model.InjectionKind;
+import com.groupon.android.dichecks.model.InjectionKindClassifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.inject.Inject;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Reports the Android entry points ({@code Application}, {@code Activity} and {@code Fragment}
+ * subclasses) that resolve too many dependencies while the app starts.
+ *
+ * <p>For each concrete entry point injecting fields, or inheriting them from an abstract base class
+ * like {@code MainActivity extends BaseActivity}, the check computes:
+ *
+ * <ul>
+ *   <li>the eager injection count: the direct (neither {@code Lazy} nor {@code Provider}) fields
+ *       injected in the entry point and its super classes.
+ *   <li>the graph depth: the length of the longest chain of direct dependencies created to inject
+ *       the entry point, following {@code @Inject} constructors and fields. Dependencies without an
+ *       {@code @Inject} constructor (i.e. provided by a module) end the chain.
+ * </ul>
+ *
+ * Entry points above either threshold are reported.
+ */
+public class StartupInjectionCheck extends AbstractDICheck {
+
+  public static final int DEFAULT_MAX_EAGER_INJECTIONS = 20;
+  public static final int DEFAULT_MAX_GRAPH_DEPTH = 6;
+
+  private final Elements elementUtils;
+  private final Types typeUtils;
+  private final InjectionKindClassifier kindClassifier;
+  private final TypeHierarchyIndex hierarchyIndex;
+  private final EntryPointClassifier entryPointClassifier;
+  private final CheckPolicy policy;
+  private final String issueName;
+  private final Collection<TypeElement> roundTypes;
+  private final int maxEagerInjections;
+  private final int maxGraphDepth;
+  private final Set<TypeElement> entryPoints = new LinkedHashSet<>();
+  private final Map<TypeElement, Integer> eagerInjectionCounts = new IdentityHashMap<>();
+  private final Map<TypeElement, Integer> graphDepths = new IdentityHashMap<>();
+  // state of the strongly connected components search of graphDepth
+  private final Map<TypeElement, Integer> visitIndexes = new IdentityHashMap<>();
+  private final Map<TypeElement, Integer> lowLinks = new IdentityHashMap<>();
+  private final Map<TypeElement, Integer> exitDepths = new IdentityHashMap<>();
+  private final Set<TypeElement> cyclicTypes = new HashSet<>();
+  private final Deque<TypeElement> visitStack = new ArrayDeque<>();
+
+  public StartupInjectionCheck(
+      ProcessingEnvironment processingEnv,
+      InjectionKindClassifier kindClassifier,
+      TypeHierarchyIndex hierarchyIndex,
+      CheckPolicy policy,
+      String issueName,
+      Collection<TypeElement> roundTypes,
+      int maxEagerInjections,
+      int maxGraphDepth) {
+    elementUtils = processingEnv.getElementUtils();
+    typeUtils = processingEnv.getTypeUtils();
+    this.kindClassifier = kindClassifier;
+    this.hierarchyIndex = hierarchyIndex;
+    entryPointClassifier = new EntryPointClassifier(elementUtils, hierarchyIndex);
+    this.policy = policy;
+    this.issueName = issueName;
+    this.roundTypes = roundTypes;
+    this.maxEagerInjections = maxEagerInjections;
+    this.maxGraphDepth = maxGraphDepth;
+  }
+
+  @Override
+  public Set<ElementKind> getRequiredElementKinds() {
+    return EnumSet.of(ElementKind.FIELD);
+  }
+
+  @Override
+  public void addInjectedElements(Set<? extends Element> injectedElements) {
+    for (Element injectedElement : injectedElements) {
+      final TypeElement owner = (TypeElement) injectedElement.getEnclosingElement();
+      if (!entryPoints.contains(owner) && isCheckedEntryPoint(owner)) {
+        entryPoints.add(owner);
+      }
+    }
+    // the concrete subclasses of an abstract base class holding all the injections have no
+    // injected element of their own
+    addInheritingEntryPoints(roundTypes);
+  }
+
+  /** Adds the entry points among {@code types} and their nested types that inherit injections. */
+  private void addInheritingEntryPoints(Collection<TypeElement> types) {
+    for (TypeElement type : types) {
+      if (!entryPoints.contains(type)
+          && isCheckedEntryPoint(type)
+          && eagerInjectionCount(type) > 0) {
+        entryPoints.add(type);
+      }
+      addInheritingEntryPoints(ElementFilter.typesIn(type.getEnclosedElements()));
+    }
+  }
+
+  private boolean isCheckedEntryPoint(TypeElement type) {
+    return !type.getModifiers().contains(Modifier.ABSTRACT)
+        && !isSuppressed(type)
+        && entryPointClassifier.classify(type) != null;
+  }
+
+  private boolean isSuppressed(TypeElement owner) {
+    final SuppressWarnings suppressAnnotation = owner.getAnnotation(SuppressWarnings.class);
+    return suppressAnnotation != null
+        && Arrays.asList(suppressAnnotation.value()).contains(issueName);
+  }
+
+  /**
+   * Counts and depths are memoized per type, shared super classes and dependencies are only
+   * visited once per round.
+   *
+   * @return the entry points above a threshold, sorted by name.
+   */
+  @Override
+  public List<DICheckIssue> processInjectedElements() {
+    final List<TypeElement> sortedEntryPoints = new ArrayList<>(entryPoints);
+    Collections.sort(
+        sortedEntryPoints,
+        new Comparator<TypeElement>() {
+          @Override
+          public int compare(TypeElement left, TypeElement right) {
+            return left.getQualifiedName()
+                .toString()
+                .compareTo(right.getQualifiedName().toString());
+          }
+        });
+
+    final CheckBudget budget = policy.startBudget();
+    final List<TypeElement> heavyEntryPoints = new ArrayList<>();
+    for (TypeElement entryPoint : sortedEntryPoints) {
+      if (budget.isExhausted()) {
+        break;
+      }
+      if (eagerInjectionCount(entryPoint) > maxEagerInjections
+          || graphDepth(entryPoint) > maxGraphDepth) {
+        heavyEntryPoints.add(entryPoint);
+      }
+    }
+
+    final List<DICheckIssue> issues = new ArrayList<>();
+    for (TypeElement entryPoint : heavyEntryPoints) {
+      final Diagnostic.Kind kind = getDiagnosticKind(entryPoint, budget.wasExhausted());
+      if (kind != null) {
+        issues.add(
+            new StartupDICheckIssue(
+                kind,
+                entryPoint,
+                entryPointClassifier.classify(entryPoint),
+                eagerInjectionCount(entryPoint),
+                maxEagerInjections,
+                graphDepth(entryPoint),
+                maxGraphDepth));
+      }
+    }
+    if (budget.wasExhausted()) {
+      issues.add(new BudgetExceededDICheckIssue(issueName, budget.getBudgetMillis()));
+    }
+    return issues;
+  }
+
+  private Diagnostic.Kind getDiagnosticKind(TypeElement entryPoint, boolean truncated) {
+    final Severity severity =
+        policy.getSeverity(elementUtils.getPackageOf(entryPoint).getQualifiedName().toString());
+    if (truncated && severity == Severity.ERROR) {
+      return Diagnostic.Kind.WARNING;
+    }
+    return severity.getDiagnosticKind();
+  }
+
+  /** @return the direct injections of {@code typeElement} and its super classes. */
+  private int eagerInjectionCount(TypeElement typeElement) {
+    final Integer knownCount = eagerInjectionCounts.get(typeElement);
+    if (knownCount != null) {
+      return knownCount;
+    }
+    int count = 0;
+    for (VariableElement field : ElementFilter.fieldsIn(typeElement.getEnclosedElements())) {
+      if (isEagerInjection(field)) {
+        count++;
+      }
+    }
+    final TypeElement superClass = hierarchyIndex.getSuperClass(typeElement);
+    if (superClass != null) {
+      count += eagerInjectionCount(superClass);
+    }
+    eagerInjectionCounts.put(typeElement, count);
+    return count;
+  }
+
+  /**
+   * @return the longest chain of direct dependencies created to inject {@code typeElement}. The
+   *     types of a dependency cycle share the depth of the longest chain going through the cycle,
+   *     so depths don't depend on the order the types are visited in.
+   */
+  private int graphDepth(TypeElement typeElement) {
+    if (!visitIndexes.containsKey(typeElement)) {
+      visitDependencies(typeElement);
+    }
+    return graphDepths.get(typeElement);
+  }
+
+  /**
+   * Visits the dependencies of {@code typeElement} depth first and completes their strongly
+   * connected components (Tarjan's algorithm), so each type is visited once. The depth of a
+   * component is known once all the components it depends on are complete.
+   *
+   * <p>Dependency chains can be as long as the code base, the visits are kept on an explicit stack
+   * rather than the call stack.
+   */
+  private void visitDependencies(TypeElement typeElement) {
+    final Deque<DependencyVisit> visits = new ArrayDeque<>();
+    visits.push(startVisit(typeElement));
+    while (!visits.isEmpty()) {
+      final DependencyVisit visit = visits.peek();
+      if (visit.nextDependency == visit.dependencies.size()) {
+        visits.pop();
+        completeVisit(visit);
+        continue;
+      }
+      final TypeElement dependencyType =
+          asTypeElement(visit.dependencies.get(visit.nextDependency).asType());
+      if (dependencyType != null && !visitIndexes.containsKey(dependencyType)) {
+        // the dependency is read again once its visit is complete
+        visits.push(startVisit(dependencyType));
+        continue;
+      }
+      visit.nextDependency++;
+      if (dependencyType == null) {
+        visit.exitDepth = Math.max(visit.exitDepth, 1);
+        continue;
+      }
+      final Integer dependencyDepth = graphDepths.get(dependencyType);
+      if (dependencyDepth != null) {
+        // a complete component, i.e. not in a cycle with the visited type
+        visit.exitDepth = Math.max(visit.exitDepth, 1 + dependencyDepth);
+      } else {
+        cyclicTypes.add(visit.type);
+        lowLinks.put(visit.type, Math.min(lowLinks.get(visit.type), lowLinks.get(dependencyType)));
+      }
+    }
+  }
+
+  private DependencyVisit startVisit(TypeElement typeElement) {
+    final int visitIndex = visitIndexes.size();
+    visitIndexes.put(typeElement, visitIndex);
+    lowLinks.put(typeElement, visitIndex);
+    visitStack.push(typeElement);
+    return new DependencyVisit(typeElement, visitIndex, eagerDependencies(typeElement));
+  }
+
+  /** Completes the component of the visited type once it is the root of the component. */
+  private void completeVisit(DependencyVisit visit) {
+    exitDepths.put(visit.type, visit.exitDepth);
+    if (lowLinks.get(visit.type) != visit.visitIndex) {
+      return;
+    }
+    final List<TypeElement> component = new ArrayList<>();
+    TypeElement member;
+    do {
+      member = visitStack.pop();
+      component.add(member);
+    } while (member != visit.type);
+    int componentExitDepth = 0;
+    boolean cyclic = false;
+    for (TypeElement componentMember : component) {
+      componentExitDepth = Math.max(componentExitDepth, exitDepths.remove(componentMember));
+      cyclic |= cyclicTypes.remove(componentMember);
+    }
+    // a chain goes through all the other types of a cycle before leaving it
+    final int depth =
+        cyclic ? component.size() - 1 + Math.max(1, componentExitDepth) : componentExitDepth;
+    for (TypeElement componentMember : component) {
+      graphDepths.put(componentMember, depth);
+    }
+  }
+
+  /**
+   * @return the direct dependencies of {@code typeElement}: its injected fields, inherited ones
+   *     included, and the parameters of its {@code @Inject} constructor.
+   */
+  private List<Element> eagerDependencies(TypeElement typeElement) {
+    final List<Element> dependencies = new ArrayList<>();
+    for (ExecutableElement constructor :
+        ElementFilter.constructorsIn(typeElement.getEnclosedElements())) {
+      if (constructor.getAnnotation(Inject.class) != null) {
+        for (VariableElement parameter : constructor.getParameters()) {
+          if (kindClassifier.classify(parameter) == InjectionKind.DIRECT) {
+            dependencies.add(parameter);
+          }
+        }
+      }
+    }
+    TypeElement current = typeElement;
+    while (current != null) {
+      for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+        if (isEagerInjection(field)) {
+          dependencies.add(field);
+        }
+      }
+      current = hierarchyIndex.getSuperClass(current);
+    }
+    return dependencies;
+  }
+
+  private boolean isEagerInjection(VariableElement field) {
+    return field.getAnnotation(Inject.class) != null
+        && kindClassifier.classify(field) == InjectionKind.DIRECT;
+  }
+
+  private TypeElement asTypeElement(TypeMirror type) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+    return (TypeElement) typeUtils.asElement(type);
+  }
+
+  /** A type whose dependencies are being visited, a frame of the explicit stack. */
+  private static final class DependencyVisit {
+
+    private final TypeElement type;
+    private final int visitIndex;
+    private final List<Element> dependencies;
+    private int nextDependency;
+    private int exitDepth;
+
+    private DependencyVisit(TypeElement type, int visitIndex, List<Element> dependencies) {
+      this.type = type;
+      this.visitIndex = visitIndex;
+      this.dependencies = dependencies;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.daemon;
+
+import com.groupon.android.dichecks.model.InjectionSite;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Writes the deltas read by {@link DiChecksDaemon}: the processor writes the deltas of the
+ * compiled sources with the {@code daemon.deltaFile} option, so an IDE or a CLI can compile a few
+ * files and send their deltas to the daemon as is.
+ */
+public class DeltaWriter implements Closeable {
+
+  private final Writer writer;
+
+  public DeltaWriter(@NotNull Writer writer) {
+    this.writer = writer;
+  }
+
+  /**
+   * Writes a delta replacing the contribution of {@code sourceFile}.
+   *
+   * @param declaredTypes the types declared in the file and their super class, {@code null} for a
+   *     direct subclass of {@link Object}.
+   * @param sites the injection sites of the declared types.
+   */
+  public void writeDelta(
+      @NotNull String sourceFile,
+      @NotNull Map<String, String> declaredTypes,
+      @NotNull Collection<InjectionSite> sites)
+      throws IOException {
+    writeLine(DiChecksDaemon.FILE, sourceFile);
+    for (Map.Entry<String, String> declaredType : declaredTypes.entrySet()) {
+      if (declaredType.getValue() == null) {
+        writeLine(DiChecksDaemon.TYPE, declaredType.getKey());
+      } else {
+        writeLine(DiChecksDaemon.TYPE, declaredType.getKey(), declaredType.getValue());
+      }
+    }
+    for (InjectionSite site : sites) {
+      writeLine(
+          DiChecksDaemon.INJECT,
+          site.getOwnerType(),
+          site.getName(),
+          site.getInjectedType(),
+          site.getKind().name(),
+          site.getQualifier() == null ? "" : site.getQualifier(),
+          String.valueOf(site.isSuppressed()),
+          site.getSeverity() == null ? "" : site.getSeverity().name());
+    }
+    writeLine(DiChecksDaemon.END);
+  }
+
+  private void writeLine(String command, String... fields) throws IOException {
+    writer.write(command);
+    for (String field : fields) {
+      writer.write(DiChecksDaemon.SEPARATOR);
+      writer.write(field);
+    }
+    writer.write('\n');
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+}
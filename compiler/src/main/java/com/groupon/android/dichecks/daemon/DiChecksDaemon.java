@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.daemon;
+
+import com.groupon.android.dichecks.checks.common.Severity;
+import com.groupon.android.dichecks.checks.duplicate.DuplicateDICheckIssue;
+import com.groupon.android.dichecks.checks.duplicate.DuplicateInjectionAnalyzer;
+import com.groupon.android.dichecks.export.GraphReader;
+import com.groupon.android.dichecks.model.InjectionKind;
+import com.groupon.android.dichecks.model.InjectionModel;
+import com.groupon.android.dichecks.model.InjectionSite;
+import com.groupon.android.dichecks.processor.CompilerOptions;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Long lived check engine: keeps the injection model of a module in memory and checks the changes
+ * of a few source files incrementally, without running the processor over the whole module.
+ *
+ * <p>The daemon reads commands from stdin (or from a connection on the loopback interface with
+ * {@code --port <port>}) and writes the answers on the same channel. With {@code --graph <file>},
+ * the model starts from a graph exported by the processor (or merged) instead of being empty. The
+ * options of the duplicate check ({@code -A<option>=<value>}, i.e. {@code
+ * -Acom.groupon.android.dichecks.duplicateCheck.severity=warning}) are the ones of the processor,
+ * they give the severity of the sites whose severity was not recorded by the processor.
+ * Commands and answers are lines of tab separated fields:
+ *
+ * <pre>
+ * FILE   sourceFile                starts the delta of a source file, followed by:
+ * TYPE   type [superClass]         a type declared in the file
+ * INJECT owner name injectedType kind [qualifier [suppressed [severity]]]
+ * END                              replaces the contribution of the file, answers affected sites
+ * REMOVE sourceFile                removes the contribution of a file, answers the affected sites
+ * CHECK                            answers all the sites
+ * QUIT
+ * </pre>
+ *
+ * The processor writes the deltas of the sources it compiles with the {@code daemon.deltaFile}
+ * option (see {@link DeltaWriter}). Answers list, for each site, its issues ({@code ISSUE owner
+ * name severity message}) or {@code CLEAR owner name} when it has none, in the order of the
+ * processor, then {@code DONE issueCount}. With {@code --timing}, {@code TIME elapsedMicros}
+ * precedes {@code DONE}. Malformed commands are answered with {@code ERROR message}.
+ */
+public class DiChecksDaemon {
+
+  static final String SEPARATOR = "\t";
+  static final String FILE = "FILE";
+  static final String TYPE = "TYPE";
+  static final String INJECT = "INJECT";
+  static final String END = "END";
+
+  private static final String OPTION_PREFIX = "-A";
+  private static final String OPTION_SEPARATOR = "=";
+
+  private final IncrementalInjectionModel model = new IncrementalInjectionModel();
+  private final Severity defaultSeverity;
+  private boolean timing;
+
+  /** A daemon with the default options of the duplicate check. */
+  public DiChecksDaemon() {
+    this(Collections.<String, String>emptyMap());
+  }
+
+  /**
+   * @param options the options of the processor, the other options are ignored.
+   * @throws IllegalArgumentException if the severity option is not a severity.
+   */
+  public DiChecksDaemon(@NotNull Map<String, String> options) {
+    final String severity = options.get(CompilerOptions.DUPLICATE_INJECTION_IN_HIERARCHY_SEVERITY);
+    if (severity != null) {
+      defaultSeverity = Severity.parse(severity);
+    } else if (!readFlag(options, CompilerOptions.DUPLICATE_INJECTION_IN_HIERARCHY_ENABLED)) {
+      defaultSeverity = Severity.OFF;
+    } else {
+      defaultSeverity =
+          readFlag(options, CompilerOptions.DUPLICATE_INJECTION_IN_HIERARCHY_FAIL_ON_ERROR)
+              ? Severity.ERROR
+              : Severity.WARNING;
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    final Map<String, String> options = new HashMap<>();
+    String graphFile = null;
+    Integer port = null;
+    boolean timing = false;
+    for (int i = 0; i < args.length; i++) {
+      if ("--graph".equals(args[i]) && i + 1 < args.length) {
+        graphFile = args[++i];
+      } else if ("--port".equals(args[i]) && i + 1 < args.length) {
+        port = Integer.parseInt(args[++i]);
+      } else if ("--timing".equals(args[i])) {
+        timing = true;
+      } else if (args[i].startsWith(OPTION_PREFIX) && args[i].contains(OPTION_SEPARATOR)) {
+        final String option = args[i].substring(OPTION_PREFIX.length());
+        final int separatorIndex = option.indexOf(OPTION_SEPARATOR);
+        options.put(option.substring(0, separatorIndex), option.substring(separatorIndex + 1));
+      } else {
+        throw new IllegalArgumentException(
+            "Usage: DiChecksDaemon [--graph file] [--port port] [--timing] [-Aoption=value]...");
+      }
+    }
+    final DiChecksDaemon daemon = new DiChecksDaemon(options);
+    daemon.setTiming(timing);
+    if (graphFile != null) {
+      daemon.load(new File(graphFile));
+    }
+    if (port != null) {
+      try (ServerSocket serverSocket =
+          new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+        daemon.serve(serverSocket);
+      }
+      return;
+    }
+    daemon.serve(
+        new InputStreamReader(System.in, StandardCharsets.UTF_8),
+        new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+  }
+
+  /** @param timing whether the answers include the time spent by the daemon. */
+  public void setTiming(boolean timing) {
+    this.timing = timing;
+  }
+
+  /**
+   * Replaces the model by the graph of {@code graphFile}. The source files sent afterwards take
+   * over the types they declare.
+   */
+  public void load(@NotNull File graphFile) throws IOException {
+    try (GraphReader reader = new GraphReader(new FileInputStream(graphFile))) {
+      model.update(graphFile.getPath(), reader.readModel());
+    }
+  }
+
+  /**
+   * Serves the clients of {@code serverSocket} one at a time, they all share the same model. A
+   * failing connection only ends its client.
+   */
+  public void serve(@NotNull ServerSocket serverSocket) throws IOException {
+    while (true) {
+      final Socket socket = serverSocket.accept();
+      try (Socket connection = socket) {
+        if (!serve(
+            new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8),
+            new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8))) {
+          return;
+        }
+      } catch (IOException e) {
+        System.err.println("Connection lost: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Serves the commands of a client until the end of its stream.
+   *
+   * @return false if the client asked the daemon to quit.
+   */
+  public boolean serve(@NotNull Reader input, @NotNull Writer output) throws IOException {
+    final BufferedReader reader = new BufferedReader(input);
+    final PrintWriter writer = new PrintWriter(output);
+    String sourceFile = null;
+    InjectionModel contribution = null;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      final String[] fields = line.split(SEPARATOR, -1);
+      final long startNanos = System.nanoTime();
+      try {
+        switch (fields[0]) {
+          case FILE:
+            sourceFile = field(fields, 1);
+            contribution = new InjectionModel();
+            break;
+          case TYPE:
+            checkInDelta(contribution);
+            if (fields.length > 2) {
+              contribution.addSuperClass(field(fields, 1), field(fields, 2));
+            } else {
+              contribution.addType(field(fields, 1));
+            }
+            break;
+          case INJECT:
+            checkInDelta(contribution);
+            contribution.addInjectionSite(
+                new InjectionSite(
+                    field(fields, 1),
+                    field(fields, 2),
+                    field(fields, 3),
+                    InjectionKind.valueOf(field(fields, 4)),
+                    fields.length > 5 && !fields[5].isEmpty() ? fields[5] : null,
+                    fields.length > 6 && Boolean.parseBoolean(fields[6]),
+                    fields.length > 7 && !fields[7].isEmpty()
+                        ? Severity.parse(fields[7])
+                        : null));
+            break;
+          case END:
+            checkInDelta(contribution);
+            answer(writer, model.update(sourceFile, contribution), startNanos);
+            sourceFile = null;
+            contribution = null;
+            break;
+          case "REMOVE":
+            answer(writer, model.update(field(fields, 1), null), startNanos);
+            break;
+          case "CHECK":
+            answer(writer, model.getInjectionSites(), startNanos);
+            break;
+          case "QUIT":
+            writer.flush();
+            return false;
+          default:
+            throw new IllegalArgumentException("Unknown command: " + fields[0]);
+        }
+      } catch (IllegalArgumentException e) {
+        writer.println("ERROR" + SEPARATOR + e.getMessage());
+      }
+      writer.flush();
+    }
+    return true;
+  }
+
+  private void answer(PrintWriter writer, Collection<InjectionSite> sites, long startNanos) {
+    final List<DuplicateInjectionAnalyzer.Duplicate> duplicates =
+        defaultSeverity != Severity.OFF
+            ? model.findDuplicates(sites)
+            : Collections.<DuplicateInjectionAnalyzer.Duplicate>emptyList();
+    Collections.sort(duplicates);
+    final List<InjectionSite> sortedSites = new ArrayList<>(sites);
+    Collections.sort(sortedSites);
+    // clients identify a site by its member: a removed site and the site replacing it are one
+    final Set<String> answeredMembers = new HashSet<>();
+    int issueCount = 0;
+    for (DuplicateInjectionAnalyzer.Duplicate duplicate : duplicates) {
+      final InjectionSite site = duplicate.getSite();
+      answeredMembers.add(getMember(site));
+      issueCount++;
+      writer.println(
+          "ISSUE"
+              + SEPARATOR
+              + getMember(site)
+              + SEPARATOR
+              + getSeverity(site).name().toLowerCase(Locale.US)
+              + SEPARATOR
+              + DuplicateDICheckIssue.formatMessage(site, duplicate.getAncestorTypes()));
+    }
+    for (InjectionSite site : sortedSites) {
+      if (answeredMembers.add(getMember(site))) {
+        writer.println("CLEAR" + SEPARATOR + getMember(site));
+      }
+    }
+    // the elapsed time is on its own line: the other lines only depend on the commands
+    if (timing) {
+      writer.println("TIME" + SEPARATOR + (System.nanoTime() - startNanos) / 1000);
+    }
+    writer.println("DONE" + SEPARATOR + issueCount);
+  }
+
+  /** @return the severity recorded for {@code site}, the one of the options if none. */
+  private Severity getSeverity(InjectionSite site) {
+    return site.getSeverity() != null ? site.getSeverity() : defaultSeverity;
+  }
+
+  private static String getMember(InjectionSite site) {
+    return site.getOwnerType() + SEPARATOR + site.getName();
+  }
+
+  /** @return the value of a flag of the processor, the flags are true by default. */
+  private static boolean readFlag(Map<String, String> options, String flagName) {
+    return !options.containsKey(flagName) || Boolean.parseBoolean(options.get(flagName));
+  }
+
+  private static void checkInDelta(InjectionModel contribution) {
+    if (contribution == null) {
+      throw new IllegalArgumentException("Missing FILE command");
+    }
+  }
+
+  private static String field(String[] fields, int index) {
+    if (index >= fields.length || fields[index].isEmpty()) {
+      throw new IllegalArgumentException("Missing field " + index);
+    }
+    return fields[index];
+  }
+}
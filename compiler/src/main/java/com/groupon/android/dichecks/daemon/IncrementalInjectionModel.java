@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.daemon;
+
+import com.groupon.android.dichecks.checks.duplicate.DuplicateInjectionAnalyzer;
+import com.groupon.android.dichecks.model.InjectionModel;
+import com.groupon.android.dichecks.model.InjectionSite;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An {@link InjectionModel} kept in memory and updated one source file at a time.
+ *
+ * <p>Each source file contributes the inheritance edges of the types it declares and their
+ * injection sites, the last file declaring a type owns it. When the contribution of a file changes,
+ * only the sites whose result may change are re-analyzed: the sites sharing a definition with an
+ * added or removed site, and the sites of the subclasses of the types whose super class changed.
+ */
+public class IncrementalInjectionModel {
+
+  private final InjectionModel model = new InjectionModel();
+  private final DuplicateInjectionAnalyzer analyzer = new DuplicateInjectionAnalyzer();
+  private final DuplicateInjectionAnalyzer.SiteIndex siteIndex =
+      new DuplicateInjectionAnalyzer.SiteIndex();
+  private final Map<String, InjectionModel> contributionsByFile = new HashMap<>();
+  private final Map<String, Set<String>> subClassesByType = new HashMap<>();
+  private final Map<String, Set<InjectionSite>> sitesByOwner = new HashMap<>();
+  // the file contributing the edge and the sites of each type, a type is owned by a single file
+  private final Map<String, String> fileByType = new HashMap<>();
+
+  /**
+   * Replaces the contribution of {@code sourceFile}.
+   *
+   * @param contribution the types declared in the file and their injections, {@code null} if the
+   *     file was deleted.
+   * @return the sites whose duplicates may have changed, removed sites included.
+   */
+  public Set<InjectionSite> update(
+      @NotNull String sourceFile, @Nullable InjectionModel contribution) {
+    final Set<String> changedTypes = new HashSet<>();
+    final Set<InjectionSite> affectedSites = new LinkedHashSet<>();
+
+    final InjectionModel previousContribution = contributionsByFile.remove(sourceFile);
+    if (previousContribution != null) {
+      remove(sourceFile, previousContribution, changedTypes, affectedSites);
+    }
+    if (contribution != null) {
+      add(sourceFile, contribution, changedTypes, affectedSites);
+      contributionsByFile.put(sourceFile, contribution);
+    }
+
+    // the ancestors of the subclasses of a changed type may have changed
+    final Deque<String> types = new ArrayDeque<>(changedTypes);
+    final Set<String> visitedTypes = new HashSet<>(changedTypes);
+    while (!types.isEmpty()) {
+      final String type = types.poll();
+      final Set<InjectionSite> ownerSites = sitesByOwner.get(type);
+      if (ownerSites != null) {
+        affectedSites.addAll(ownerSites);
+      }
+      final Set<String> subClasses = subClassesByType.get(type);
+      if (subClasses != null) {
+        for (String subClass : subClasses) {
+          if (visitedTypes.add(subClass)) {
+            types.add(subClass);
+          }
+        }
+      }
+    }
+    return affectedSites;
+  }
+
+  /**
+   * A type declared by {@code sourceFile} that was declared by another file (i.e. it moved, or it
+   * was loaded from a graph file) is taken over: its previous edge and sites are removed from the
+   * model and from the contribution of the other file.
+   */
+  private void add(
+      String sourceFile,
+      InjectionModel contribution,
+      Set<String> changedTypes,
+      Set<InjectionSite> affectedSites) {
+    for (String type : getDeclaredTypes(contribution)) {
+      final String previousFile = fileByType.put(type, sourceFile);
+      if (previousFile != null && !previousFile.equals(sourceFile)) {
+        removeType(type, contributionsByFile.get(previousFile), changedTypes, affectedSites);
+      }
+    }
+    for (Map.Entry<String, String> superClass : contribution.getSuperClasses().entrySet()) {
+      model.addSuperClass(superClass.getKey(), superClass.getValue());
+      Set<String> subClasses = subClassesByType.get(superClass.getValue());
+      if (subClasses == null) {
+        subClasses = new HashSet<>();
+        subClassesByType.put(superClass.getValue(), subClasses);
+      }
+      subClasses.add(superClass.getKey());
+      changedTypes.add(superClass.getKey());
+    }
+    for (InjectionSite site : contribution.getInjectionSites()) {
+      model.addInjectionSite(site);
+      siteIndex.add(site);
+      Set<InjectionSite> ownerSites = sitesByOwner.get(site.getOwnerType());
+      if (ownerSites == null) {
+        ownerSites = new HashSet<>();
+        sitesByOwner.put(site.getOwnerType(), ownerSites);
+      }
+      ownerSites.add(site);
+      affectedSites.addAll(siteIndex.getSitesOfSameDefinition(site));
+    }
+  }
+
+  /** Only the types {@code sourceFile} still owns are removed, the others moved to another file. */
+  private void remove(
+      String sourceFile,
+      InjectionModel contribution,
+      Set<String> changedTypes,
+      Set<InjectionSite> affectedSites) {
+    for (String type : getDeclaredTypes(contribution)) {
+      if (sourceFile.equals(fileByType.get(type))) {
+        fileByType.remove(type);
+        removeType(type, contribution, changedTypes, affectedSites);
+      }
+    }
+  }
+
+  /** Removes the inheritance edge and the sites of {@code type} from the model and its owner. */
+  private void removeType(
+      String type,
+      InjectionModel ownerContribution,
+      Set<String> changedTypes,
+      Set<InjectionSite> affectedSites) {
+    final String superClass = ownerContribution.getSuperClass(type);
+    if (superClass != null) {
+      model.removeSuperClass(type);
+      ownerContribution.removeSuperClass(type);
+      final Set<String> subClasses = subClassesByType.get(superClass);
+      if (subClasses != null) {
+        subClasses.remove(type);
+      }
+      changedTypes.add(type);
+    }
+    final Set<InjectionSite> ownerSites = sitesByOwner.remove(type);
+    if (ownerSites != null) {
+      for (InjectionSite site : ownerSites) {
+        affectedSites.addAll(siteIndex.getSitesOfSameDefinition(site));
+        model.removeInjectionSite(site);
+        siteIndex.remove(site);
+        ownerContribution.removeInjectionSite(site);
+      }
+    }
+  }
+
+  /**
+   * @return the types with an inheritance edge or injection sites in {@code contribution}, and the
+   *     types it only declares: the super classes and injected types are declared elsewhere.
+   */
+  private static Set<String> getDeclaredTypes(InjectionModel contribution) {
+    final Set<String> declaredTypes = new LinkedHashSet<>(contribution.getSuperClasses().keySet());
+    final Set<String> referencedTypes = new HashSet<>(contribution.getSuperClasses().values());
+    for (InjectionSite site : contribution.getInjectionSites()) {
+      declaredTypes.add(site.getOwnerType());
+      referencedTypes.add(site.getInjectedType());
+    }
+    for (String type : contribution.getTypes()) {
+      if (!referencedTypes.contains(type)) {
+        declaredTypes.add(type);
+      }
+    }
+    return declaredTypes;
+  }
+
+  /** @return whether or not {@code site} is part of the model. */
+  public boolean contains(@NotNull InjectionSite site) {
+    final Set<InjectionSite> ownerSites = sitesByOwner.get(site.getOwnerType());
+    return ownerSites != null && ownerSites.contains(site);
+  }
+
+  /** @return the duplicates of {@code sites}, sites that are not part of the model are ignored. */
+  public List<DuplicateInjectionAnalyzer.Duplicate> findDuplicates(
+      @NotNull Collection<InjectionSite> sites) {
+    final List<DuplicateInjectionAnalyzer.Duplicate> duplicates = new ArrayList<>();
+    for (InjectionSite site : sites) {
+      if (contains(site)) {
+        analyzer.findDuplicates(site, model, siteIndex, duplicates);
+      }
+    }
+    return duplicates;
+  }
+
+  public Collection<InjectionSite> getInjectionSites() {
+    return model.getInjectionSites();
+  }
+}
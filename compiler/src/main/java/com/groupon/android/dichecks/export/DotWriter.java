@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.export;
+
+import com.groupon.android.dichecks.model.InjectionKind;
+import com.groupon.android.dichecks.model.InjectionModel;
+import com.groupon.android.dichecks.model.InjectionSite;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Writes an {@link InjectionModel} in the GraphViz DOT format. Injection edges are solid and
+ * labelled with the kind and qualifier, inheritance edges are dashed.
+ */
+public final class DotWriter {
+
+  private DotWriter() {}
+
+  public static void write(@NotNull InjectionModel model, @NotNull Writer writer)
+      throws IOException {
+    writer.write("digraph injections {\n");
+    writer.write("  node [shape=box];\n");
+    for (String type : model.getTypes()) {
+      writer.write("  " + quote(type) + ";\n");
+    }
+    for (Map.Entry<String, String> superClass : model.getSuperClasses().entrySet()) {
+      writer.write(
+          "  "
+              + quote(superClass.getKey())
+              + " -> "
+              + quote(superClass.getValue())
+              + " [style=dashed, arrowhead=empty];\n");
+    }
+    for (InjectionSite site : model.getInjectionSites()) {
+      String label = site.getName();
+      if (site.getKind() != InjectionKind.DIRECT) {
+        label += " " + site.getKind().name().toLowerCase(Locale.US);
+      }
+      if (site.getQualifier() != null) {
+        label += " @Named(" + site.getQualifier() + ")";
+      }
+      writer.write(
+          "  "
+              + quote(site.getOwnerType())
+              + " -> "
+              + quote(site.getInjectedType())
+              + " [label="
+              + quote(label)
+              + "];\n");
+    }
+    writer.write("}\n");
+    writer.flush();
+  }
+
+  private static String quote(String id) {
+    return '"' + id.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.export;
+
+import com.groupon.android.dichecks.checks.duplicate.HoistingAnalyzer;
+import com.groupon.android.dichecks.model.InjectionModel;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Merges the per module graph files written by the processor into a single app wide graph.
+ *
+ * <p>Each graph file is sorted, the merge is a streaming k-way sort-merge that drops duplicate
+ * records: it runs in linear time in the total number of records (times {@code log(k)} for k
+ * files) and only keeps one record per input file in memory.
+ *
+ * <p>Usage: {@code GraphMerger -o merged.digraph [--dot merged.dot] [--hoisting minSubclasses]
+ * module1.digraph module2.digraph ...}, the hoisting candidates of the merged graph (see {@link
+ * HoistingAnalyzer}) are printed on the standard output.
+ */
+public final class GraphMerger {
+
+  private GraphMerger() {}
+
+  /**
+   * Merges {@code inputs} into {@code output}. The readers and the writer are not closed.
+   *
+   * @throws IOException if an input can't be read or isn't sorted.
+   */
+  public static void merge(@NotNull List<GraphReader> inputs, @NotNull GraphWriter output)
+      throws IOException {
+    final PriorityQueue<Cursor> cursors = new PriorityQueue<>(Math.max(1, inputs.size()));
+    for (GraphReader input : inputs) {
+      final Cursor cursor = new Cursor(input);
+      if (cursor.advance()) {
+        cursors.add(cursor);
+      }
+    }
+
+    GraphRecord lastRecord = null;
+    while (!cursors.isEmpty()) {
+      final Cursor cursor = cursors.poll();
+      if (!cursor.current.equals(lastRecord)) {
+        output.write(cursor.current);
+        lastRecord = cursor.current;
+      }
+      if (cursor.advance()) {
+        cursors.add(cursor);
+      }
+    }
+    output.flush();
+  }
+
+  public static void main(String[] args) throws IOException {
+    File output = null;
+    File dotOutput = null;
+    int hoistingMinSubclasses = 0;
+    final List<File> inputs = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if ("-o".equals(args[i]) && i + 1 < args.length) {
+        output = new File(args[++i]);
+      } else if ("--dot".equals(args[i]) && i + 1 < args.length) {
+        dotOutput = new File(args[++i]);
+      } else if ("--hoisting".equals(args[i]) && i + 1 < args.length) {
+        hoistingMinSubclasses = Integer.parseInt(args[++i]);
+      } else {
+        inputs.add(new File(args[i]));
+      }
+    }
+    if (output == null || inputs.isEmpty()) {
+      System.err.println(
+          "usage: GraphMerger -o <merged graph> [--dot <merged dot>] [--hoisting <min subclasses>]"
+              + " <graph file>...");
+      System.exit(1);
+      return;
+    }
+
+    final List<GraphReader> readers = new ArrayList<>();
+    try (GraphWriter writer = new GraphWriter(new FileOutputStream(output))) {
+      for (File input : inputs) {
+        readers.add(new GraphReader(new FileInputStream(input)));
+      }
+      merge(readers, writer);
+    } finally {
+      for (GraphReader reader : readers) {
+        reader.close();
+      }
+    }
+
+    if (dotOutput == null && hoistingMinSubclasses <= 0) {
+      return;
+    }
+    final InjectionModel model;
+    try (GraphReader reader = new GraphReader(new FileInputStream(output))) {
+      model = reader.readModel();
+    }
+    if (dotOutput != null) {
+      try (Writer writer =
+          new OutputStreamWriter(new FileOutputStream(dotOutput), StandardCharsets.UTF_8)) {
+        DotWriter.write(model, writer);
+      }
+    }
+    if (hoistingMinSubclasses > 0) {
+      for (HoistingAnalyzer.Candidate candidate :
+          new HoistingAnalyzer(hoistingMinSubclasses).analyze(model)) {
+        System.out.println(candidate.formatMessage());
+      }
+    }
+  }
+
+  private static final class Cursor implements Comparable<Cursor> {
+
+    private final GraphReader reader;
+    private GraphRecord current;
+
+    private Cursor(GraphReader reader) {
+      this.reader = reader;
+    }
+
+    private boolean advance() throws IOException {
+      final GraphRecord next = reader.next();
+      if (next != null && current != null && current.compareTo(next) > 0) {
+        throw new IOException("Graph file is not sorted: " + next + " after " + current);
+      }
+      current = next;
+      return next != null;
+    }
+
+    @Override
+    public int compareTo(@NotNull Cursor other) {
+      return current.compareTo(other.current);
+    }
+  }
+}
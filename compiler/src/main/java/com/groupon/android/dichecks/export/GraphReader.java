@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.export;
+
+import com.groupon.android.dichecks.model.InjectionModel;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Streams the {@link GraphRecord}s of a file written by {@link GraphWriter}. Files of a newer
+ * version are accepted: records with an unknown tag are skipped using their length prefix so newer
+ * files can still be read by older tools.
+ */
+public class GraphReader implements Closeable {
+
+  private final DataInputStream in;
+
+  public GraphReader(@NotNull InputStream inputStream) throws IOException {
+    in = new DataInputStream(new BufferedInputStream(inputStream));
+    if (in.readInt() != GraphWriter.MAGIC) {
+      throw new IOException("Not a DI checks graph file.");
+    }
+    final short version = in.readShort();
+    if (version < 1) {
+      throw new IOException("Unsupported DI checks graph file version: " + version);
+    }
+  }
+
+  /** @return the next record or {@code null} at the end of the stream. */
+  @Nullable
+  public GraphRecord next() throws IOException {
+    while (true) {
+      final int length;
+      try {
+        length = in.readInt();
+      } catch (EOFException e) {
+        return null;
+      }
+      if (length < 2) {
+        throw new IOException("Corrupted DI checks graph file, record length: " + length);
+      }
+      final byte tag = in.readByte();
+      if (tag < GraphRecord.TAG_TYPE || tag > GraphRecord.TAG_DEFINED_TYPE) {
+        skipFully(length - 1);
+        continue;
+      }
+      final String[] fields = new String[in.readUnsignedByte()];
+      for (int i = 0; i < fields.length; i++) {
+        fields[i] = in.readBoolean() ? in.readUTF() : null;
+      }
+      return new GraphRecord(tag, fields);
+    }
+  }
+
+  private void skipFully(int byteCount) throws IOException {
+    int remaining = byteCount;
+    while (remaining > 0) {
+      final int skipped = in.skipBytes(remaining);
+      if (skipped <= 0) {
+        throw new EOFException();
+      }
+      remaining -= skipped;
+    }
+  }
+
+  /** Reads all the remaining records of the stream into a model. */
+  public InjectionModel readModel() throws IOException {
+    final InjectionModel model = new InjectionModel();
+    GraphRecord graphRecord;
+    while ((graphRecord = next()) != null) {
+      graphRecord.addTo(model);
+    }
+    return model;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.export;
+
+import com.groupon.android.dichecks.checks.common.Severity;
+import com.groupon.android.dichecks.model.InjectionKind;
+import com.groupon.android.dichecks.model.InjectionModel;
+import com.groupon.android.dichecks.model.InjectionSite;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A single record of the graph file format. Records are totally ordered by tag first and fields
+ * second, graph files are always written in that order so they can be merged with a single
+ * sort-merge pass.
+ *
+ * @see GraphWriter
+ */
+public final class GraphRecord implements Comparable<GraphRecord> {
+
+  /** A type of the model, fields: [name]. */
+  public static final byte TAG_TYPE = 1;
+  /** An inheritance edge, fields: [type, superClass]. */
+  public static final byte TAG_SUPER_CLASS = 2;
+  /**
+   * An injection edge, fields: [ownerType, name, injectedType, kind, qualifier, suppressed,
+   * severity]. The suppressed and severity fields were added after the first version, a missing
+   * field means not suppressed and an unknown severity.
+   */
+  public static final byte TAG_INJECTION = 3;
+  /** A type defined by the analyzed code rather than by a library, fields: [name]. */
+  public static final byte TAG_DEFINED_TYPE = 4;
+
+  private final byte tag;
+  private final String[] fields;
+
+  public GraphRecord(byte tag, @NotNull String... fields) {
+    this.tag = tag;
+    this.fields = fields;
+  }
+
+  public byte getTag() {
+    return tag;
+  }
+
+  /** @return the fields of this record, an absent field (ex: no qualifier) is {@code null}. */
+  public String[] getFields() {
+    return fields.clone();
+  }
+
+  String getField(int index) {
+    return fields[index];
+  }
+
+  int getFieldCount() {
+    return fields.length;
+  }
+
+  /** @return the records of {@code model}, sorted. */
+  public static List<GraphRecord> fromModel(@NotNull InjectionModel model) {
+    final List<GraphRecord> records = new ArrayList<>();
+    for (String type : model.getTypes()) {
+      records.add(new GraphRecord(TAG_TYPE, type));
+    }
+    for (Map.Entry<String, String> superClass : model.getSuperClasses().entrySet()) {
+      records.add(new GraphRecord(TAG_SUPER_CLASS, superClass.getKey(), superClass.getValue()));
+    }
+    for (InjectionSite site : model.getInjectionSites()) {
+      records.add(
+          new GraphRecord(
+              TAG_INJECTION,
+              site.getOwnerType(),
+              site.getName(),
+              site.getInjectedType(),
+              site.getKind().name(),
+              site.getQualifier(),
+              String.valueOf(site.isSuppressed()),
+              site.getSeverity() != null ? site.getSeverity().name() : null));
+    }
+    for (String type : model.getDefinedTypes()) {
+      records.add(new GraphRecord(TAG_DEFINED_TYPE, type));
+    }
+    Collections.sort(records);
+    return records;
+  }
+
+  /** Adds this record to {@code model}. Unknown records are ignored. */
+  public void addTo(@NotNull InjectionModel model) {
+    switch (tag) {
+      case TAG_TYPE:
+        model.addType(fields[0]);
+        break;
+      case TAG_SUPER_CLASS:
+        model.addSuperClass(fields[0], fields[1]);
+        break;
+      case TAG_INJECTION:
+        model.addInjectionSite(
+            new InjectionSite(
+                fields[0],
+                fields[1],
+                fields[2],
+                InjectionKind.valueOf(fields[3]),
+                fields[4],
+                fields.length > 5 && Boolean.parseBoolean(fields[5]),
+                fields.length > 6 && fields[6] != null ? Severity.valueOf(fields[6]) : null));
+        break;
+      case TAG_DEFINED_TYPE:
+        model.addDefinedType(fields[0]);
+        break;
+      default:
+        break;
+    }
+  }
+
+  @Override
+  public int compareTo(@NotNull GraphRecord other) {
+    if (tag != other.tag) {
+      return tag < other.tag ? -1 : 1;
+    }
+    final int length = Math.min(fields.length, other.fields.length);
+    for (int i = 0; i < length; i++) {
+      final int result = compareFields(fields[i], other.fields[i]);
+      if (result != 0) {
+        return result;
+      }
+    }
+    return fields.length - other.fields.length;
+  }
+
+  private static int compareFields(String field1, String field2) {
+    if (field1 == null) {
+      return field2 == null ? 0 : -1;
+    }
+    return field2 == null ? 1 : field1.compareTo(field2);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof GraphRecord
+        && tag == ((GraphRecord) obj).tag
+        && Arrays.equals(fields, ((GraphRecord) obj).fields);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * tag + Arrays.hashCode(fields);
+  }
+
+  @Override
+  public String toString() {
+    return tag + Arrays.toString(fields);
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.export;
+
+import com.groupon.android.dichecks.model.InjectionModel;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Streams {@link GraphRecord}s in the binary graph format:
+ *
+ * <pre>
+ * file    := MAGIC VERSION record*
+ * record  := length:int tag:byte fieldCount:byte field*   (length counts the bytes after itself)
+ * field   := present:boolean [value:modified-UTF-8]
+ * </pre>
+ *
+ * Records must be written in their natural order, which is what {@link GraphMerger} relies on.
+ *
+ * <p>The version is only increased by backward compatible changes, i.e. new record tags or new
+ * fields at the end of a record: readers accept the files of any version from 1 on, skip the
+ * records they don't know and ignore the extra fields.
+ */
+public class GraphWriter implements Closeable {
+
+  static final int MAGIC = 0x44494752; // "DIGR"
+  static final short VERSION = 1;
+
+  private final DataOutputStream out;
+  private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+  private final DataOutputStream record = new DataOutputStream(recordBuffer);
+  private GraphRecord lastRecord;
+
+  public GraphWriter(@NotNull OutputStream outputStream) throws IOException {
+    out = new DataOutputStream(new BufferedOutputStream(outputStream));
+    out.writeInt(MAGIC);
+    out.writeShort(VERSION);
+  }
+
+  public void write(@NotNull InjectionModel model) throws IOException {
+    for (GraphRecord graphRecord : GraphRecord.fromModel(model)) {
+      write(graphRecord);
+    }
+  }
+
+  /**
+   * Writes a single record.
+   *
+   * @throws IllegalArgumentException if {@code graphRecord} is lower than the last written record.
+   */
+  public void write(@NotNull GraphRecord graphRecord) throws IOException {
+    if (lastRecord != null && lastRecord.compareTo(graphRecord) > 0) {
+      throw new IllegalArgumentException(
+          "Records must be written in order: " + graphRecord + " after " + lastRecord);
+    }
+    lastRecord = graphRecord;
+
+    recordBuffer.reset();
+    record.writeByte(graphRecord.getTag());
+    record.writeByte(graphRecord.getFieldCount());
+    for (int i = 0; i < graphRecord.getFieldCount(); i++) {
+      final String field = graphRecord.getField(i);
+      record.writeBoolean(field != null);
+      if (field != null) {
+        record.writeUTF(field);
+      }
+    }
+    out.writeInt(recordBuffer.size());
+    recordBuffer.writeTo(out);
+  }
+
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
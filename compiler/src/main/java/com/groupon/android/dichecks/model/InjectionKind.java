@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.model;
+
+/**
+ * How an injected dependency is obtained by the class that injects it. Kinds are declared from the
+ * least to the most specific.
+ */
+public enum InjectionKind {
+  /** The target is created <i>before</i> it is required. */
+  DIRECT,
+  /** A new target is created each time {@code Provider.get()} is called. */
+  PROVIDER,
+  /** The target is created just before it is needed and then reused. */
+  LAZY
+}
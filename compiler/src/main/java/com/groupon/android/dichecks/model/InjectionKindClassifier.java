@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.model;
+
+import com.groupon.android.dichecks.model.framework.DaggerAdapter;
+import com.groupon.android.dichecks.model.framework.FrameworkAdapter;
+import com.groupon.android.dichecks.model.framework.JavaxInjectAdapter;
+import com.groupon.android.dichecks.model.framework.KotlinAdapter;
+import com.groupon.android.dichecks.model.framework.ToothpickAdapter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Determines the {@link InjectionKind} of an injected element.
+ *
+ * <p>The wrapper types described by the {@link FrameworkAdapter}s are resolved once into a table
+ * of {@link TypeElement} to kind. Every other type is classified the first time it is seen, from
+ * the kinds of its direct super types, and added to the table: classifying an element is then a
+ * single lookup.
+ *
+ * <p>The table is keyed by element identity: {@link #clear()} must be called at the start of each
+ * round, javac 8 creates new elements for every round.
+ */
+public class InjectionKindClassifier {
+
+  public static final List<FrameworkAdapter> DEFAULT_FRAMEWORK_ADAPTERS =
+      Collections.unmodifiableList(
+          Arrays.asList(
+              new JavaxInjectAdapter(),
+              new DaggerAdapter(),
+              new ToothpickAdapter(),
+              new KotlinAdapter()));
+
+  private final Elements elementUtils;
+  private final Types typeUtils;
+  private final List<FrameworkAdapter> frameworkAdapters;
+  private Map<TypeElement, InjectionKind> kindsByType;
+
+  public InjectionKindClassifier(ProcessingEnvironment processingEnv) {
+    this(processingEnv, DEFAULT_FRAMEWORK_ADAPTERS);
+  }
+
+  public InjectionKindClassifier(
+      ProcessingEnvironment processingEnv, List<FrameworkAdapter> frameworkAdapters) {
+    typeUtils = processingEnv.getTypeUtils();
+    elementUtils = processingEnv.getElementUtils();
+    this.frameworkAdapters = frameworkAdapters;
+  }
+
+  /** Forgets the types classified so far, they are classified again from the next call on. */
+  public void clear() {
+    kindsByType = null;
+  }
+
+  @NotNull
+  public InjectionKind classify(Element element) {
+    final TypeMirror type = element.asType();
+    if (type.getKind() != TypeKind.DECLARED) {
+      return InjectionKind.DIRECT;
+    }
+    return classify((TypeElement) ((DeclaredType) type).asElement());
+  }
+
+  private InjectionKind classify(TypeElement typeElement) {
+    if (kindsByType == null) {
+      kindsByType = resolveWrapperTypes();
+    }
+    InjectionKind kind = kindsByType.get(typeElement);
+    if (kind == null) {
+      kind = InjectionKind.DIRECT;
+      for (TypeMirror superType : typeUtils.directSupertypes(typeElement.asType())) {
+        final InjectionKind superKind = classify((TypeElement) typeUtils.asElement(superType));
+        // a type that is both a Lazy and a Provider is a Lazy (ex: dagger's DoubleCheck)
+        if (superKind.ordinal() > kind.ordinal()) {
+          kind = superKind;
+        }
+      }
+      kindsByType.put(typeElement, kind);
+    }
+    return kind;
+  }
+
+  /**
+   * Wrapper types are resolved lazily, source types of the compilation can't be resolved before
+   * the first round.
+   */
+  private Map<TypeElement, InjectionKind> resolveWrapperTypes() {
+    final Map<TypeElement, InjectionKind> wrapperKinds = new IdentityHashMap<>();
+    for (FrameworkAdapter frameworkAdapter : frameworkAdapters) {
+      for (Map.Entry<String, InjectionKind> wrapperKind :
+          frameworkAdapter.getWrapperKinds().entrySet()) {
+        final TypeElement wrapperType = elementUtils.getTypeElement(wrapperKind.getKey());
+        // frameworks that are not in the classpath are ignored
+        if (wrapperType != null) {
+          wrapperKinds.put(wrapperType, wrapperKind.getValue());
+        }
+      }
+    }
+    return wrapperKinds;
+  }
+
+  /**
+   * Return the type parameter of a class that extends {@code Lazy} or {@code Provider}.
+   *
+   * <ul>
+   *   <li>Return parameter type Foo for, Lazy&lt;Foo&gt;.
+   *   <li>Return FooProvider if no parameter type.
+   *   <li>Return null, if we are unable to determine any type/kind of element.
+   * </ul>
+   *
+   * @param element
+   * @return the TypeElement for declared type.
+   */
+  @Nullable
+  public TypeElement getKindParameter(Element element) {
+    final TypeMirror type = element.asType();
+    if (TypeKind.DECLARED == type.getKind()) {
+      final List<? extends TypeMirror> typeMirrors = ((DeclaredType) type).getTypeArguments();
+      if (typeMirrors.size() == 1) {
+        return (TypeElement) typeUtils.asElement(typeUtils.erasure(typeMirrors.get(0)));
+      } else {
+        return (TypeElement) typeUtils.asElement(element.asType());
+      }
+    }
+    return null;
+  }
+}
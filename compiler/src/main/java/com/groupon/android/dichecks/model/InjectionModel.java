@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Compiler independent model of the injections of a module: the types, the injection edges between
+ * them and the inheritance edges (only the super class is tracked, interfaces are not relevant for
+ * field injection).
+ *
+ * <p>Types are identified by their fully qualified name so models built by different compilations
+ * can be merged.
+ */
+public class InjectionModel {
+
+  private final Set<String> types = new LinkedHashSet<>();
+  private final Map<String, String> superClasses = new LinkedHashMap<>();
+  private final Set<InjectionSite> injectionSites = new LinkedHashSet<>();
+  private final Set<String> definedTypes = new LinkedHashSet<>();
+
+  public void addType(@NotNull String type) {
+    types.add(type);
+  }
+
+  public void addSuperClass(@NotNull String type, @NotNull String superClass) {
+    types.add(type);
+    types.add(superClass);
+    superClasses.put(type, superClass);
+  }
+
+  public void addInjectionSite(@NotNull InjectionSite injectionSite) {
+    types.add(injectionSite.getOwnerType());
+    types.add(injectionSite.getInjectedType());
+    injectionSites.add(injectionSite);
+  }
+
+  /**
+   * Records that {@code type} is defined by the analyzed code, unlike the library types of the
+   * hierarchies. The type is not added to the types of the model.
+   */
+  public void addDefinedType(@NotNull String type) {
+    definedTypes.add(type);
+  }
+
+  /** Removes the inheritance edge of {@code type}, the type itself is kept. */
+  public void removeSuperClass(@NotNull String type) {
+    superClasses.remove(type);
+  }
+
+  /** Removes an injection edge, the types it links are kept. */
+  public void removeInjectionSite(@NotNull InjectionSite injectionSite) {
+    injectionSites.remove(injectionSite);
+  }
+
+  /** Adds all the types and edges of {@code other} to this model. */
+  public void addAll(@NotNull InjectionModel other) {
+    types.addAll(other.types);
+    superClasses.putAll(other.superClasses);
+    injectionSites.addAll(other.injectionSites);
+    definedTypes.addAll(other.definedTypes);
+  }
+
+  public boolean hasSuperClass(@NotNull String type) {
+    return superClasses.containsKey(type);
+  }
+
+  @Nullable
+  public String getSuperClass(@NotNull String type) {
+    return superClasses.get(type);
+  }
+
+  public boolean isDefined(@NotNull String type) {
+    return definedTypes.contains(type);
+  }
+
+  /** @return the types defined by the analyzed code. */
+  public Set<String> getDefinedTypes() {
+    return Collections.unmodifiableSet(definedTypes);
+  }
+
+  public Set<String> getTypes() {
+    return Collections.unmodifiableSet(types);
+  }
+
+  /** @return the inheritance edges as a map of type to super class. */
+  public Map<String, String> getSuperClasses() {
+    return Collections.unmodifiableMap(superClasses);
+  }
+
+  public Collection<InjectionSite> getInjectionSites() {
+    return Collections.unmodifiableCollection(injectionSites);
+  }
+
+  public boolean isEmpty() {
+    return types.isEmpty() && definedTypes.isEmpty();
+  }
+}
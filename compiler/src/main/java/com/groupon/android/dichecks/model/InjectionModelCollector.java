@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.model;
+
+import com.groupon.android.dichecks.checks.common.CheckPolicy;
+import com.groupon.android.dichecks.checks.common.TypeHierarchyIndex;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.inject.Named;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Builds an {@link InjectionModel} out of the injected elements found by the compiler. The sites of
+ * the members annotated with {@code @SuppressWarnings(suppressionName)} are recorded as suppressed
+ * so the consumers of the model, exported or not, report the same issues as the processor. For the
+ * same reason, the sites record the severity of the duplicate check in their package.
+ */
+public class InjectionModelCollector {
+
+  private final InjectionModel model = new InjectionModel();
+  // javac creates a new string for each name, the model keeps a single copy of each name
+  private final Map<String, String> names = new HashMap<>();
+  private final InjectionKindClassifier kindClassifier;
+  private final TypeHierarchyIndex hierarchyIndex;
+  private final String suppressionName;
+  private final CheckPolicy policy;
+
+  public InjectionModelCollector(
+      ProcessingEnvironment processingEnv, InjectionKindClassifier kindClassifier) {
+    this(kindClassifier, new TypeHierarchyIndex(processingEnv.getTypeUtils()));
+  }
+
+  public InjectionModelCollector(
+      InjectionKindClassifier kindClassifier, TypeHierarchyIndex hierarchyIndex) {
+    this(kindClassifier, hierarchyIndex, null);
+  }
+
+  /** @param suppressionName the name suppressing the duplicate check, {@code null} if none. */
+  public InjectionModelCollector(
+      InjectionKindClassifier kindClassifier,
+      TypeHierarchyIndex hierarchyIndex,
+      @Nullable String suppressionName) {
+    this(kindClassifier, hierarchyIndex, suppressionName, null);
+  }
+
+  /** @param policy the policy of the duplicate check, {@code null} to record no severity. */
+  public InjectionModelCollector(
+      InjectionKindClassifier kindClassifier,
+      TypeHierarchyIndex hierarchyIndex,
+      @Nullable String suppressionName,
+      @Nullable CheckPolicy policy) {
+    this.kindClassifier = kindClassifier;
+    this.hierarchyIndex = hierarchyIndex;
+    this.suppressionName = suppressionName;
+    this.policy = policy;
+  }
+
+  public void addInjectedElements(Set<? extends Element> injectedElements) {
+    for (Element injectedElement : injectedElements) {
+      addInjectedElement(injectedElement);
+    }
+  }
+
+  /**
+   * Records {@code type} and its nested types as defined by the compiled code, whether they inject
+   * anything or not: an ancestor without injections is still a place to hoist injections to.
+   */
+  public void addDefinedTypes(TypeElement type) {
+    model.addDefinedType(name(type.getQualifiedName().toString()));
+    for (TypeElement memberType : ElementFilter.typesIn(type.getEnclosedElements())) {
+      addDefinedTypes(memberType);
+    }
+  }
+
+  /**
+   * Adds the injection site of {@code injectedElement} and the hierarchy of its owner to the model.
+   * Members of local and anonymous classes are skipped: these classes have no qualified name to
+   * identify them in the model (javac doesn't report them to annotation processors anyway).
+   *
+   * @return the injection site added or {@code null} if the kind of injection can't be determined
+   *     or the owner of the element is a local or anonymous class.
+   */
+  @Nullable
+  public InjectionSite addInjectedElement(Element injectedElement) {
+    final TypeElement ownerType = (TypeElement) injectedElement.getEnclosingElement();
+    if (ownerType.getNestingKind() == NestingKind.LOCAL
+        || ownerType.getNestingKind() == NestingKind.ANONYMOUS) {
+      return null;
+    }
+    final InjectionKind kind = kindClassifier.classify(injectedElement);
+    final String injectedType;
+    if (kind == InjectionKind.DIRECT) {
+      injectedType = name(injectedElement.asType().toString());
+    } else {
+      final TypeElement kindParameter = kindClassifier.getKindParameter(injectedElement);
+      if (kindParameter == null) {
+        return null;
+      }
+      injectedType = name(kindParameter.asType().toString());
+    }
+
+    final Named named = injectedElement.getAnnotation(Named.class);
+    final InjectionSite site =
+        new InjectionSite(
+            name(ownerType.getQualifiedName().toString()),
+            name(injectedElement.getSimpleName().toString()),
+            injectedType,
+            kind,
+            named != null ? name(named.value()) : null,
+            isSuppressed(injectedElement),
+            policy != null ? policy.getSeverity(getPackageName(ownerType)) : null);
+    model.addInjectionSite(site);
+    addSuperClasses(ownerType);
+    return site;
+  }
+
+  private boolean isSuppressed(Element injectedElement) {
+    final SuppressWarnings suppressAnnotation =
+        injectedElement.getAnnotation(SuppressWarnings.class);
+    return suppressionName != null
+        && suppressAnnotation != null
+        && Arrays.asList(suppressAnnotation.value()).contains(suppressionName);
+  }
+
+  private static String getPackageName(Element element) {
+    Element current = element;
+    while (!(current instanceof PackageElement)) {
+      current = current.getEnclosingElement();
+    }
+    return ((PackageElement) current).getQualifiedName().toString();
+  }
+
+  /** Records the inheritance edges of {@code typeElement} up to (excluding) {@link Object}. */
+  private void addSuperClasses(TypeElement typeElement) {
+    TypeElement current = typeElement;
+    while (current != null) {
+      final String currentName = name(current.getQualifiedName().toString());
+      if (model.hasSuperClass(currentName)) {
+        return;
+      }
+      final TypeElement superClass = hierarchyIndex.getSuperClass(current);
+      if (superClass == null) {
+        model.addType(currentName);
+        return;
+      }
+      model.addSuperClass(currentName, name(superClass.getQualifiedName().toString()));
+      current = superClass;
+    }
+  }
+
+  private String name(String name) {
+    final String existingName = names.get(name);
+    if (existingName != null) {
+      return existingName;
+    }
+    names.put(name, name);
+    return name;
+  }
+
+  public InjectionModel getModel() {
+    return model;
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.model;
+
+import com.groupon.android.dichecks.checks.common.Severity;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An injection edge of the model: {@code ownerType} injects {@code injectedType} through the member
+ * {@code name}.
+ *
+ * <p>For provider and lazy injections {@code injectedType} is the wrapped type (i.e. {@code Foo}
+ * for {@code Lazy<Foo>}), the wrapper is described by {@link #getKind()}.
+ *
+ * <p>A site is suppressed when the duplicate check is disabled on its member with {@code
+ * SuppressWarnings}. Suppressed sites stay in the model, only the checks ignore them. Likewise, the
+ * severity the duplicate check gives to the package of the site is recorded, {@code null} if the
+ * front end doesn't know it (i.e. the bytecode scanner).
+ *
+ * <p>Sites are ordered by owner type and name, which gives a stable order to the issues reported.
+ */
+public final class InjectionSite implements Comparable<InjectionSite> {
+
+  private final String ownerType;
+  private final String name;
+  private final String injectedType;
+  private final InjectionKind kind;
+  private final String qualifier;
+  private final boolean suppressed;
+  private final Severity severity;
+
+  public InjectionSite(
+      @NotNull String ownerType,
+      @NotNull String name,
+      @NotNull String injectedType,
+      @NotNull InjectionKind kind,
+      @Nullable String qualifier) {
+    this(ownerType, name, injectedType, kind, qualifier, false);
+  }
+
+  public InjectionSite(
+      @NotNull String ownerType,
+      @NotNull String name,
+      @NotNull String injectedType,
+      @NotNull InjectionKind kind,
+      @Nullable String qualifier,
+      boolean suppressed) {
+    this(ownerType, name, injectedType, kind, qualifier, suppressed, null);
+  }
+
+  public InjectionSite(
+      @NotNull String ownerType,
+      @NotNull String name,
+      @NotNull String injectedType,
+      @NotNull InjectionKind kind,
+      @Nullable String qualifier,
+      boolean suppressed,
+      @Nullable Severity severity) {
+    this.ownerType = ownerType;
+    this.name = name;
+    this.injectedType = injectedType;
+    this.kind = kind;
+    this.qualifier = qualifier;
+    this.suppressed = suppressed;
+    this.severity = severity;
+  }
+
+  public String getOwnerType() {
+    return ownerType;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getInjectedType() {
+    return injectedType;
+  }
+
+  public InjectionKind getKind() {
+    return kind;
+  }
+
+  @Nullable
+  public String getQualifier() {
+    return qualifier;
+  }
+
+  public boolean isSuppressed() {
+    return suppressed;
+  }
+
+  /** @return the severity of the duplicate issues of this site, {@code null} if not recorded. */
+  @Nullable
+  public Severity getSeverity() {
+    return severity;
+  }
+
+  @Override
+  public int compareTo(@NotNull InjectionSite other) {
+    int result = ownerType.compareTo(other.ownerType);
+    if (result == 0) {
+      result = name.compareTo(other.name);
+    }
+    if (result == 0) {
+      result = injectedType.compareTo(other.injectedType);
+    }
+    if (result == 0) {
+      result = kind.compareTo(other.kind);
+    }
+    if (result == 0 && qualifier != other.qualifier) {
+      if (qualifier == null || other.qualifier == null) {
+        result = qualifier == null ? -1 : 1;
+      } else {
+        result = qualifier.compareTo(other.qualifier);
+      }
+    }
+    if (result == 0 && suppressed != other.suppressed) {
+      result = suppressed ? 1 : -1;
+    }
+    if (result == 0 && severity != other.severity) {
+      if (severity == null || other.severity == null) {
+        result = severity == null ? -1 : 1;
+      } else {
+        result = severity.compareTo(other.severity);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof InjectionSite)) {
+      return false;
+    }
+    final InjectionSite other = (InjectionSite) obj;
+    return ownerType.equals(other.ownerType)
+        && name.equals(other.name)
+        && injectedType.equals(other.injectedType)
+        && kind == other.kind
+        && (qualifier == null ? other.qualifier == null : qualifier.equals(other.qualifier))
+        && suppressed == other.suppressed
+        && severity == other.severity;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = ownerType.hashCode();
+    result = 31 * result + name.hashCode();
+    result = 31 * result + injectedType.hashCode();
+    result = 31 * result + kind.hashCode();
+    result = 31 * result + (qualifier != null ? qualifier.hashCode() : 0);
+    result = 31 * result + (suppressed ? 1 : 0);
+    result = 31 * result + (severity != null ? severity.hashCode() : 0);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return ownerType
+        + "#"
+        + name
+        + " -> "
+        + kind
+        + " "
+        + injectedType
+        + (qualifier != null ? "(named='" + qualifier + "')" : "")
+        + (suppressed ? " (suppressed)" : "")
+        + (severity != null ? " (" + severity + ")" : "");
+  }
+}
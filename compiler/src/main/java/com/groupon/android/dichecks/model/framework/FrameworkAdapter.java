@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.model.framework;
+
+import com.groupon.android.dichecks.model.InjectionKind;
+import java.util.Map;
+
+/**
+ * Describes the wrapper types a dependency injection framework uses for non direct injections
+ * (ex: {@code dagger.Lazy}).
+ *
+ * @see com.groupon.android.dichecks.model.InjectionKindClassifier
+ */
+public interface FrameworkAdapter {
+
+  /**
+   * @return the fully qualified names of the wrapper types of the framework and the kind of
+   *     injection they denote. Subtypes of these types are classified as their closest wrapper.
+   */
+  Map<String, InjectionKind> getWrapperKinds();
+}
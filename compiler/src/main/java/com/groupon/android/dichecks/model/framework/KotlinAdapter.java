@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.model.framework;
+
+import com.groupon.android.dichecks.model.InjectionKind;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Kotlin wrapper types, type aliases are already resolved by the compiler. */
+public class KotlinAdapter implements FrameworkAdapter {
+
+  private static final Map<String, InjectionKind> WRAPPER_KINDS;
+
+  static {
+    final Map<String, InjectionKind> wrapperKinds = new LinkedHashMap<>();
+    wrapperKinds.put("kotlin.Lazy", InjectionKind.LAZY);
+    WRAPPER_KINDS = Collections.unmodifiableMap(wrapperKinds);
+  }
+
+  @Override
+  public Map<String, InjectionKind> getWrapperKinds() {
+    return WRAPPER_KINDS;
+  }
+}
@@ -20,12 +20,47 @@ package com.groupon.android.dichecks.processor;
 //This design doesn't scale but we don't expect much more than a few checks, if that changes we should consider other implementations.
 public interface CompilerOptions {
   String OPTIONS_PREFIX = "com.groupon.android.dichecks.";
+  /** Whether or not the processor prints notes about its execution (off by default). */
+  String VERBOSE = OPTIONS_PREFIX + "verbose";
+  /** Maximum number of issues reported by each check, the others are summarized in one issue. */
+  String MAX_ISSUES_PER_CHECK = OPTIONS_PREFIX + "maxIssuesPerCheck";
   String DUPLICATE_CHECK = "duplicateCheck";
   /** Enables/Disables the duplicate check. */
   String DUPLICATE_INJECTION_IN_HIERARCHY_ENABLED = OPTIONS_PREFIX + DUPLICATE_CHECK + ".enabled";
   /** Whether or not the duplicate check fails the builds when an issue is detected. */
   String DUPLICATE_INJECTION_IN_HIERARCHY_FAIL_ON_ERROR =
       OPTIONS_PREFIX + DUPLICATE_CHECK + ".failOnError";
+  /** Severity of the duplicate issues: off, note, warning or error. Overrides failOnError. */
+  String DUPLICATE_INJECTION_IN_HIERARCHY_SEVERITY = OPTIONS_PREFIX + DUPLICATE_CHECK + ".severity";
+  /**
+   * Comma separated list of {@code package.pattern=severity} overriding the severity of the
+   * duplicate issues in some packages, i.e. {@code com.app.legacy.*=warning,com.app.gen=off}.
+   */
+  String DUPLICATE_INJECTION_IN_HIERARCHY_PACKAGE_SEVERITIES =
+      OPTIONS_PREFIX + DUPLICATE_CHECK + ".packageSeverities";
+  /** Time the duplicate check may spend per round before its issues are degraded to warnings. */
+  String DUPLICATE_INJECTION_IN_HIERARCHY_TIME_BUDGET_MILLIS =
+      OPTIONS_PREFIX + DUPLICATE_CHECK + ".timeBudgetMillis";
+
+  String STARTUP_CHECK = "startupCheck";
+  /** Severity of the startup issues: off (default), note, warning or error. */
+  String STARTUP_CHECK_SEVERITY = OPTIONS_PREFIX + STARTUP_CHECK + ".severity";
+  /** Comma separated list of {@code package.pattern=severity} for the startup issues. */
+  String STARTUP_CHECK_PACKAGE_SEVERITIES = OPTIONS_PREFIX + STARTUP_CHECK + ".packageSeverities";
+  /** Time the startup check may spend per round before its issues are degraded to warnings. */
+  String STARTUP_CHECK_TIME_BUDGET_MILLIS = OPTIONS_PREFIX + STARTUP_CHECK + ".timeBudgetMillis";
+  /** Maximum number of direct injections of an Application, Activity or Fragment. */
+  String STARTUP_CHECK_MAX_EAGER_INJECTIONS =
+      OPTIONS_PREFIX + STARTUP_CHECK + ".maxEagerInjections";
+  /** Maximum depth of the direct dependencies of an Application, Activity or Fragment. */
+  String STARTUP_CHECK_MAX_GRAPH_DEPTH = OPTIONS_PREFIX + STARTUP_CHECK + ".maxGraphDepth";
+
+  String REFLECTION_CHECK = "reflectionCheck";
+  /** Severity of the reflective injection issues: off (default), note, warning or error. */
+  String REFLECTION_CHECK_SEVERITY = OPTIONS_PREFIX + REFLECTION_CHECK + ".severity";
+  /** Comma separated list of {@code package.pattern=severity} for the reflective injections. */
+  String REFLECTION_CHECK_PACKAGE_SEVERITIES =
+      OPTIONS_PREFIX + REFLECTION_CHECK + ".packageSeverities";
 
   /** Enables/Disables the forbidden classes check. */
   String FORBIDDEN_CLASSES_ENABLED = OPTIONS_PREFIX + "forbiddenInjectClassesCheck.enabled";
@@ -35,4 +70,20 @@ public interface CompilerOptions {
   /** Comma separated list of forbidden classes. */
   String FORBIDDEN_CLASSES_CLASSLIST =
       OPTIONS_PREFIX + "forbiddenInjectClassesCheck.forbiddenInjectedClasses";
+
+  /** Path of the file the injection graph is exported to. The export is disabled if not set. */
+  String GRAPH_EXPORT_OUTPUT_FILE = OPTIONS_PREFIX + "graphExport.outputFile";
+  /**
+   * Name of the resource the injection graph is exported to through the Filer, relative to the
+   * generated sources directory (javac {@code -s}). Unlike the output file, the resource is tracked
+   * by the incremental builds of Gradle.
+   */
+  String GRAPH_EXPORT_RESOURCE = OPTIONS_PREFIX + "graphExport.resource";
+  /** Whether or not a GraphViz DOT file is exported next to the injection graph file. */
+  String GRAPH_EXPORT_DOT = OPTIONS_PREFIX + "graphExport.dot";
+  /**
+   * Path of the file the deltas of the compiled sources are written to, in the protocol of the
+   * daemon. The delta of a source file is named after its top level type.
+   */
+  String DAEMON_DELTA_FILE = OPTIONS_PREFIX + "daemon.deltaFile";
 }
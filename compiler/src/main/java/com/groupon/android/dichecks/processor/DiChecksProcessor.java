@@ -17,14 +17,42 @@
 package com.groupon.android.dichecks.processor;
 
 import com.google.auto.service.AutoService;
+import com.groupon.android.dichecks.checks.common.AbstractDICheck;
+import com.groupon.android.dichecks.checks.common.BudgetExceededDICheckIssue;
+import com.groupon.android.dichecks.checks.common.CheckPolicy;
 import com.groupon.android.dichecks.checks.common.DICheck;
 import com.groupon.android.dichecks.checks.common.DICheckIssue;
+import com.groupon.android.dichecks.checks.common.Severity;
+import com.groupon.android.dichecks.checks.common.TruncatedDICheckIssue;
+import com.groupon.android.dichecks.checks.common.TypeHierarchyIndex;
 import com.groupon.android.dichecks.checks.duplicate.DuplicateInjectionInHierarchyCheck;
+import com.groupon.android.dichecks.checks.reflection.ReflectionFallbackCheck;
+import com.groupon.android.dichecks.checks.startup.StartupInjectionCheck;
+import com.groupon.android.dichecks.daemon.DeltaWriter;
+import com.groupon.android.dichecks.export.DotWriter;
+import com.groupon.android.dichecks.export.GraphWriter;
+import com.groupon.android.dichecks.model.InjectionKindClassifier;
+import com.groupon.android.dichecks.model.InjectionModelCollector;
+import com.groupon.android.dichecks.model.InjectionSite;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.Processor;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
@@ -32,18 +60,37 @@ import javax.annotation.processing.SupportedOptions;
 import javax.inject.Inject;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.TypeElement;
-import javax.lang.model.element.VariableElement;
 import javax.lang.model.util.ElementFilter;
 import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
 
+import static com.groupon.android.dichecks.processor.CompilerOptions.DAEMON_DELTA_FILE;
 import static com.groupon.android.dichecks.processor.CompilerOptions.DUPLICATE_CHECK;
 import static com.groupon.android.dichecks.processor.CompilerOptions.DUPLICATE_INJECTION_IN_HIERARCHY_ENABLED;
 import static com.groupon.android.dichecks.processor.CompilerOptions.DUPLICATE_INJECTION_IN_HIERARCHY_FAIL_ON_ERROR;
+import static com.groupon.android.dichecks.processor.CompilerOptions.DUPLICATE_INJECTION_IN_HIERARCHY_PACKAGE_SEVERITIES;
+import static com.groupon.android.dichecks.processor.CompilerOptions.DUPLICATE_INJECTION_IN_HIERARCHY_SEVERITY;
+import static com.groupon.android.dichecks.processor.CompilerOptions.DUPLICATE_INJECTION_IN_HIERARCHY_TIME_BUDGET_MILLIS;
 import static com.groupon.android.dichecks.processor.CompilerOptions.FORBIDDEN_CLASSES_CLASSLIST;
 import static com.groupon.android.dichecks.processor.CompilerOptions.FORBIDDEN_CLASSES_ENABLED;
 import static com.groupon.android.dichecks.processor.CompilerOptions.FORBIDDEN_CLASSES_FAIL_ON_ERROR;
+import static com.groupon.android.dichecks.processor.CompilerOptions.GRAPH_EXPORT_DOT;
+import static com.groupon.android.dichecks.processor.CompilerOptions.GRAPH_EXPORT_OUTPUT_FILE;
+import static com.groupon.android.dichecks.processor.CompilerOptions.GRAPH_EXPORT_RESOURCE;
+import static com.groupon.android.dichecks.processor.CompilerOptions.MAX_ISSUES_PER_CHECK;
 import static com.groupon.android.dichecks.processor.CompilerOptions.OPTIONS_PREFIX;
+import static com.groupon.android.dichecks.processor.CompilerOptions.REFLECTION_CHECK;
+import static com.groupon.android.dichecks.processor.CompilerOptions.REFLECTION_CHECK_PACKAGE_SEVERITIES;
+import static com.groupon.android.dichecks.processor.CompilerOptions.REFLECTION_CHECK_SEVERITY;
+import static com.groupon.android.dichecks.processor.CompilerOptions.STARTUP_CHECK;
+import static com.groupon.android.dichecks.processor.CompilerOptions.STARTUP_CHECK_MAX_EAGER_INJECTIONS;
+import static com.groupon.android.dichecks.processor.CompilerOptions.STARTUP_CHECK_MAX_GRAPH_DEPTH;
+import static com.groupon.android.dichecks.processor.CompilerOptions.STARTUP_CHECK_PACKAGE_SEVERITIES;
+import static com.groupon.android.dichecks.processor.CompilerOptions.STARTUP_CHECK_SEVERITY;
+import static com.groupon.android.dichecks.processor.CompilerOptions.STARTUP_CHECK_TIME_BUDGET_MILLIS;
+import static com.groupon.android.dichecks.processor.CompilerOptions.VERBOSE;
 
 /** Main entry class of the annotation processor used in dependency injection checks */
 @AutoService(Processor.class)
@@ -51,77 +98,478 @@ import static com.groupon.android.dichecks.processor.CompilerOptions.OPTIONS_PRE
   value = {
     DUPLICATE_INJECTION_IN_HIERARCHY_ENABLED,
     DUPLICATE_INJECTION_IN_HIERARCHY_FAIL_ON_ERROR,
+    DUPLICATE_INJECTION_IN_HIERARCHY_SEVERITY,
+    DUPLICATE_INJECTION_IN_HIERARCHY_PACKAGE_SEVERITIES,
+    DUPLICATE_INJECTION_IN_HIERARCHY_TIME_BUDGET_MILLIS,
+    STARTUP_CHECK_SEVERITY,
+    STARTUP_CHECK_PACKAGE_SEVERITIES,
+    STARTUP_CHECK_TIME_BUDGET_MILLIS,
+    STARTUP_CHECK_MAX_EAGER_INJECTIONS,
+    STARTUP_CHECK_MAX_GRAPH_DEPTH,
+    REFLECTION_CHECK_SEVERITY,
+    REFLECTION_CHECK_PACKAGE_SEVERITIES,
     FORBIDDEN_CLASSES_ENABLED,
     FORBIDDEN_CLASSES_FAIL_ON_ERROR,
-    FORBIDDEN_CLASSES_CLASSLIST
+    FORBIDDEN_CLASSES_CLASSLIST,
+    GRAPH_EXPORT_OUTPUT_FILE,
+    GRAPH_EXPORT_RESOURCE,
+    GRAPH_EXPORT_DOT,
+    DAEMON_DELTA_FILE,
+    MAX_ISSUES_PER_CHECK,
+    VERBOSE
   }
 )
 @SupportedAnnotationTypes(value = {DiChecksProcessor.INJECT_ANNOTATION_CLASSNAME})
 public class DiChecksProcessor extends AbstractProcessor {
 
   public static final String CLASS_LIST_SEPARATOR = ",";
+  public static final String PACKAGE_SEVERITY_SEPARATOR = "=";
   public static final String INJECT_ANNOTATION_CLASSNAME = "javax.inject.Inject";
+  public static final String DOT_FILE_EXTENSION = ".dot";
+  public static final int DEFAULT_MAX_ISSUES_PER_CHECK = 100;
+
+  // options of the dynamic registration of the processor in META-INF/gradle
+  static final String GRADLE_ISOLATING_PROCESSOR = "org.gradle.annotation.processing.isolating";
+  static final String GRADLE_AGGREGATING_PROCESSOR = "org.gradle.annotation.processing.aggregating";
 
   // compiler argument values
   private boolean duplicateInjectionInHierarchyEnabled = true;
   private boolean duplicateInjectionInHierarchyFailOnError = true;
+  private Severity duplicateInjectionInHierarchySeverity;
+  private String[] duplicateInjectionInHierarchyPackageSeverities;
+  private long duplicateInjectionInHierarchyTimeBudgetMillis = CheckPolicy.NO_TIME_BUDGET;
+  private Severity startupSeverity;
+  private String[] startupPackageSeverities;
+  private long startupTimeBudgetMillis = CheckPolicy.NO_TIME_BUDGET;
+  private int startupMaxEagerInjections = StartupInjectionCheck.DEFAULT_MAX_EAGER_INJECTIONS;
+  private int startupMaxGraphDepth = StartupInjectionCheck.DEFAULT_MAX_GRAPH_DEPTH;
+  private Severity reflectionSeverity;
+  private String[] reflectionPackageSeverities;
   private boolean forbiddenClassesEnabled = true;
   private boolean forbiddenClassesFailOnError = true;
   private String[] forbiddenClassesClasses;
+  private String graphExportOutputFile;
+  private String graphExportResource;
+  private boolean graphExportDot = false;
+  private String daemonDeltaFile;
+  private boolean verbose = false;
+  private int maxIssuesPerCheck = DEFAULT_MAX_ISSUES_PER_CHECK;
+
+  // reporting policies of the checks, computed once in init
+  private CheckPolicy duplicateInjectionInHierarchyPolicy;
+  private CheckPolicy startupPolicy;
+  private CheckPolicy reflectionPolicy;
+
+  // union of the element kinds needed by the enabled checks, computed once in init
+  private Set<ElementKind> requiredElementKinds;
+
+  // shared by the checks and the export, wrapper types are resolved once per compilation
+  private InjectionKindClassifier kindClassifier;
+
+  // shared by the checks and the export, each super class chain is resolved once per compilation
+  private TypeHierarchyIndex hierarchyIndex;
+
+  // the injection graph is collected over all the rounds, exported and checked in the last one
+  private InjectionModelCollector injectionModelCollector;
+
+  // the types declared by the compiled sources and their super class, by top level type
+  private Map<String, Map<String, String>> declaredTypesByTopLevelType;
+
+  // unlike the other checks, needs the classes generated by all the rounds
+  private ReflectionFallbackCheck reflectionFallbackCheck;
 
   @Override
   public SourceVersion getSupportedSourceVersion() {
     return javax.lang.model.SourceVersion.latest();
   }
 
+  /**
+   * Besides the options of the checks, tells Gradle how the processor can be run by incremental
+   * compilations: the exported graph, the daemon deltas and the reflection summary cover the whole
+   * module, which requires an aggregating processor. The checks alone only need the types of their
+   * elements.
+   */
   @Override
-  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
-    final long startTimeMillis = System.currentTimeMillis();
-    processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "starting DI checks");
+  public Set<String> getSupportedOptions() {
+    final Set<String> options = new LinkedHashSet<>(super.getSupportedOptions());
+    if (processingEnv == null) {
+      return options;
+    }
+    if (injectionModelCollector != null) {
+      options.add(GRADLE_AGGREGATING_PROCESSOR);
+    } else {
+      options.add(GRADLE_ISOLATING_PROCESSOR);
+    }
+    return options;
+  }
 
+  @Override
+  public synchronized void init(ProcessingEnvironment processingEnv) {
+    super.init(processingEnv);
     initializeCompilerArguments();
+    kindClassifier = new InjectionKindClassifier(processingEnv);
+    hierarchyIndex = new TypeHierarchyIndex(processingEnv.getTypeUtils());
+    duplicateInjectionInHierarchyPolicy =
+        buildCheckPolicy(
+            duplicateInjectionInHierarchyEnabled,
+            duplicateInjectionInHierarchyFailOnError,
+            duplicateInjectionInHierarchySeverity,
+            duplicateInjectionInHierarchyPackageSeverities,
+            duplicateInjectionInHierarchyTimeBudgetMillis);
+    // the startup check is opt-in: it is off unless a severity is set
+    startupPolicy =
+        buildCheckPolicy(
+            false, false, startupSeverity, startupPackageSeverities, startupTimeBudgetMillis);
+    // the reflection check is opt-in too
+    reflectionPolicy =
+        buildCheckPolicy(
+            false,
+            false,
+            reflectionSeverity,
+            reflectionPackageSeverities,
+            CheckPolicy.NO_TIME_BUDGET);
+    if (graphExportOutputFile != null
+        || graphExportResource != null
+        || daemonDeltaFile != null
+        || reflectionPolicy.isEnabled()) {
+      injectionModelCollector =
+          new InjectionModelCollector(
+              kindClassifier,
+              hierarchyIndex,
+              OPTIONS_PREFIX + DUPLICATE_CHECK,
+              duplicateInjectionInHierarchyPolicy);
+    }
+    if (daemonDeltaFile != null) {
+      declaredTypesByTopLevelType = new LinkedHashMap<>();
+    }
+    if (reflectionPolicy.isEnabled()) {
+      reflectionFallbackCheck =
+          new ReflectionFallbackCheck(
+              processingEnv,
+              injectionModelCollector,
+              reflectionPolicy,
+              OPTIONS_PREFIX + REFLECTION_CHECK);
+    }
+    requiredElementKinds = computeRequiredElementKinds();
+  }
 
-    final List<DICheck> checks = buildDICheckList();
-
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    // fast path: no enabled check or no injection in this round
+    if (requiredElementKinds.isEmpty()) {
+      return false;
+    }
+    // the elements of the previous rounds may not be the ones of this round (javac 8)
+    kindClassifier.clear();
+    hierarchyIndex.clear();
+    if (roundEnv.processingOver()) {
+      if (graphExportOutputFile != null || graphExportResource != null) {
+        exportInjectionGraph();
+      }
+      if (daemonDeltaFile != null) {
+        exportDaemonDeltas();
+      }
+      if (reflectionFallbackCheck != null) {
+        final List<DICheckIssue> issues =
+            capIssues(reflectionFallbackCheck.processInjectedElements());
+        if (reflectionFallbackCheck.getSummary() != null) {
+          printIssues(Collections.singletonList(reflectionFallbackCheck.getSummary()));
+        }
+        printIssues(issues);
+      }
+    }
+    if (injectionModelCollector != null) {
+      for (TypeElement topLevelType : ElementFilter.typesIn(roundEnv.getRootElements())) {
+        injectionModelCollector.addDefinedTypes(topLevelType);
+      }
+    }
+    // a source without injections is a delta too, it may have removed some
+    if (declaredTypesByTopLevelType != null) {
+      for (TypeElement topLevelType : ElementFilter.typesIn(roundEnv.getRootElements())) {
+        final Map<String, String> declaredTypes = new LinkedHashMap<>();
+        addDeclaredTypes(topLevelType, declaredTypes);
+        declaredTypesByTopLevelType.put(topLevelType.getQualifiedName().toString(), declaredTypes);
+      }
+    }
     // annotations passed as a parameter in this method only refers to TypeElements
-    final Set<? extends Element> annotatedElements =
-        roundEnv.getElementsAnnotatedWith(Inject.class);
+    if (annotations.isEmpty()) {
+      return false;
+    }
+    final Set<Element> relevantElements =
+        filterByKind(roundEnv.getElementsAnnotatedWith(Inject.class), requiredElementKinds);
+    if (relevantElements.isEmpty()) {
+      return false;
+    }
+
+    final long startTimeMillis = System.currentTimeMillis();
+    if (verbose) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "starting DI checks");
+    }
 
-    final Set<VariableElement> injectedFields = ElementFilter.fieldsIn(annotatedElements);
+    final List<DICheck> checks = buildDICheckList(roundEnv.getRootElements());
     final List<DICheckIssue> issuesFound = new ArrayList<>();
 
     for (DICheck check : checks) {
-      // filter suppressed elements
-      check.addInjectedElements(injectedFields);
-      issuesFound.addAll(check.processInjectedElements());
+      check.addInjectedElements(filterByKind(relevantElements, getRequiredElementKinds(check)));
+      issuesFound.addAll(capIssues(check.processInjectedElements()));
     }
 
-    processingEnv
-        .getMessager()
-        .printMessage(
-            Diagnostic.Kind.NOTE,
-            String.format("DI checks took %dms", System.currentTimeMillis() - startTimeMillis));
+    if (injectionModelCollector != null) {
+      injectionModelCollector.addInjectedElements(ElementFilter.fieldsIn(relevantElements));
+    }
+    if (reflectionFallbackCheck != null) {
+      reflectionFallbackCheck.addInjectedElements(
+          filterByKind(relevantElements, reflectionFallbackCheck.getRequiredElementKinds()));
+    }
 
-    for (DICheckIssue issue : issuesFound) {
-      processingEnv.getMessager().printMessage(issue.getKind(), issue.getMsg(), issue.getElement());
+    if (verbose) {
+      processingEnv
+          .getMessager()
+          .printMessage(
+              Diagnostic.Kind.NOTE,
+              String.format("DI checks took %dms", System.currentTimeMillis() - startTimeMillis));
     }
 
+    printIssues(issuesFound);
     return false;
   }
 
-  private List<DICheck> buildDICheckList() {
+  private void printIssues(List<DICheckIssue> issues) {
+    for (DICheckIssue issue : issues) {
+      processingEnv.getMessager().printMessage(issue.getKind(), issue.getMsg(), issue.getElement());
+    }
+  }
+
+  /**
+   * Keeps the output of a check readable when a large code base has many issues: only the first
+   * {@code maxIssuesPerCheck} issues are reported, followed by a summary of the omitted ones. The
+   * issue recording that the check ran out of time is always reported.
+   */
+  private List<DICheckIssue> capIssues(List<DICheckIssue> issues) {
+    if (maxIssuesPerCheck < 0 || issues.size() <= maxIssuesPerCheck) {
+      return issues;
+    }
+    final List<DICheckIssue> cappedIssues = new ArrayList<>(issues.subList(0, maxIssuesPerCheck));
+    final List<DICheckIssue> budgetIssues = new ArrayList<>();
+    Diagnostic.Kind kind = Diagnostic.Kind.WARNING;
+    int omittedIssueCount = 0;
+    for (DICheckIssue issue : issues.subList(maxIssuesPerCheck, issues.size())) {
+      if (issue instanceof BudgetExceededDICheckIssue) {
+        budgetIssues.add(issue);
+        continue;
+      }
+      omittedIssueCount++;
+      if (issue.getKind() == Diagnostic.Kind.ERROR) {
+        kind = Diagnostic.Kind.ERROR;
+      }
+    }
+    if (omittedIssueCount > 0) {
+      cappedIssues.add(new TruncatedDICheckIssue(kind, omittedIssueCount));
+    }
+    cappedIssues.addAll(budgetIssues);
+    return cappedIssues;
+  }
+
+  /** @return the union of the element kinds required by the enabled checks and the export. */
+  private Set<ElementKind> computeRequiredElementKinds() {
+    final Set<ElementKind> elementKinds = EnumSet.noneOf(ElementKind.class);
+    for (DICheck check : buildDICheckList(Collections.<Element>emptySet())) {
+      elementKinds.addAll(getRequiredElementKinds(check));
+    }
+    if (reflectionFallbackCheck != null) {
+      elementKinds.addAll(reflectionFallbackCheck.getRequiredElementKinds());
+    }
+    if (injectionModelCollector != null) {
+      elementKinds.add(ElementKind.FIELD);
+    }
+    return elementKinds;
+  }
+
+  /** @return the element kinds declared by {@code check}, all of them if it declares none. */
+  private static Set<ElementKind> getRequiredElementKinds(DICheck check) {
+    if (check instanceof AbstractDICheck) {
+      return ((AbstractDICheck) check).getRequiredElementKinds();
+    }
+    return EnumSet.allOf(ElementKind.class);
+  }
+
+  private static Set<Element> filterByKind(
+      Set<? extends Element> elements, Set<ElementKind> elementKinds) {
+    final Set<Element> filteredElements = new LinkedHashSet<>();
+    for (Element element : elements) {
+      if (elementKinds.contains(element.getKind())) {
+        filteredElements.add(element);
+      }
+    }
+    return filteredElements;
+  }
+
+  private void exportInjectionGraph() {
+    try {
+      if (graphExportOutputFile != null) {
+        writeInjectionGraph(graphExportOutputFile);
+      }
+      if (graphExportResource != null) {
+        writeInjectionGraphResource(graphExportResource);
+      }
+    } catch (IOException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(
+              Diagnostic.Kind.WARNING,
+              String.format("Unable to export the injection graph: %s", e.getMessage()));
+    }
+  }
+
+  private void writeInjectionGraph(String outputFileName) throws IOException {
+    final File outputFile = new File(outputFileName);
+    final File outputDir = outputFile.getAbsoluteFile().getParentFile();
+    if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+      throw new IOException("Unable to create directory " + outputDir);
+    }
+    writeGraph(new FileOutputStream(outputFile));
+    if (graphExportDot) {
+      writeDot(new FileOutputStream(outputFileName + DOT_FILE_EXTENSION));
+    }
+  }
+
+  /** Writes the graph through the Filer, which lets Gradle track and clean it. */
+  private void writeInjectionGraphResource(String resourceName) throws IOException {
+    final Filer filer = processingEnv.getFiler();
+    writeGraph(
+        filer.createResource(StandardLocation.SOURCE_OUTPUT, "", resourceName).openOutputStream());
+    if (graphExportDot) {
+      writeDot(
+          filer
+              .createResource(StandardLocation.SOURCE_OUTPUT, "", resourceName + DOT_FILE_EXTENSION)
+              .openOutputStream());
+    }
+  }
+
+  private void writeGraph(OutputStream outputStream) throws IOException {
+    try (GraphWriter writer = new GraphWriter(outputStream)) {
+      writer.write(injectionModelCollector.getModel());
+    }
+  }
+
+  private void writeDot(OutputStream outputStream) throws IOException {
+    try (Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)) {
+      DotWriter.write(injectionModelCollector.getModel(), writer);
+    }
+  }
+
+  private void addDeclaredTypes(TypeElement type, Map<String, String> declaredTypes) {
+    final TypeElement superClass = hierarchyIndex.getSuperClass(type);
+    declaredTypes.put(
+        type.getQualifiedName().toString(),
+        superClass != null ? superClass.getQualifiedName().toString() : null);
+    for (TypeElement memberType : ElementFilter.typesIn(type.getEnclosedElements())) {
+      addDeclaredTypes(memberType, declaredTypes);
+    }
+  }
+
+  /** Writes the delta of each compiled source file, the file is named after its top level type. */
+  private void exportDaemonDeltas() {
+    final Map<String, List<InjectionSite>> sitesByOwner = new HashMap<>();
+    for (InjectionSite site : injectionModelCollector.getModel().getInjectionSites()) {
+      List<InjectionSite> ownerSites = sitesByOwner.get(site.getOwnerType());
+      if (ownerSites == null) {
+        ownerSites = new ArrayList<>();
+        sitesByOwner.put(site.getOwnerType(), ownerSites);
+      }
+      ownerSites.add(site);
+    }
+    try (DeltaWriter writer =
+        new DeltaWriter(
+            new OutputStreamWriter(
+                new FileOutputStream(daemonDeltaFile), StandardCharsets.UTF_8))) {
+      for (Map.Entry<String, Map<String, String>> declaredTypes :
+          declaredTypesByTopLevelType.entrySet()) {
+        final List<InjectionSite> sites = new ArrayList<>();
+        for (String declaredType : declaredTypes.getValue().keySet()) {
+          if (sitesByOwner.containsKey(declaredType)) {
+            sites.addAll(sitesByOwner.get(declaredType));
+          }
+        }
+        writer.writeDelta(declaredTypes.getKey(), declaredTypes.getValue(), sites);
+      }
+    } catch (IOException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(
+              Diagnostic.Kind.WARNING,
+              String.format("Unable to export the daemon deltas: %s", e.getMessage()));
+    }
+  }
+
+  /** @param rootElements the types of the round, entry points may inherit all their injections. */
+  private List<DICheck> buildDICheckList(Set<? extends Element> rootElements) {
     final List<DICheck> checks = new ArrayList<>();
 
-    if (duplicateInjectionInHierarchyEnabled) {
+    if (duplicateInjectionInHierarchyPolicy.isEnabled()) {
       checks.add(
           new DuplicateInjectionInHierarchyCheck(
-              processingEnv, duplicateInjectionInHierarchyFailOnError,
-                  OPTIONS_PREFIX + DUPLICATE_CHECK));
+              processingEnv,
+              kindClassifier,
+              hierarchyIndex,
+              duplicateInjectionInHierarchyPolicy,
+              OPTIONS_PREFIX + DUPLICATE_CHECK));
+    }
+
+    if (startupPolicy.isEnabled()) {
+      checks.add(
+          new StartupInjectionCheck(
+              processingEnv,
+              kindClassifier,
+              hierarchyIndex,
+              startupPolicy,
+              OPTIONS_PREFIX + STARTUP_CHECK,
+              ElementFilter.typesIn(rootElements),
+              startupMaxEagerInjections,
+              startupMaxGraphDepth));
     }
 
     return checks;
   }
 
+  /**
+   * Combines the options of a check into its policy. An explicit severity overrides the legacy
+   * enabled and failOnError flags, invalid package severities are ignored with a warning.
+   */
+  private CheckPolicy buildCheckPolicy(
+      boolean enabled,
+      boolean failOnError,
+      Severity severity,
+      String[] packageSeverities,
+      long timeBudgetMillis) {
+    if (!enabled && severity == null) {
+      return new CheckPolicy(Severity.OFF);
+    }
+    final Severity defaultSeverity;
+    if (severity != null) {
+      defaultSeverity = severity;
+    } else {
+      defaultSeverity = failOnError ? Severity.ERROR : Severity.WARNING;
+    }
+    final CheckPolicy policy =
+        new CheckPolicy(defaultSeverity).setTimeBudgetMillis(timeBudgetMillis);
+    if (packageSeverities != null) {
+      for (String packageSeverity : packageSeverities) {
+        final String[] patternAndSeverity = packageSeverity.split(PACKAGE_SEVERITY_SEPARATOR);
+        try {
+          if (patternAndSeverity.length != 2) {
+            throw new IllegalArgumentException(packageSeverity);
+          }
+          policy.addPackageSeverity(
+              patternAndSeverity[0].trim(), Severity.parse(patternAndSeverity[1]));
+        } catch (IllegalArgumentException e) {
+          printInvalidOption(packageSeverity, "ignored");
+        }
+      }
+    }
+    return policy;
+  }
+
   private void initializeCompilerArguments() {
     duplicateInjectionInHierarchyEnabled =
         readCompilerFlag(
@@ -136,6 +584,46 @@ public class DiChecksProcessor extends AbstractProcessor {
     forbiddenClassesClasses =
         readCompilerStringArray(
             FORBIDDEN_CLASSES_CLASSLIST, CLASS_LIST_SEPARATOR, forbiddenClassesClasses);
+    graphExportOutputFile = readCompilerString(GRAPH_EXPORT_OUTPUT_FILE, graphExportOutputFile);
+    graphExportResource = readCompilerString(GRAPH_EXPORT_RESOURCE, graphExportResource);
+    graphExportDot = readCompilerFlag(GRAPH_EXPORT_DOT, graphExportDot);
+    daemonDeltaFile = readCompilerString(DAEMON_DELTA_FILE, daemonDeltaFile);
+    duplicateInjectionInHierarchySeverity =
+        readCompilerSeverity(
+            DUPLICATE_INJECTION_IN_HIERARCHY_SEVERITY, duplicateInjectionInHierarchySeverity);
+    duplicateInjectionInHierarchyPackageSeverities =
+        readCompilerStringArray(
+            DUPLICATE_INJECTION_IN_HIERARCHY_PACKAGE_SEVERITIES,
+            CLASS_LIST_SEPARATOR,
+            duplicateInjectionInHierarchyPackageSeverities);
+    duplicateInjectionInHierarchyTimeBudgetMillis =
+        readCompilerLong(
+            DUPLICATE_INJECTION_IN_HIERARCHY_TIME_BUDGET_MILLIS,
+            duplicateInjectionInHierarchyTimeBudgetMillis);
+    startupSeverity = readCompilerSeverity(STARTUP_CHECK_SEVERITY, startupSeverity);
+    startupPackageSeverities =
+        readCompilerStringArray(
+            STARTUP_CHECK_PACKAGE_SEVERITIES, CLASS_LIST_SEPARATOR, startupPackageSeverities);
+    startupTimeBudgetMillis =
+        readCompilerLong(STARTUP_CHECK_TIME_BUDGET_MILLIS, startupTimeBudgetMillis);
+    startupMaxEagerInjections =
+        (int) readCompilerLong(STARTUP_CHECK_MAX_EAGER_INJECTIONS, startupMaxEagerInjections);
+    startupMaxGraphDepth =
+        (int) readCompilerLong(STARTUP_CHECK_MAX_GRAPH_DEPTH, startupMaxGraphDepth);
+    reflectionSeverity = readCompilerSeverity(REFLECTION_CHECK_SEVERITY, reflectionSeverity);
+    reflectionPackageSeverities =
+        readCompilerStringArray(
+            REFLECTION_CHECK_PACKAGE_SEVERITIES, CLASS_LIST_SEPARATOR, reflectionPackageSeverities);
+    verbose = readCompilerFlag(VERBOSE, verbose);
+    maxIssuesPerCheck = (int) readCompilerLong(MAX_ISSUES_PER_CHECK, maxIssuesPerCheck);
+  }
+
+  private String readCompilerString(String argumentName, String defaultValue) {
+    final Map<String, String> options = processingEnv.getOptions();
+    if (options.containsKey(argumentName)) {
+      return options.get(argumentName);
+    }
+    return defaultValue;
   }
 
   private String[] readCompilerStringArray(
@@ -155,6 +643,38 @@ public class DiChecksProcessor extends AbstractProcessor {
     return defaultValue;
   }
 
+  private long readCompilerLong(String argumentName, long defaultValue) {
+    final Map<String, String> options = processingEnv.getOptions();
+    if (options.containsKey(argumentName)) {
+      try {
+        return Long.parseLong(options.get(argumentName).trim());
+      } catch (NumberFormatException e) {
+        printInvalidOption(argumentName + "=" + options.get(argumentName), "using " + defaultValue);
+      }
+    }
+    return defaultValue;
+  }
+
+  private Severity readCompilerSeverity(String argumentName, Severity defaultValue) {
+    final Map<String, String> options = processingEnv.getOptions();
+    if (options.containsKey(argumentName)) {
+      try {
+        return Severity.parse(options.get(argumentName));
+      } catch (IllegalArgumentException e) {
+        printInvalidOption(argumentName + "=" + options.get(argumentName), "using " + defaultValue);
+      }
+    }
+    return defaultValue;
+  }
+
+  private void printInvalidOption(String option, String fallback) {
+    processingEnv
+        .getMessager()
+        .printMessage(
+            Diagnostic.Kind.WARNING,
+            String.format("Invalid DI checks option %s, %s", option, fallback));
+  }
+
   public void setDuplicateInjectionInHierarchyEnabled(
       boolean duplicateInjectionInHierarchyEnabled) {
     this.duplicateInjectionInHierarchyEnabled = duplicateInjectionInHierarchyEnabled;
@@ -165,6 +685,50 @@ public class DiChecksProcessor extends AbstractProcessor {
     this.duplicateInjectionInHierarchyFailOnError = duplicateInjectionInHierarchyFailOnError;
   }
 
+  public void setDuplicateInjectionInHierarchySeverity(
+      Severity duplicateInjectionInHierarchySeverity) {
+    this.duplicateInjectionInHierarchySeverity = duplicateInjectionInHierarchySeverity;
+  }
+
+  /** @param packageSeverities {@code package.pattern=severity} entries, see {@link CheckPolicy}. */
+  public void setDuplicateInjectionInHierarchyPackageSeverities(String[] packageSeverities) {
+    this.duplicateInjectionInHierarchyPackageSeverities = packageSeverities;
+  }
+
+  public void setDuplicateInjectionInHierarchyTimeBudgetMillis(
+      long duplicateInjectionInHierarchyTimeBudgetMillis) {
+    this.duplicateInjectionInHierarchyTimeBudgetMillis =
+        duplicateInjectionInHierarchyTimeBudgetMillis;
+  }
+
+  public void setStartupSeverity(Severity startupSeverity) {
+    this.startupSeverity = startupSeverity;
+  }
+
+  public void setStartupPackageSeverities(String[] startupPackageSeverities) {
+    this.startupPackageSeverities = startupPackageSeverities;
+  }
+
+  public void setStartupTimeBudgetMillis(long startupTimeBudgetMillis) {
+    this.startupTimeBudgetMillis = startupTimeBudgetMillis;
+  }
+
+  public void setStartupMaxEagerInjections(int startupMaxEagerInjections) {
+    this.startupMaxEagerInjections = startupMaxEagerInjections;
+  }
+
+  public void setStartupMaxGraphDepth(int startupMaxGraphDepth) {
+    this.startupMaxGraphDepth = startupMaxGraphDepth;
+  }
+
+  public void setReflectionSeverity(Severity reflectionSeverity) {
+    this.reflectionSeverity = reflectionSeverity;
+  }
+
+  public void setReflectionPackageSeverities(String[] reflectionPackageSeverities) {
+    this.reflectionPackageSeverities = reflectionPackageSeverities;
+  }
+
   public void setForbiddenClassesEnabled(boolean forbiddenClassesEnabled) {
     this.forbiddenClassesEnabled = forbiddenClassesEnabled;
   }
@@ -176,4 +740,30 @@ public class DiChecksProcessor extends AbstractProcessor {
   public void setForbiddenClassesClasses(String[] forbiddenClassesClasses) {
     this.forbiddenClassesClasses = forbiddenClassesClasses;
   }
+
+  public void setGraphExportOutputFile(String graphExportOutputFile) {
+    this.graphExportOutputFile = graphExportOutputFile;
+  }
+
+  /** @param graphExportResource the name of the graph resource in the generated sources. */
+  public void setGraphExportResource(String graphExportResource) {
+    this.graphExportResource = graphExportResource;
+  }
+
+  public void setGraphExportDot(boolean graphExportDot) {
+    this.graphExportDot = graphExportDot;
+  }
+
+  public void setDaemonDeltaFile(String daemonDeltaFile) {
+    this.daemonDeltaFile = daemonDeltaFile;
+  }
+
+  public void setVerbose(boolean verbose) {
+    this.verbose = verbose;
+  }
+
+  /** @param maxIssuesPerCheck the maximum number of issues reported by a check, -1 for no limit. */
+  public void setMaxIssuesPerCheck(int maxIssuesPerCheck) {
+    this.maxIssuesPerCheck = maxIssuesPerCheck;
+  }
 }
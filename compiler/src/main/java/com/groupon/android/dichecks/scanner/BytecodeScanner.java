@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.scanner;
+
+import com.groupon.android.dichecks.export.GraphWriter;
+import com.groupon.android.dichecks.model.InjectionKind;
+import com.groupon.android.dichecks.model.InjectionKindClassifier;
+import com.groupon.android.dichecks.model.InjectionModel;
+import com.groupon.android.dichecks.model.InjectionSite;
+import com.groupon.android.dichecks.model.framework.FrameworkAdapter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Inflater;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Builds the {@link InjectionModel} of built artifacts (jars, aars, directories of class files)
+ * without compiling them, so the checks can run on the inputs of the dex step of an app.
+ *
+ * <p>The scan is a three stages pipeline:
+ *
+ * <ol>
+ *   <li>the calling thread maps the inputs in memory and lists the class files of their central
+ *       directory into a bounded queue, blocking when the workers fall behind. The jars nested in
+ *       an aar are inflated by this stage.
+ *   <li>worker threads inflate the class files (stored entries are parsed in place) and parse them
+ *       into a partial model each, without any shared state.
+ *   <li>once the workers are done, the partial models are merged into the result and the
+ *       injections of sub types of the wrapper types (ex: a class implementing {@code
+ *       Provider<Foo>}) are classified from the super types of the scanned classes.
+ * </ol>
+ */
+public class BytecodeScanner {
+
+  public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+  private static final String CLASS_FILE_EXTENSION = ".class";
+  private static final String MODULE_INFO = "module-info.class";
+  private static final String VERSIONED_ENTRIES_PREFIX = "META-INF/versions/";
+  private static final String[] ARCHIVE_EXTENSIONS = {".jar", ".aar", ".zip"};
+  private static final ClassFileEntry END_OF_ENTRIES =
+      new ClassFileEntry("", ByteBuffer.allocate(0), 0, 0, 0, ClassFileEntry.STORED);
+
+  private final int threadCount;
+  private final int queueCapacity;
+  private final Map<String, InjectionKind> wrapperKinds = new HashMap<>();
+
+  public BytecodeScanner() {
+    this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+  }
+
+  public BytecodeScanner(int threadCount, int queueCapacity) {
+    this(threadCount, queueCapacity, InjectionKindClassifier.DEFAULT_FRAMEWORK_ADAPTERS);
+  }
+
+  public BytecodeScanner(
+      int threadCount, int queueCapacity, @NotNull List<FrameworkAdapter> frameworkAdapters) {
+    this.threadCount = Math.max(1, threadCount);
+    this.queueCapacity = Math.max(1, queueCapacity);
+    for (FrameworkAdapter frameworkAdapter : frameworkAdapters) {
+      wrapperKinds.putAll(frameworkAdapter.getWrapperKinds());
+    }
+  }
+
+  /** @param inputs jars, aars, class files or directories containing class files. */
+  public InjectionModel scan(@NotNull List<File> inputs) throws IOException {
+    final BlockingQueue<ClassFileEntry> entries = new ArrayBlockingQueue<>(queueCapacity);
+    final AtomicReference<IOException> failure = new AtomicReference<>();
+    final List<Worker> workers = new ArrayList<>(threadCount);
+    for (int i = 0; i < threadCount; i++) {
+      final Worker worker = new Worker(entries, failure);
+      worker.setName("dichecks-scanner-" + i);
+      worker.setDaemon(true);
+      workers.add(worker);
+      worker.start();
+    }
+
+    final Inflater inflater = new Inflater(true);
+    try {
+      for (File input : inputs) {
+        if (failure.get() != null) {
+          break;
+        }
+        readInput(input, entries, inflater);
+      }
+    } finally {
+      inflater.end();
+      for (int i = 0; i < threadCount; i++) {
+        put(entries, END_OF_ENTRIES);
+      }
+      for (Worker worker : workers) {
+        join(worker);
+      }
+    }
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+
+    final InjectionModel model = new InjectionModel();
+    final Map<String, List<String>> directSupertypes = new HashMap<>();
+    for (Worker worker : workers) {
+      model.addAll(worker.model);
+      directSupertypes.putAll(worker.directSupertypes);
+    }
+    final Map<String, InjectionKind> kinds = new HashMap<>(wrapperKinds);
+    for (Worker worker : workers) {
+      for (ClassFileParser.UnresolvedInjection injection : worker.unresolvedInjections) {
+        final InjectionKind kind = classify(injection.rawType, directSupertypes, kinds);
+        if (kind == InjectionKind.DIRECT) {
+          continue;
+        }
+        final InjectionSite site = injection.site;
+        model.removeInjectionSite(site);
+        if (injection.wrappedType != null) {
+          model.addInjectionSite(
+              new InjectionSite(
+                  site.getOwnerType(),
+                  site.getName(),
+                  injection.wrappedType,
+                  kind,
+                  site.getQualifier()));
+        }
+      }
+    }
+    return model;
+  }
+
+  /**
+   * Classifies {@code type} like the processor does, from the kinds of its direct super types: a
+   * type that is both a Lazy and a Provider is a Lazy. Types that are neither wrappers nor scanned
+   * are direct injections.
+   */
+  private static InjectionKind classify(
+      String type, Map<String, List<String>> directSupertypes, Map<String, InjectionKind> kinds) {
+    InjectionKind kind = kinds.get(type);
+    if (kind != null) {
+      return kind;
+    }
+    kind = InjectionKind.DIRECT;
+    // guards against the cycles of corrupted class files
+    kinds.put(type, kind);
+    final List<String> supertypes = directSupertypes.get(type);
+    if (supertypes != null) {
+      for (String supertype : supertypes) {
+        final InjectionKind superKind = classify(supertype, directSupertypes, kinds);
+        if (superKind.ordinal() > kind.ordinal()) {
+          kind = superKind;
+        }
+      }
+    }
+    kinds.put(type, kind);
+    return kind;
+  }
+
+  private void readInput(File input, BlockingQueue<ClassFileEntry> entries, Inflater inflater)
+      throws IOException {
+    if (input.isDirectory()) {
+      final File[] children = input.listFiles();
+      if (children != null) {
+        Arrays.sort(children);
+        for (File child : children) {
+          readInput(child, entries, inflater);
+        }
+      }
+    } else if (input.getName().endsWith(CLASS_FILE_EXTENSION)) {
+      if (!MODULE_INFO.equals(input.getName())) {
+        final ByteBuffer classFile = map(input);
+        put(
+            entries,
+            new ClassFileEntry(
+                input.getPath(),
+                classFile,
+                0,
+                classFile.limit(),
+                classFile.limit(),
+                ClassFileEntry.STORED));
+      }
+    } else if (isArchive(input.getName())) {
+      readArchive(new ZipArchive(input.getPath(), map(input)), entries, inflater);
+    }
+  }
+
+  private void readArchive(
+      ZipArchive archive, BlockingQueue<ClassFileEntry> entries, Inflater inflater)
+      throws IOException {
+    for (ClassFileEntry entry : archive.getEntries()) {
+      final String name = entry.getName();
+      if (name.endsWith(CLASS_FILE_EXTENSION)) {
+        if (!name.endsWith(MODULE_INFO) && !name.startsWith(VERSIONED_ENTRIES_PREFIX)) {
+          put(entries, entry);
+        }
+      } else if (isArchive(name)) {
+        // classes.jar and libs/*.jar of an aar
+        readArchive(new ZipArchive(name, entry.open(inflater)), entries, inflater);
+      }
+    }
+  }
+
+  private static boolean isArchive(String name) {
+    for (String extension : ARCHIVE_EXTENSIONS) {
+      if (name.endsWith(extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** The mapping remains valid once the channel is closed. */
+  private static ByteBuffer map(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  private static void put(BlockingQueue<ClassFileEntry> entries, ClassFileEntry entry)
+      throws InterruptedIOException {
+    try {
+      entries.put(entry);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while scanning class files");
+    }
+  }
+
+  private static void join(Thread thread) throws InterruptedIOException {
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while scanning class files");
+    }
+  }
+
+  /**
+   * Parses class files into its own partial model. After a failure the worker keeps draining the
+   * queue so the reader never blocks on a full queue.
+   */
+  private final class Worker extends Thread {
+
+    private final BlockingQueue<ClassFileEntry> entries;
+    private final AtomicReference<IOException> failure;
+    private final InjectionModel model = new InjectionModel();
+    private final Map<String, List<String>> directSupertypes = new HashMap<>();
+    private final List<ClassFileParser.UnresolvedInjection> unresolvedInjections =
+        new ArrayList<>();
+    private final ClassFileParser parser = new ClassFileParser(wrapperKinds);
+    private final Inflater inflater = new Inflater(true);
+
+    private Worker(BlockingQueue<ClassFileEntry> entries, AtomicReference<IOException> failure) {
+      this.entries = entries;
+      this.failure = failure;
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          final ClassFileEntry entry = entries.take();
+          if (entry == END_OF_ENTRIES) {
+            return;
+          }
+          if (failure.get() != null) {
+            continue;
+          }
+          try {
+            parser.parse(
+                entry.open(inflater), model, directSupertypes, unresolvedInjections);
+          } catch (IOException e) {
+            final String message = "Unable to scan " + entry.getName() + ": " + e.getMessage();
+            failure.compareAndSet(null, new IOException(message, e));
+          }
+        }
+      } catch (InterruptedException e) {
+        failure.compareAndSet(null, new InterruptedIOException("Scanner worker interrupted"));
+      } finally {
+        inflater.end();
+      }
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    File output = null;
+    int threadCount = Runtime.getRuntime().availableProcessors();
+    final List<File> inputs = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if ("-o".equals(args[i]) && i + 1 < args.length) {
+        output = new File(args[++i]);
+      } else if ("--threads".equals(args[i]) && i + 1 < args.length) {
+        threadCount = Integer.parseInt(args[++i]);
+      } else {
+        inputs.add(new File(args[i]));
+      }
+    }
+    if (output == null || inputs.isEmpty()) {
+      System.err.println(
+          "usage: BytecodeScanner -o <graph file> [--threads <count>] <jar|aar|directory>...");
+      System.exit(1);
+      return;
+    }
+
+    final InjectionModel model =
+        new BytecodeScanner(threadCount, DEFAULT_QUEUE_CAPACITY).scan(inputs);
+    try (GraphWriter writer = new GraphWriter(new FileOutputStream(output))) {
+      writer.write(model);
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.scanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A class file found by the reader stage of the {@link BytecodeScanner}: a view on the mapped
+ * archive (or class file) it comes from. Nothing is copied until a worker opens the entry, stored
+ * entries are never copied.
+ */
+final class ClassFileEntry {
+
+  static final int STORED = 0;
+  static final int DEFLATED = 8;
+
+  private final String name;
+  private final ByteBuffer archive;
+  private final int dataOffset;
+  private final int compressedSize;
+  private final int size;
+  private final int method;
+
+  ClassFileEntry(
+      @NotNull String name,
+      @NotNull ByteBuffer archive,
+      int dataOffset,
+      int compressedSize,
+      int size,
+      int method) {
+    this.name = name;
+    this.archive = archive;
+    this.dataOffset = dataOffset;
+    this.compressedSize = compressedSize;
+    this.size = size;
+    this.method = method;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  /**
+   * @param inflater reused by the calling worker, it is reset before use.
+   * @return the content of the class file, a slice of the archive if the entry is stored.
+   */
+  ByteBuffer open(@NotNull Inflater inflater) throws IOException {
+    final ByteBuffer data = archive.duplicate();
+    data.position(dataOffset);
+    data.limit(dataOffset + compressedSize);
+    if (method == STORED) {
+      return data.slice();
+    }
+    if (method != DEFLATED) {
+      throw new IOException("Unsupported compression method " + method + " for " + name);
+    }
+    // zlib needs an extra dummy byte to inflate raw (nowrap) deflate data
+    final byte[] compressed = new byte[compressedSize + 1];
+    data.get(compressed, 0, compressedSize);
+    final byte[] inflated = new byte[size];
+    inflater.reset();
+    inflater.setInput(compressed);
+    try {
+      int length = 0;
+      while (length < size && !inflater.finished()) {
+        final int inflatedLength = inflater.inflate(inflated, length, size - length);
+        if (inflatedLength == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        length += inflatedLength;
+      }
+      if (length != size) {
+        throw new IOException("Truncated entry " + name);
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupted entry " + name, e);
+    }
+    return ByteBuffer.wrap(inflated);
+  }
+}
@@ -0,0 +1,522 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.scanner;
+
+import com.groupon.android.dichecks.model.InjectionKind;
+import com.groupon.android.dichecks.model.InjectionModel;
+import com.groupon.android.dichecks.model.InjectionSite;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Adds the injections of a class file to an {@link InjectionModel}: the class, its super class and
+ * the fields annotated with {@code @Inject}. Only the constant pool, the class header and the
+ * fields are read, methods are skipped.
+ *
+ * <p>Types are named like the processor names them ({@code Outer.Inner}), assuming {@code $} is
+ * only used as the nested class separator. The kind of an injection of a wrapper type is determined
+ * from its raw type. Sub types of the wrapper types are only known once all the classes are read:
+ * the parser records the direct super types of each class and the injections of the other class
+ * types as {@link UnresolvedInjection}s, which {@link BytecodeScanner} classifies afterwards.
+ *
+ * <p>A parser is used by a single thread, it is reused for all the classes of this thread.
+ */
+final class ClassFileParser {
+
+  private static final int MAGIC = 0xcafebabe;
+  private static final String OBJECT_CLASS_NAME = "java.lang.Object";
+  private static final String INJECT_DESCRIPTOR = "Ljavax/inject/Inject;";
+  private static final String NAMED_DESCRIPTOR = "Ljavax/inject/Named;";
+  private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+  private static final String SIGNATURE = "Signature";
+
+  private static final int CONSTANT_UTF8 = 1;
+  private static final int CONSTANT_INTEGER = 3;
+  private static final int CONSTANT_FLOAT = 4;
+  private static final int CONSTANT_LONG = 5;
+  private static final int CONSTANT_DOUBLE = 6;
+  private static final int CONSTANT_CLASS = 7;
+  private static final int CONSTANT_STRING = 8;
+  private static final int CONSTANT_FIELDREF = 9;
+  private static final int CONSTANT_METHODREF = 10;
+  private static final int CONSTANT_INTERFACE_METHODREF = 11;
+  private static final int CONSTANT_NAME_AND_TYPE = 12;
+  private static final int CONSTANT_METHOD_HANDLE = 15;
+  private static final int CONSTANT_METHOD_TYPE = 16;
+  private static final int CONSTANT_DYNAMIC = 17;
+  private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+  private static final int CONSTANT_MODULE = 19;
+  private static final int CONSTANT_PACKAGE = 20;
+
+  private final Map<String, InjectionKind> wrapperKinds;
+  private final StringBuilder stringBuilder = new StringBuilder();
+  private int[] constantOffsets = new int[256];
+  private String[] utf8Cache = new String[256];
+  private ByteBuffer classFile;
+
+  /** @param wrapperKinds kinds of the wrapper types, by fully qualified name. */
+  ClassFileParser(@NotNull Map<String, InjectionKind> wrapperKinds) {
+    this.wrapperKinds = wrapperKinds;
+  }
+
+  /**
+   * @param directSupertypes the super class (but {@link Object}) and interfaces of each class.
+   * @param unresolvedInjections the direct injections that may inject a sub type of a wrapper.
+   */
+  void parse(
+      @NotNull ByteBuffer classFileBuffer,
+      @NotNull InjectionModel model,
+      @NotNull Map<String, List<String>> directSupertypes,
+      @NotNull List<UnresolvedInjection> unresolvedInjections)
+      throws IOException {
+    classFile = classFileBuffer.order(ByteOrder.BIG_ENDIAN);
+    try {
+      if (classFile.getInt() != MAGIC) {
+        throw new IOException("Not a class file");
+      }
+      // minor and major versions
+      skip(4);
+      readConstantPool();
+      // access flags
+      skip(2);
+      final String type = readClassName(readUnsignedShort());
+      model.addDefinedType(type);
+      final List<String> supertypes = new ArrayList<>();
+      final int superClassIndex = readUnsignedShort();
+      if (superClassIndex != 0) {
+        final String superClass = readClassName(superClassIndex);
+        if (OBJECT_CLASS_NAME.equals(superClass)) {
+          model.addType(type);
+        } else {
+          model.addSuperClass(type, superClass);
+          supertypes.add(superClass);
+        }
+      }
+      final int interfaceCount = readUnsignedShort();
+      for (int i = 0; i < interfaceCount; i++) {
+        supertypes.add(readClassName(readUnsignedShort()));
+      }
+      directSupertypes.put(type, supertypes);
+      final int fieldCount = readUnsignedShort();
+      for (int i = 0; i < fieldCount; i++) {
+        readField(type, model, unresolvedInjections);
+      }
+    } catch (RuntimeException e) {
+      // buffer underflows and invalid indexes of a corrupted class file
+      throw new IOException("Corrupted class file", e);
+    } finally {
+      classFile = null;
+    }
+  }
+
+  private void readConstantPool() throws IOException {
+    final int constantCount = readUnsignedShort();
+    if (constantOffsets.length < constantCount) {
+      constantOffsets = new int[constantCount];
+      utf8Cache = new String[constantCount];
+    } else {
+      Arrays.fill(utf8Cache, 0, constantCount, null);
+    }
+    for (int i = 1; i < constantCount; i++) {
+      constantOffsets[i] = classFile.position();
+      final int tag = classFile.get();
+      switch (tag) {
+        case CONSTANT_UTF8:
+          skip(readUnsignedShort());
+          break;
+        case CONSTANT_CLASS:
+        case CONSTANT_STRING:
+        case CONSTANT_METHOD_TYPE:
+        case CONSTANT_MODULE:
+        case CONSTANT_PACKAGE:
+          skip(2);
+          break;
+        case CONSTANT_METHOD_HANDLE:
+          skip(3);
+          break;
+        case CONSTANT_INTEGER:
+        case CONSTANT_FLOAT:
+        case CONSTANT_FIELDREF:
+        case CONSTANT_METHODREF:
+        case CONSTANT_INTERFACE_METHODREF:
+        case CONSTANT_NAME_AND_TYPE:
+        case CONSTANT_DYNAMIC:
+        case CONSTANT_INVOKE_DYNAMIC:
+          skip(4);
+          break;
+        case CONSTANT_LONG:
+        case CONSTANT_DOUBLE:
+          skip(8);
+          // 8 bytes constants take two entries
+          i++;
+          break;
+        default:
+          throw new IOException("Unknown constant pool tag " + tag);
+      }
+    }
+  }
+
+  private void readField(
+      String ownerType, InjectionModel model, List<UnresolvedInjection> unresolvedInjections) {
+    // access flags
+    skip(2);
+    final int nameIndex = readUnsignedShort();
+    final int descriptorIndex = readUnsignedShort();
+    boolean injected = false;
+    String named = null;
+    String signature = null;
+    final int attributeCount = readUnsignedShort();
+    for (int i = 0; i < attributeCount; i++) {
+      final String attributeName = readUtf8(readUnsignedShort());
+      final int attributeLength = classFile.getInt();
+      final int attributeEnd = classFile.position() + attributeLength;
+      if (RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName)) {
+        final int annotationCount = readUnsignedShort();
+        for (int j = 0; j < annotationCount; j++) {
+          final String annotationType = readUtf8(readUnsignedShort());
+          if (INJECT_DESCRIPTOR.equals(annotationType)) {
+            injected = true;
+            skipElementValuePairs();
+          } else if (NAMED_DESCRIPTOR.equals(annotationType)) {
+            named = readNamedValue();
+          } else {
+            skipElementValuePairs();
+          }
+        }
+      } else if (SIGNATURE.equals(attributeName)) {
+        signature = readUtf8(readUnsignedShort());
+      }
+      classFile.position(attributeEnd);
+    }
+    if (!injected) {
+      return;
+    }
+
+    final String fieldType = signature != null ? signature : readUtf8(descriptorIndex);
+    final int rawTypeEnd = rawTypeEnd(fieldType);
+    final InjectionKind kind =
+        fieldType.charAt(0) == 'L'
+            ? wrapperKinds.get(toSourceName(fieldType, 1, rawTypeEnd))
+            : null;
+    final String injectedType;
+    if (kind == null || kind == InjectionKind.DIRECT) {
+      injectedType = toSourceType(fieldType);
+    } else {
+      final String typeArgument = firstTypeArgument(fieldType, rawTypeEnd);
+      if (typeArgument == null) {
+        return;
+      }
+      injectedType = toSourceName(typeArgument, 1, rawTypeEnd(typeArgument));
+    }
+    final InjectionSite site =
+        new InjectionSite(
+            ownerType,
+            readUtf8(nameIndex),
+            injectedType,
+            kind != null ? kind : InjectionKind.DIRECT,
+            named);
+    model.addInjectionSite(site);
+    if (kind == null && fieldType.charAt(0) == 'L') {
+      unresolvedInjections.add(
+          new UnresolvedInjection(
+              site, toSourceName(fieldType, 1, rawTypeEnd), wrappedType(fieldType, rawTypeEnd)));
+    }
+  }
+
+  /**
+   * @return the type injected by a field of type {@code signature} if it is a sub type of a
+   *     wrapper, like the processor determines it: its single type argument or else the field type
+   *     itself, {@code null} if the single type argument is not a class.
+   */
+  @Nullable
+  private static String wrappedType(String signature, int rawTypeEnd) {
+    if (rawTypeEnd < signature.length() && signature.charAt(rawTypeEnd) == '<') {
+      final int argumentEnd = typeSignatureEnd(signature, rawTypeEnd + 1);
+      if (signature.charAt(argumentEnd) == '>') {
+        final String typeArgument = firstTypeArgument(signature, rawTypeEnd);
+        return typeArgument != null
+            ? toSourceName(typeArgument, 1, rawTypeEnd(typeArgument))
+            : null;
+      }
+    }
+    return toSourceName(signature, 1, rawTypeEnd);
+  }
+
+  /** @return the value of a {@code @Named} annotation, the annotation has a single element. */
+  @Nullable
+  private String readNamedValue() {
+    String value = null;
+    final int pairCount = readUnsignedShort();
+    for (int i = 0; i < pairCount; i++) {
+      // element name, always "value"
+      skip(2);
+      if (classFile.get(classFile.position()) == 's') {
+        skip(1);
+        value = readUtf8(readUnsignedShort());
+      } else {
+        skipElementValue();
+      }
+    }
+    return value;
+  }
+
+  private void skipElementValuePairs() {
+    final int pairCount = readUnsignedShort();
+    for (int i = 0; i < pairCount; i++) {
+      skip(2);
+      skipElementValue();
+    }
+  }
+
+  private void skipElementValue() {
+    final int tag = classFile.get();
+    switch (tag) {
+      case 'e':
+        skip(4);
+        break;
+      case '@':
+        skip(2);
+        skipElementValuePairs();
+        break;
+      case '[':
+        final int valueCount = readUnsignedShort();
+        for (int i = 0; i < valueCount; i++) {
+          skipElementValue();
+        }
+        break;
+      default:
+        // constants and classes
+        skip(2);
+        break;
+    }
+  }
+
+  /** @return the name of a {@code CONSTANT_Class} in source form. */
+  private String readClassName(int classIndex) {
+    final String internalName =
+        readUtf8(classFile.getShort(constantOffsets[classIndex] + 1) & 0xffff);
+    return toSourceName(internalName, 0, internalName.length());
+  }
+
+  /** Decodes a {@code CONSTANT_Utf8}, strings are decoded once per class file. */
+  private String readUtf8(int index) {
+    String value = utf8Cache[index];
+    if (value != null) {
+      return value;
+    }
+    final int offset = constantOffsets[index];
+    final int length = classFile.getShort(offset + 1) & 0xffff;
+    final int end = offset + 3 + length;
+    stringBuilder.setLength(0);
+    int position = offset + 3;
+    while (position < end) {
+      final int b = classFile.get(position++) & 0xff;
+      if (b < 0x80) {
+        stringBuilder.append((char) b);
+      } else if (b < 0xe0) {
+        stringBuilder.append((char) (((b & 0x1f) << 6) | (classFile.get(position++) & 0x3f)));
+      } else {
+        final int b2 = classFile.get(position++) & 0x3f;
+        final int b3 = classFile.get(position++) & 0x3f;
+        stringBuilder.append((char) (((b & 0x0f) << 12) | (b2 << 6) | b3));
+      }
+    }
+    value = stringBuilder.toString();
+    utf8Cache[index] = value;
+    return value;
+  }
+
+  private int readUnsignedShort() {
+    return classFile.getShort() & 0xffff;
+  }
+
+  private void skip(int length) {
+    classFile.position(classFile.position() + length);
+  }
+
+  /**
+   * @return the index following the class name of a {@code L...;} signature, i.e. the index of
+   *     {@code <} or {@code ;}.
+   */
+  private static int rawTypeEnd(String signature) {
+    int i = 0;
+    while (i < signature.length()
+        && signature.charAt(i) != '<'
+        && signature.charAt(i) != ';') {
+      i++;
+    }
+    return i;
+  }
+
+  /** @return the signature of the first type argument of {@code signature}, if any. */
+  @Nullable
+  private static String firstTypeArgument(String signature, int rawTypeEnd) {
+    if (rawTypeEnd >= signature.length() || signature.charAt(rawTypeEnd) != '<') {
+      return null;
+    }
+    final int start = rawTypeEnd + 1;
+    final int end = typeSignatureEnd(signature, start);
+    final String argument = signature.substring(start, end);
+    return argument.charAt(0) == 'L' ? argument : null;
+  }
+
+  /** @return the index following the type signature starting at {@code start}. */
+  private static int typeSignatureEnd(String signature, int start) {
+    int i = start;
+    while (signature.charAt(i) == '[' || signature.charAt(i) == '+'
+        || signature.charAt(i) == '-') {
+      i++;
+    }
+    final char c = signature.charAt(i);
+    if (c != 'L' && c != 'T') {
+      return i + 1;
+    }
+    int depth = 0;
+    while (true) {
+      final char current = signature.charAt(i++);
+      if (current == '<') {
+        depth++;
+      } else if (current == '>') {
+        depth--;
+      } else if (current == ';' && depth == 0) {
+        return i;
+      }
+    }
+  }
+
+  /** @return the type of a field signature as printed by javac, i.e. {@code List<Foo>}. */
+  private static String toSourceType(String signature) {
+    final StringBuilder type = new StringBuilder();
+    appendSourceType(signature, 0, type);
+    return type.toString();
+  }
+
+  private static int appendSourceType(String signature, int start, StringBuilder type) {
+    final char c = signature.charAt(start);
+    switch (c) {
+      case '[':
+        final int end = appendSourceType(signature, start + 1, type);
+        type.append("[]");
+        return end;
+      case '*':
+        type.append('?');
+        return start + 1;
+      case '+':
+        type.append("? extends ");
+        return appendSourceType(signature, start + 1, type);
+      case '-':
+        type.append("? super ");
+        return appendSourceType(signature, start + 1, type);
+      case 'T':
+        final int variableEnd = signature.indexOf(';', start);
+        type.append(signature, start + 1, variableEnd);
+        return variableEnd + 1;
+      case 'L':
+        return appendClassType(signature, start + 1, type);
+      default:
+        type.append(primitiveName(c));
+        return start + 1;
+    }
+  }
+
+  private static int appendClassType(String signature, int start, StringBuilder type) {
+    int i = start;
+    int nameStart = start;
+    while (true) {
+      final char c = signature.charAt(i);
+      if (c == ';') {
+        type.append(toSourceName(signature, nameStart, i));
+        return i + 1;
+      } else if (c == '.') {
+        // nested class of a parameterized type
+        type.append(toSourceName(signature, nameStart, i)).append('.');
+        nameStart = ++i;
+      } else if (c == '<') {
+        type.append(toSourceName(signature, nameStart, i)).append('<');
+        i++;
+        boolean first = true;
+        while (signature.charAt(i) != '>') {
+          if (!first) {
+            type.append(',');
+          }
+          first = false;
+          i = appendSourceType(signature, i, type);
+        }
+        type.append('>');
+        nameStart = ++i;
+        if (signature.charAt(i) == ';') {
+          return i + 1;
+        }
+      } else {
+        i++;
+      }
+    }
+  }
+
+  private static String toSourceName(String internalName, int start, int end) {
+    final StringBuilder name = new StringBuilder(end - start);
+    for (int i = start; i < end; i++) {
+      final char c = internalName.charAt(i);
+      name.append(c == '/' || c == '$' ? '.' : c);
+    }
+    return name.toString();
+  }
+
+  private static String primitiveName(char descriptor) {
+    switch (descriptor) {
+      case 'Z':
+        return "boolean";
+      case 'B':
+        return "byte";
+      case 'C':
+        return "char";
+      case 'S':
+        return "short";
+      case 'I':
+        return "int";
+      case 'J':
+        return "long";
+      case 'F':
+        return "float";
+      case 'D':
+        return "double";
+      default:
+        return "void";
+    }
+  }
+
+  /** An injection of a class type that is a wrapper if its raw type is a sub type of a wrapper. */
+  static final class UnresolvedInjection {
+
+    final InjectionSite site;
+    final String rawType;
+    @Nullable final String wrappedType;
+
+    UnresolvedInjection(InjectionSite site, String rawType, @Nullable String wrappedType) {
+      this.site = site;
+      this.rawType = rawType;
+      this.wrappedType = wrappedType;
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.scanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reads the central directory of a zip archive (jar, aar) held in a {@link ByteBuffer}, usually a
+ * file mapped in memory. Only the headers are read, entries are views on the buffer.
+ *
+ * <p>Zip64 archives are not supported, none of the jars and aars of an Android build need it.
+ */
+final class ZipArchive {
+
+  private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+  private static final int MAX_COMMENT_SIZE = 0xffff;
+  private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+  private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int LOCAL_HEADER_SIZE = 30;
+
+  private final String archiveName;
+  private final ByteBuffer buffer;
+
+  ZipArchive(@NotNull String archiveName, @NotNull ByteBuffer buffer) {
+    this.archiveName = archiveName;
+    this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /** @return all the file entries of the archive, in the order of the central directory. */
+  List<ClassFileEntry> getEntries() throws IOException {
+    final int endOfCentralDirectory = findEndOfCentralDirectory();
+    final int entryCount = buffer.getShort(endOfCentralDirectory + 10) & 0xffff;
+    final long centralDirectoryOffset = buffer.getInt(endOfCentralDirectory + 16) & 0xffffffffL;
+    if (entryCount == 0xffff || centralDirectoryOffset == 0xffffffffL) {
+      throw new IOException("Zip64 archives are not supported: " + archiveName);
+    }
+
+    final List<ClassFileEntry> entries = new ArrayList<>(entryCount);
+    int offset = (int) centralDirectoryOffset;
+    for (int i = 0; i < entryCount; i++) {
+      if (buffer.getInt(offset) != CENTRAL_DIRECTORY_SIGNATURE) {
+        throw new IOException("Corrupted central directory in " + archiveName);
+      }
+      final int method = buffer.getShort(offset + 10) & 0xffff;
+      final int compressedSize = buffer.getInt(offset + 20);
+      final int size = buffer.getInt(offset + 24);
+      final int nameLength = buffer.getShort(offset + 28) & 0xffff;
+      final int extraLength = buffer.getShort(offset + 30) & 0xffff;
+      final int commentLength = buffer.getShort(offset + 32) & 0xffff;
+      final int localHeaderOffset = buffer.getInt(offset + 42);
+      final String name = readName(offset + CENTRAL_DIRECTORY_HEADER_SIZE, nameLength);
+      if (!name.endsWith("/")) {
+        entries.add(
+            new ClassFileEntry(
+                name, buffer, dataOffset(localHeaderOffset, name), compressedSize, size, method));
+      }
+      offset += CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength;
+    }
+    return entries;
+  }
+
+  /** The local header can have a different extra field than the central directory. */
+  private int dataOffset(int localHeaderOffset, String name) throws IOException {
+    if (buffer.getInt(localHeaderOffset) != LOCAL_HEADER_SIGNATURE) {
+      throw new IOException("Corrupted local header of " + name + " in " + archiveName);
+    }
+    final int nameLength = buffer.getShort(localHeaderOffset + 26) & 0xffff;
+    final int extraLength = buffer.getShort(localHeaderOffset + 28) & 0xffff;
+    return localHeaderOffset + LOCAL_HEADER_SIZE + nameLength + extraLength;
+  }
+
+  private int findEndOfCentralDirectory() throws IOException {
+    final int last = buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+    final int first = Math.max(0, last - MAX_COMMENT_SIZE);
+    for (int offset = last; offset >= first; offset--) {
+      if (buffer.getInt(offset) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+        return offset;
+      }
+    }
+    throw new IOException("Not a zip archive: " + archiveName);
+  }
+
+  private String readName(int offset, int length) {
+    final byte[] name = new byte[length];
+    final ByteBuffer nameBuffer = buffer.duplicate();
+    nameBuffer.position(offset);
+    nameBuffer.get(name);
+    return new String(name, StandardCharsets.UTF_8);
+  }
+}
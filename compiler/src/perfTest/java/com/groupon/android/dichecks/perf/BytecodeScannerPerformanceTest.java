@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.perf;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import com.groupon.android.dichecks.scanner.BytecodeScanner;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.inject.Inject;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Throughput of the {@link BytecodeScanner} pipeline: scanning with one worker per core (up to 16)
+ * must be close to linearly faster than scanning with a single worker. Skipped on machines with
+ * less than 4 cores where the measure is meaningless.
+ */
+public class BytecodeScannerPerformanceTest {
+
+  private static final int MAX_THREADS = 16;
+  private static final int CLASS_COUNT = 2000;
+  private static final int JAR_COPIES = 20;
+  private static final int RUNS = 3;
+  // fraction of the ideal linear speedup the pipeline must reach
+  private static final double MIN_SCALING_EFFICIENCY = 0.5;
+
+  @ClassRule public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static List<File> jars;
+
+  @BeforeClass
+  public static void buildJars() throws Exception {
+    final File classesDir = temporaryFolder.newFolder("classes");
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final JavaCompiler.CompilationTask task =
+        compiler.getTask(
+            null,
+            null,
+            null,
+            Arrays.asList(
+                "-proc:none",
+                "-d",
+                classesDir.getPath(),
+                "-classpath",
+                new File(Inject.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                    .getPath()),
+            null,
+            InjectionSourceGenerator.generate(CLASS_COUNT, 12, 5));
+    assertThat(task.call()).isTrue();
+
+    final File jar = temporaryFolder.newFile("classes.jar");
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+      addEntries(out, classesDir, "");
+    }
+    // the same jar scanned as many inputs, as the aars of an app
+    jars = new ArrayList<>();
+    for (int i = 0; i < JAR_COPIES; i++) {
+      jars.add(jar);
+    }
+  }
+
+  @Test
+  public void scannerThroughputShouldScaleWithCores() throws IOException {
+    final int cores = Math.min(Runtime.getRuntime().availableProcessors(), MAX_THREADS);
+    Assume.assumeTrue(cores >= 4);
+
+    // warm up
+    scanTimeNanos(cores);
+    final long singleThreadNanos = scanTimeNanos(1);
+    final long multiThreadNanos = scanTimeNanos(cores);
+
+    final double speedup = (double) singleThreadNanos / multiThreadNanos;
+    assertWithMessage("speedup with " + cores + " workers")
+        .that(speedup)
+        .isAtLeast(cores * MIN_SCALING_EFFICIENCY);
+  }
+
+  /** @return the best wall time of a few scans. */
+  private static long scanTimeNanos(int threadCount) throws IOException {
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < RUNS; i++) {
+      final long start = System.nanoTime();
+      new BytecodeScanner(threadCount, BytecodeScanner.DEFAULT_QUEUE_CAPACITY).scan(jars);
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    return best;
+  }
+
+  private static void addEntries(ZipOutputStream out, File dir, String prefix)
+      throws IOException {
+    for (File file : dir.listFiles()) {
+      final String name = prefix + file.getName();
+      if (file.isDirectory()) {
+        addEntries(out, file, name + "/");
+        continue;
+      }
+      out.putNextEntry(new ZipEntry(name));
+      try (InputStream in = new FileInputStream(file)) {
+        final byte[] buffer = new byte[8192];
+        int length;
+        while ((length = in.read(buffer)) > 0) {
+          out.write(buffer, 0, length);
+        }
+      }
+      out.closeEntry();
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.perf;
+
+import com.google.testing.compile.JavaFileObjects;
+import java.util.ArrayList;
+import java.util.List;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a large code base shaped like an app: chains of {@code depth} classes extending each
+ * other, each class injecting {@code injectionsPerClass} dependencies.
+ *
+ * <p>The classes at the same depth of every chain inject the same dependencies, so each injection
+ * definition is shared by many owners and the duplicate check walks the whole hierarchy of every
+ * site, but no class injects a dependency of its ancestors: the sources compile without issues.
+ */
+final class InjectionSourceGenerator {
+
+  static final String PACKAGE = "com.groupon.android.dichecks.perf.generated";
+
+  private InjectionSourceGenerator() {}
+
+  static List<JavaFileObject> generate(int classCount, int depth, int injectionsPerClass) {
+    final List<JavaFileObject> sources = new ArrayList<>();
+    for (int level = 0; level < depth; level++) {
+      for (int index = 0; index < injectionsPerClass; index++) {
+        final String name = dependencyName(level, index);
+        sources.add(source(name, "public class " + name + " {}"));
+      }
+    }
+    for (int classIndex = 0; classIndex < classCount; classIndex++) {
+      final int chain = classIndex / depth;
+      final int level = classIndex % depth;
+      final String name = className(chain, level);
+      final StringBuilder body = new StringBuilder();
+      body.append("public class ").append(name);
+      if (level > 0) {
+        body.append(" extends ").append(className(chain, level - 1));
+      }
+      body.append(" {\n");
+      for (int index = 0; index < injectionsPerClass; index++) {
+        body.append("  @javax.inject.Inject ")
+            .append(dependencyName(level, index))
+            .append(" dependency")
+            .append(index)
+            .append(";\n");
+      }
+      body.append("}\n");
+      sources.add(source(name, body.toString()));
+    }
+    return sources;
+  }
+
+  private static String className(int chain, int level) {
+    return "Screen" + chain + "Level" + level;
+  }
+
+  private static String dependencyName(int level, int index) {
+    return "Dependency" + level + "x" + index;
+  }
+
+  private static JavaFileObject source(String name, String body) {
+    return JavaFileObjects.forSourceString(
+        PACKAGE + "." + name, "package " + PACKAGE + ";\n" + body);
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.perf;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Set;
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Measures the CPU time and the memory allocated by a processor, excluding the time javac spends
+ * parsing and attributing the sources. Javac calls the processors on the compiling thread, so the
+ * thread counters of {@link ThreadMXBean} only account for the processor's own work.
+ */
+final class MeasuringProcessor implements Processor {
+
+  private final Processor delegate;
+  private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+  private long cpuTimeNanos;
+  private long allocatedBytes;
+
+  MeasuringProcessor(Processor delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Set<String> getSupportedOptions() {
+    return delegate.getSupportedOptions();
+  }
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return delegate.getSupportedAnnotationTypes();
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return delegate.getSupportedSourceVersion();
+  }
+
+  @Override
+  public void init(ProcessingEnvironment processingEnv) {
+    final long startCpuTime = threadMXBean.getCurrentThreadCpuTime();
+    final long startAllocatedBytes = currentThreadAllocatedBytes();
+    delegate.init(processingEnv);
+    record(startCpuTime, startAllocatedBytes);
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    final long startCpuTime = threadMXBean.getCurrentThreadCpuTime();
+    final long startAllocatedBytes = currentThreadAllocatedBytes();
+    try {
+      return delegate.process(annotations, roundEnv);
+    } finally {
+      record(startCpuTime, startAllocatedBytes);
+    }
+  }
+
+  @Override
+  public Iterable<? extends Completion> getCompletions(
+      Element element, AnnotationMirror annotation, ExecutableElement member, String userText) {
+    return delegate.getCompletions(element, annotation, member, userText);
+  }
+
+  long getCpuTimeNanos() {
+    return cpuTimeNanos;
+  }
+
+  /** @return the bytes allocated by the processor, 0 if the JVM can't measure allocations. */
+  long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  private void record(long startCpuTime, long startAllocatedBytes) {
+    cpuTimeNanos += threadMXBean.getCurrentThreadCpuTime() - startCpuTime;
+    allocatedBytes += currentThreadAllocatedBytes() - startAllocatedBytes;
+  }
+
+  private long currentThreadAllocatedBytes() {
+    if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threadMXBean)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.perf;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import com.groupon.android.dichecks.processor.DiChecksProcessor;
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Performance regression suite of the processor: compiles a large generated code base through the
+ * javac API and bounds the CPU time and the allocations of the processor itself.
+ *
+ * <p>Bounds are deliberately loose (several times the measured cost) but absolute, they depend on
+ * the machine: the suite runs on demand on a dedicated agent. The growth of the cost is checked on
+ * every build by {@link ProcessorScalingTest}.
+ */
+public class ProcessorPerformanceTest {
+
+  private static final int DEPTH = 12;
+  private static final int INJECTIONS_PER_CLASS = 5;
+  private static final int LARGE_CLASS_COUNT = 10000;
+
+  private static final long MAX_LARGE_CPU_TIME_MILLIS = 3000;
+  private static final long MAX_LARGE_ALLOCATED_BYTES = 512L * 1024 * 1024;
+
+  private static MeasuringProcessor large;
+
+  @BeforeClass
+  public static void compileGeneratedSources() throws Exception {
+    // warms up javac and the processor so the run is not dominated by class loading and JIT
+    compile(LARGE_CLASS_COUNT / 10, DEPTH, INJECTIONS_PER_CLASS);
+    large = compile(LARGE_CLASS_COUNT, DEPTH, INJECTIONS_PER_CLASS);
+  }
+
+  @Test
+  public void processorShouldStayWithinTimeBudgetOnLargeCodeBase() {
+    assertWithMessage("processor CPU time (ms) for " + LARGE_CLASS_COUNT + " classes")
+        .that(TimeUnit.NANOSECONDS.toMillis(large.getCpuTimeNanos()))
+        .isLessThan(MAX_LARGE_CPU_TIME_MILLIS);
+  }
+
+  @Test
+  public void processorShouldStayWithinAllocationBudgetOnLargeCodeBase() {
+    assertWithMessage("processor allocations (bytes) for " + LARGE_CLASS_COUNT + " classes")
+        .that(large.getAllocatedBytes())
+        .isLessThan(MAX_LARGE_ALLOCATED_BYTES);
+  }
+
+  /**
+   * Runs the processor on a generated code base.
+   *
+   * @return the measures of the processor.
+   */
+  static MeasuringProcessor compile(int classCount, int depth, int injectionsPerClass)
+      throws URISyntaxException {
+    final List<JavaFileObject> sources =
+        InjectionSourceGenerator.generate(classCount, depth, injectionsPerClass);
+    final MeasuringProcessor processor = new MeasuringProcessor(new DiChecksProcessor());
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    final JavaCompiler.CompilationTask task =
+        compiler.getTask(
+            null,
+            compiler.getStandardFileManager(diagnostics, null, null),
+            diagnostics,
+            Arrays.asList("-proc:only", "-classpath", injectClasspath()),
+            null,
+            sources);
+    task.setProcessors(Collections.singletonList(processor));
+
+    final boolean success = task.call();
+    assertWithMessage(diagnostics.getDiagnostics().toString()).that(success).isTrue();
+    assertThat(processor.getCpuTimeNanos()).isGreaterThan(0L);
+    return processor;
+  }
+
+  private static String injectClasspath() throws URISyntaxException {
+    return new File(Inject.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+        .getPath();
+  }
+}
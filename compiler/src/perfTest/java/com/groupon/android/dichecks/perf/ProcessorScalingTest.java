@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.perf;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks that the cost of the processor grows linearly with the code base: doubling the number of
+ * classes must not much more than double its CPU time and allocations. Unlike absolute bounds, the
+ * ratios don't depend on the speed of the machine, the test runs with {@code check}.
+ */
+public class ProcessorScalingTest {
+
+  private static final int DEPTH = 12;
+  private static final int INJECTIONS_PER_CLASS = 5;
+  private static final int CLASS_COUNT = 2000;
+  private static final int RUNS = 3;
+  // linear growth gives a ratio of ~2 for 2x inputs, quadratic growth ~4
+  private static final double MAX_SCALING_RATIO = 3;
+
+  private static long smallCpuTimeNanos = Long.MAX_VALUE;
+  private static long smallAllocatedBytes = Long.MAX_VALUE;
+  private static long largeCpuTimeNanos = Long.MAX_VALUE;
+  private static long largeAllocatedBytes = Long.MAX_VALUE;
+
+  /** Keeps the best of a few runs of each size, the first one also warms up javac and the JIT. */
+  @BeforeClass
+  public static void compileGeneratedSources() throws Exception {
+    ProcessorPerformanceTest.compile(CLASS_COUNT, DEPTH, INJECTIONS_PER_CLASS);
+    for (int i = 0; i < RUNS; i++) {
+      final MeasuringProcessor small =
+          ProcessorPerformanceTest.compile(CLASS_COUNT, DEPTH, INJECTIONS_PER_CLASS);
+      smallCpuTimeNanos = Math.min(smallCpuTimeNanos, small.getCpuTimeNanos());
+      smallAllocatedBytes = Math.min(smallAllocatedBytes, small.getAllocatedBytes());
+      final MeasuringProcessor large =
+          ProcessorPerformanceTest.compile(2 * CLASS_COUNT, DEPTH, INJECTIONS_PER_CLASS);
+      largeCpuTimeNanos = Math.min(largeCpuTimeNanos, large.getCpuTimeNanos());
+      largeAllocatedBytes = Math.min(largeAllocatedBytes, large.getAllocatedBytes());
+    }
+  }
+
+  @Test
+  public void processorCpuTimeShouldScaleLinearly() {
+    assertWithMessage("CPU time ratio between 2n and n classes")
+        .that(ratio(largeCpuTimeNanos, smallCpuTimeNanos))
+        .isLessThan(MAX_SCALING_RATIO);
+  }
+
+  @Test
+  public void processorAllocationsShouldScaleLinearly() {
+    if (smallAllocatedBytes > 0) {
+      assertWithMessage("allocation ratio between 2n and n classes")
+          .that(ratio(largeAllocatedBytes, smallAllocatedBytes))
+          .isLessThan(MAX_SCALING_RATIO);
+    }
+  }
+
+  private static double ratio(long large, long small) {
+    return (double) large / Math.max(small, 1);
+  }
+}
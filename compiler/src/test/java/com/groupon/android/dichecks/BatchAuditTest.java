@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+import com.groupon.android.dichecks.audit.BatchAudit;
+import com.groupon.android.dichecks.audit.ModuleResult;
+import com.groupon.android.dichecks.audit.ModuleSpec;
+import com.groupon.android.dichecks.processor.CompilerOptions;
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Inject;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BatchAuditTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void auditShouldReportDuplicatesSpanningModules() throws Exception {
+    final File injectJar = getInjectJar();
+    final File libSources = temporaryFolder.newFolder("lib");
+    final File libClasses = compileLib(libSources, injectJar);
+    final File appSources = temporaryFolder.newFolder("app");
+    write(
+        appSources,
+        "App.java",
+        "package com.groupon.android.dichecks.app;",
+        "import javax.inject.Inject;",
+        "public class App extends com.groupon.android.dichecks.lib.Base {",
+        "    @Inject String name;",
+        "    @Inject Integer count;",
+        "}",
+        "class Screen extends App {",
+        "    @Inject Integer count;",
+        "}");
+
+    final List<ModuleSpec> modules =
+        Arrays.asList(
+            new ModuleSpec(
+                "lib",
+                Collections.singletonList(libSources),
+                Collections.singletonList(injectJar)),
+            new ModuleSpec(
+                "app",
+                Collections.singletonList(appSources),
+                Arrays.asList(injectJar, libClasses)));
+    final BatchAudit audit = newBatchAudit(Collections.<String, String>emptyMap());
+    final List<ModuleResult> results = audit.audit(modules);
+    final ModuleResult allModules = audit.checkAllModules(results);
+
+    assertThat(results).hasSize(2);
+    assertThat(results.get(0).getName()).isEqualTo("lib");
+    assertThat(results.get(0).getErrorCount()).isEqualTo(0);
+    assertThat(results.get(1).getGraphFile()).isNotNull();
+    // the duplicate within the app module is reported by the processor only
+    assertThat(results.get(1).getErrorCount()).isEqualTo(1);
+    assertThat(allModules.getDiagnostics())
+        .containsExactly(
+            "ERROR: Duplicate injection found: injected class java.lang.String in "
+                + "com.groupon.android.dichecks.app.App also found in "
+                + "com.groupon.android.dichecks.lib.Base.");
+    assertThat(allModules.getErrorCount()).isEqualTo(1);
+
+    final StringWriter report = new StringWriter();
+    BatchAudit.writeReport(results, allModules, report);
+    assertThat(report.toString()).contains("# module lib: 0 diagnostic(s), 0 error(s)");
+    assertThat(report.toString()).contains("# all modules: 1 issue(s), 1 error(s)");
+  }
+
+  @Test
+  public void auditShouldReportDuplicatesWithTheSeverityAndSuppressionOfTheirSite()
+      throws Exception {
+    final File injectJar = getInjectJar();
+    final File libSources = temporaryFolder.newFolder("lib");
+    final File libClasses = compileLib(libSources, injectJar);
+    final File appSources = temporaryFolder.newFolder("app");
+    write(
+        appSources,
+        "App.java",
+        "package com.groupon.android.dichecks.app;",
+        "import javax.inject.Inject;",
+        "public class App extends com.groupon.android.dichecks.lib.Base {",
+        "    @Inject String name;",
+        "}");
+    write(
+        appSources,
+        "Legacy.java",
+        "package com.groupon.android.dichecks.app;",
+        "import javax.inject.Inject;",
+        "public class Legacy extends com.groupon.android.dichecks.lib.Base {",
+        "    @SuppressWarnings(\"com.groupon.android.dichecks.duplicateCheck\")",
+        "    @Inject String name;",
+        "}");
+    final List<ModuleSpec> modules =
+        Arrays.asList(
+            new ModuleSpec(
+                "lib",
+                Collections.singletonList(libSources),
+                Collections.singletonList(injectJar)),
+            new ModuleSpec(
+                "app",
+                Collections.singletonList(appSources),
+                Arrays.asList(injectJar, libClasses)));
+    final BatchAudit audit =
+        newBatchAudit(
+            Collections.singletonMap(
+                CompilerOptions.DUPLICATE_INJECTION_IN_HIERARCHY_SEVERITY, "warning"));
+
+    final ModuleResult allModules = audit.checkAllModules(audit.audit(modules));
+
+    assertThat(allModules.getDiagnostics())
+        .containsExactly(
+            "WARNING: Duplicate injection found: injected class java.lang.String in "
+                + "com.groupon.android.dichecks.app.App also found in "
+                + "com.groupon.android.dichecks.lib.Base.");
+    assertThat(allModules.getErrorCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void auditShouldReportDuplicatesOfTheLibrariesOfTheClasspath() throws Exception {
+    final File injectJar = getInjectJar();
+    // a prebuilt library, not audited
+    final File libClasses = compileLib(temporaryFolder.newFolder("lib"), injectJar);
+    final File appSources = temporaryFolder.newFolder("app");
+    write(
+        appSources,
+        "App.java",
+        "package com.groupon.android.dichecks.app;",
+        "import javax.inject.Inject;",
+        "public class App extends com.groupon.android.dichecks.lib.Base {",
+        "    @Inject String name;",
+        "}");
+    final BatchAudit audit = newBatchAudit(Collections.<String, String>emptyMap());
+
+    final ModuleResult allModules =
+        audit.checkAllModules(
+            audit.audit(
+                Collections.singletonList(
+                    new ModuleSpec(
+                        "app",
+                        Collections.singletonList(appSources),
+                        Arrays.asList(injectJar, libClasses)))));
+
+    assertThat(allModules.getDiagnostics())
+        .containsExactly(
+            "ERROR: Duplicate injection found: injected class java.lang.String in "
+                + "com.groupon.android.dichecks.app.App also found in "
+                + "com.groupon.android.dichecks.lib.Base.");
+  }
+
+  @Test
+  public void auditShouldResolveTheTypesOfTheGeneratedSourceRoots() throws Exception {
+    final File injectJar = getInjectJar();
+    final File generatedSources = temporaryFolder.newFolder("generated");
+    write(
+        temporaryFolder.newFolder("generated", "com", "groupon", "android", "dichecks", "app"),
+        "BuildConfig.java",
+        "package com.groupon.android.dichecks.app;",
+        "public final class BuildConfig {}");
+    final File appSources = temporaryFolder.newFolder("app");
+    write(
+        appSources,
+        "App.java",
+        "package com.groupon.android.dichecks.app;",
+        "import javax.inject.Inject;",
+        "public class App {",
+        "    @Inject BuildConfig buildConfig;",
+        "}");
+
+    final List<ModuleResult> results =
+        new BatchAudit(
+                1,
+                Collections.<String, String>emptyMap(),
+                new File(temporaryFolder.getRoot(), "graphs"))
+            .audit(
+                Collections.singletonList(
+                    new ModuleSpec(
+                        "app",
+                        Collections.singletonList(appSources),
+                        Collections.singletonList(injectJar),
+                        Collections.singletonList(generatedSources))));
+
+    assertThat(results.get(0).getDiagnostics()).isEmpty();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void auditShouldRejectModulesWithTheSameName() throws Exception {
+    final ModuleSpec module =
+        new ModuleSpec(
+            "app",
+            Collections.singletonList(temporaryFolder.newFolder("app")),
+            Collections.<File>emptyList());
+
+    new BatchAudit(1, Collections.<String, String>emptyMap(), temporaryFolder.getRoot())
+        .audit(Arrays.asList(module, module));
+  }
+
+  @Test
+  public void moduleSpecShouldParseTabSeparatedLine() {
+    final ModuleSpec spec =
+        ModuleSpec.parse("app\tsrc/main/java" + File.pathSeparator + "build/gen\tlib.jar");
+
+    assertThat(spec.getName()).isEqualTo("app");
+    assertThat(spec.getSourceRoots())
+        .containsExactly(new File("src/main/java"), new File("build/gen"))
+        .inOrder();
+    assertThat(spec.getClasspath()).containsExactly(new File("lib.jar"));
+    assertThat(spec.getGeneratedSourceRoots()).isEmpty();
+    assertThat(ModuleSpec.parse("app\tsrc\tlib.jar\tbuild/generated").getGeneratedSourceRoots())
+        .containsExactly(new File("build/generated"));
+  }
+
+  private BatchAudit newBatchAudit(Map<String, String> processorOptions) {
+    return new BatchAudit(2, processorOptions, new File(temporaryFolder.getRoot(), "graphs"));
+  }
+
+  private static File getInjectJar() throws Exception {
+    return new File(Inject.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+  }
+
+  /** Writes the sources of the lib module in {@code libSources}, then compiles them. */
+  private File compileLib(File libSources, File injectJar) throws Exception {
+    final File baseSource =
+        write(
+            libSources,
+            "Base.java",
+            "package com.groupon.android.dichecks.lib;",
+            "import javax.inject.Inject;",
+            "public class Base {",
+            "    @Inject String name;",
+            "}");
+    final File libClasses = temporaryFolder.newFolder("lib-classes");
+    compile(baseSource, libClasses, injectJar);
+    return libClasses;
+  }
+
+  private static File write(File dir, String fileName, String... lines) throws Exception {
+    final File file = new File(dir, fileName);
+    Files.write(Joiner.on('\n').join(lines), file, StandardCharsets.UTF_8);
+    return file;
+  }
+
+  private static void compile(File source, File classesDir, File classpath) throws Exception {
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    try (StandardJavaFileManager fileManager =
+        compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+      final JavaCompiler.CompilationTask task =
+          compiler.getTask(
+              null,
+              fileManager,
+              null,
+              Arrays.asList(
+                  "-proc:none", "-d", classesDir.getPath(), "-classpath", classpath.getPath()),
+              null,
+              fileManager.getJavaFileObjects(source));
+      assertThat(task.call()).isTrue();
+    }
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Joiner;
+import com.google.common.io.ByteStreams;
+import com.google.testing.compile.JavaFileObjects;
+import com.groupon.android.dichecks.export.GraphReader;
+import com.groupon.android.dichecks.model.InjectionKind;
+import com.groupon.android.dichecks.model.InjectionModel;
+import com.groupon.android.dichecks.model.InjectionSite;
+import com.groupon.android.dichecks.processor.DiChecksProcessor;
+import com.groupon.android.dichecks.scanner.BytecodeScanner;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.inject.Inject;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BytecodeScannerTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void scannerShouldBuildTheSameModelAsTheProcessor() throws Exception {
+    final File classesDir = temporaryFolder.newFolder("classes");
+    final File graphFile = new File(temporaryFolder.getRoot(), "module.digraph");
+    compile(classesDir, graphFile);
+
+    final File jar = new File(temporaryFolder.getRoot(), "classes.jar");
+    zip(jar, classesDir, false);
+    final File aarContent = temporaryFolder.newFolder("aar");
+    try (InputStream in = new FileInputStream(jar);
+        FileOutputStream out = new FileOutputStream(new File(aarContent, "classes.jar"))) {
+      ByteStreams.copy(in, out);
+    }
+    final File aar = new File(temporaryFolder.getRoot(), "library.aar");
+    zip(aar, aarContent, true);
+
+    final InjectionModel processorModel;
+    try (GraphReader reader = new GraphReader(new FileInputStream(graphFile))) {
+      processorModel = reader.readModel();
+    }
+    final InjectionModel scannedModel =
+        new BytecodeScanner(2, 2).scan(Collections.singletonList(aar));
+
+    assertThat(scannedModel.getInjectionSites())
+        .containsExactlyElementsIn(withoutSeverity(processorModel.getInjectionSites()));
+    assertThat(scannedModel.getSuperClasses())
+        .containsEntry(
+            "com.groupon.android.dichecks.dummy.B", "com.groupon.android.dichecks.dummy.A");
+    assertThat(scannedModel.getSuperClasses())
+        .containsEntry(
+            "com.groupon.android.dichecks.dummy.A.Inner", "com.groupon.android.dichecks.dummy.B");
+  }
+
+  @Test
+  public void scannerShouldClassifyTheSubtypesOfTheWrapperTypes() throws Exception {
+    final File classesDir = temporaryFolder.newFolder("classes");
+    final File graphFile = new File(temporaryFolder.getRoot(), "module.digraph");
+    compile(
+        classesDir,
+        graphFile,
+        "package com.groupon.android.dichecks.dummy;",
+        "import javax.inject.Inject;",
+        "import javax.inject.Provider;",
+        "public class A {",
+        "    @Inject InjectedClassProvider classProvider;",
+        "    @Inject TypedProvider<InjectedClass> typedProvider;",
+        "    @Inject Holder<InjectedClass> holder;",
+        "}",
+        "abstract class InjectedClassProvider implements Provider<InjectedClass> {}",
+        "interface TypedProvider<T> extends Provider<T> {}",
+        "class Holder<T> {}",
+        "class InjectedClass {}");
+
+    final InjectionModel processorModel;
+    try (GraphReader reader = new GraphReader(new FileInputStream(graphFile))) {
+      processorModel = reader.readModel();
+    }
+    final InjectionModel scannedModel =
+        new BytecodeScanner(2, 2).scan(Collections.singletonList(classesDir));
+
+    assertThat(scannedModel.getInjectionSites())
+        .containsExactly(
+            new InjectionSite(
+                "com.groupon.android.dichecks.dummy.A",
+                "classProvider",
+                "com.groupon.android.dichecks.dummy.InjectedClassProvider",
+                InjectionKind.PROVIDER,
+                null),
+            new InjectionSite(
+                "com.groupon.android.dichecks.dummy.A",
+                "typedProvider",
+                "com.groupon.android.dichecks.dummy.InjectedClass",
+                InjectionKind.PROVIDER,
+                null),
+            new InjectionSite(
+                "com.groupon.android.dichecks.dummy.A",
+                "holder",
+                "com.groupon.android.dichecks.dummy.Holder<"
+                    + "com.groupon.android.dichecks.dummy.InjectedClass>",
+                InjectionKind.DIRECT,
+                null));
+    assertThat(scannedModel.getInjectionSites())
+        .containsExactlyElementsIn(withoutSeverity(processorModel.getInjectionSites()));
+  }
+
+  @Test
+  public void scannerShouldReadClassDirectories() throws Exception {
+    final File classesDir = temporaryFolder.newFolder("classes");
+    compile(classesDir, new File(temporaryFolder.getRoot(), "module.digraph"));
+
+    final InjectionModel model =
+        new BytecodeScanner(1, 1).scan(Collections.singletonList(classesDir));
+
+    assertThat(model.getInjectionSites()).hasSize(4);
+  }
+
+  private static void compile(File classesDir, File graphFile) throws Exception {
+    compile(
+        classesDir,
+        graphFile,
+        "package com.groupon.android.dichecks.dummy;",
+        "import java.util.List;",
+        "import javax.inject.Inject;",
+        "import javax.inject.Named;",
+        "import javax.inject.Provider;",
+        "public class A {",
+        "    @Inject @Named(\"someNamedString\") String something;",
+        "    @Inject List<String> strings;",
+        "    static class Inner extends B {",
+        "        @Inject Provider<String> provider;",
+        "    }",
+        "}",
+        "class B extends A {",
+        "    @Inject Provider<InjectedClass> aClass;",
+        "    int notInjected;",
+        "}",
+        "class InjectedClass {}");
+  }
+
+  private static void compile(File classesDir, File graphFile, String... lines)
+      throws Exception {
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setGraphExportOutputFile(graphFile.getPath());
+    processor.setDuplicateInjectionInHierarchyFailOnError(false);
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final JavaCompiler.CompilationTask task =
+        compiler.getTask(
+            null,
+            null,
+            null,
+            Arrays.asList(
+                "-d",
+                classesDir.getPath(),
+                "-classpath",
+                new File(Inject.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                    .getPath()),
+            null,
+            Collections.singletonList(
+                JavaFileObjects.forSourceString(
+                    "com.groupon.android.dichecks.dummy.A", Joiner.on('\n').join(lines))));
+    task.setProcessors(Collections.singletonList(processor));
+    assertThat(task.call()).isTrue();
+  }
+
+  /** The severities of the processor's policy are not known to the scanner. */
+  private static List<InjectionSite> withoutSeverity(Collection<InjectionSite> sites) {
+    final List<InjectionSite> sitesWithoutSeverity = new ArrayList<>();
+    for (InjectionSite site : sites) {
+      sitesWithoutSeverity.add(
+          new InjectionSite(
+              site.getOwnerType(),
+              site.getName(),
+              site.getInjectedType(),
+              site.getKind(),
+              site.getQualifier(),
+              site.isSuppressed()));
+    }
+    return sitesWithoutSeverity;
+  }
+
+  /** Zips the files of {@code dir}, stored and deflated entries alternate between directories. */
+  private static void zip(File zipFile, File dir, boolean stored) throws IOException {
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile))) {
+      addEntries(out, dir, "", stored);
+    }
+  }
+
+  private static void addEntries(ZipOutputStream out, File dir, String prefix, boolean stored)
+      throws IOException {
+    for (File file : dir.listFiles()) {
+      if (file.isDirectory()) {
+        out.putNextEntry(new ZipEntry(prefix + file.getName() + "/"));
+        out.closeEntry();
+        addEntries(out, file, prefix + file.getName() + "/", !stored);
+        continue;
+      }
+      final byte[] content;
+      try (InputStream in = new FileInputStream(file)) {
+        content = ByteStreams.toByteArray(in);
+      }
+      final ZipEntry entry = new ZipEntry(prefix + file.getName());
+      if (stored) {
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCompressedSize(content.length);
+        entry.setCrc(crc.getValue());
+      }
+      out.putNextEntry(entry);
+      out.write(content);
+      out.closeEntry();
+    }
+  }
+}
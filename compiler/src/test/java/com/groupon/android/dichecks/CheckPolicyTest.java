@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.groupon.android.dichecks.checks.common.CheckBudget;
+import com.groupon.android.dichecks.checks.common.CheckPolicy;
+import com.groupon.android.dichecks.checks.common.Severity;
+import org.junit.Test;
+
+public class CheckPolicyTest {
+
+  @Test
+  public void policyShouldUseTheMostSpecificPackagePattern() {
+    final CheckPolicy policy =
+        new CheckPolicy(Severity.ERROR)
+            .addPackageSeverity("com.app.legacy.*", Severity.WARNING)
+            .addPackageSeverity("com.app.legacy.generated.*", Severity.OFF)
+            .addPackageSeverity("com.app", Severity.NOTE);
+
+    assertThat(policy.getSeverity("com.app")).isEqualTo(Severity.NOTE);
+    assertThat(policy.getSeverity("com.app.feature")).isEqualTo(Severity.ERROR);
+    assertThat(policy.getSeverity("com.app.legacy")).isEqualTo(Severity.WARNING);
+    assertThat(policy.getSeverity("com.app.legacy.ui")).isEqualTo(Severity.WARNING);
+    assertThat(policy.getSeverity("com.app.legacyui")).isEqualTo(Severity.ERROR);
+    assertThat(policy.getSeverity("com.app.legacy.generated.di")).isEqualTo(Severity.OFF);
+  }
+
+  @Test
+  public void policyShouldBeEnabledIfAnyPackageIsReported() {
+    assertThat(new CheckPolicy(Severity.OFF).isEnabled()).isFalse();
+    assertThat(
+            new CheckPolicy(Severity.OFF)
+                .addPackageSeverity("com.app.*", Severity.WARNING)
+                .isEnabled())
+        .isTrue();
+  }
+
+  @Test
+  public void budgetShouldBeExhaustedOnceSpent() throws InterruptedException {
+    assertThat(new CheckPolicy(Severity.ERROR).startBudget().isExhausted()).isFalse();
+
+    final CheckPolicy policy = new CheckPolicy(Severity.ERROR).setTimeBudgetMillis(1);
+    assertThat(policy.startBudget().wasExhausted()).isFalse();
+    final CheckBudget budget = policy.startBudget();
+    Thread.sleep(5);
+    assertThat(budget.isExhausted()).isTrue();
+    assertThat(budget.wasExhausted()).isTrue();
+  }
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+
+import com.google.common.base.Joiner;
+import com.google.testing.compile.JavaFileObjects;
+import com.groupon.android.dichecks.daemon.DiChecksDaemon;
+import com.groupon.android.dichecks.export.GraphWriter;
+import com.groupon.android.dichecks.model.InjectionKind;
+import com.groupon.android.dichecks.model.InjectionModel;
+import com.groupon.android.dichecks.model.InjectionSite;
+import com.groupon.android.dichecks.processor.CompilerOptions;
+import com.groupon.android.dichecks.processor.DiChecksProcessor;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DiChecksDaemonTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void daemonShouldAnswerOnlyTheSitesAffectedByADelta() throws IOException {
+    final DiChecksDaemon daemon = new DiChecksDaemon();
+    serve(
+        daemon,
+        "FILE\tA.java",
+        "TYPE\tapp.A",
+        "INJECT\tapp.A\ttracker\tapp.Tracker\tDIRECT",
+        "END",
+        "FILE\tOther.java",
+        "TYPE\tapp.Other",
+        "INJECT\tapp.Other\tclock\tapp.Clock\tDIRECT",
+        "END");
+
+    final String answer =
+        serve(
+            daemon,
+            "FILE\tB.java",
+            "TYPE\tapp.B\tapp.A",
+            "INJECT\tapp.B\ttracker\tapp.Tracker\tLAZY",
+            "END");
+
+    assertThat(answer)
+        .contains(
+            "ISSUE\tapp.B\ttracker\terror\tDuplicate injection found: injected class "
+                + "app.Tracker in app.B also found in app.A.");
+    assertThat(answer).contains("CLEAR\tapp.A\ttracker");
+    assertThat(answer).doesNotContain("app.Other");
+    assertThat(answer).endsWith("DONE\t1\n");
+  }
+
+  @Test
+  public void daemonShouldClearIssuesWhenTheHierarchyChanges() throws IOException {
+    final DiChecksDaemon daemon = new DiChecksDaemon();
+    serve(
+        daemon,
+        "FILE\tA.java",
+        "TYPE\tapp.A",
+        "INJECT\tapp.A\ttracker\tapp.Tracker\tDIRECT",
+        "END",
+        "FILE\tB.java",
+        "TYPE\tapp.B\tapp.A",
+        "END",
+        "FILE\tC.java",
+        "TYPE\tapp.C\tapp.B",
+        "INJECT\tapp.C\ttracker\tapp.Tracker\tDIRECT",
+        "END");
+
+    final String answer = serve(daemon, "FILE\tB.java", "TYPE\tapp.B", "END");
+
+    assertThat(answer).contains("CLEAR\tapp.C\ttracker");
+    assertThat(answer).endsWith("DONE\t0\n");
+  }
+
+  @Test
+  public void daemonShouldKeepTheTypesMovedToAnotherFile() throws IOException {
+    final DiChecksDaemon daemon = new DiChecksDaemon();
+    serve(
+        daemon,
+        "FILE\tA.java",
+        "TYPE\tapp.A",
+        "INJECT\tapp.A\ttracker\tapp.Tracker\tDIRECT",
+        "END",
+        "FILE\tOld.java",
+        "TYPE\tapp.B\tapp.A",
+        "INJECT\tapp.B\ttracker\tapp.Tracker\tDIRECT",
+        "END",
+        "FILE\tNew.java",
+        "TYPE\tapp.B\tapp.A",
+        "INJECT\tapp.B\ttracker\tapp.Tracker\tDIRECT",
+        "END");
+
+    serve(daemon, "REMOVE\tOld.java");
+
+    assertThat(serve(daemon, "CHECK")).contains("ISSUE\tapp.B\ttracker\terror\t");
+  }
+
+  @Test
+  public void daemonShouldAnswerTheSitesInOrder() throws IOException {
+    final DiChecksDaemon daemon = new DiChecksDaemon();
+    serve(
+        daemon,
+        "FILE\tC.java",
+        "TYPE\tapp.C",
+        "INJECT\tapp.C\ttracker\tapp.Tracker\tDIRECT",
+        "END",
+        "FILE\tA.java",
+        "TYPE\tapp.A",
+        "INJECT\tapp.A\ttracker\tapp.Tracker\tDIRECT",
+        "END",
+        "FILE\tB.java",
+        "TYPE\tapp.B",
+        "INJECT\tapp.B\ttracker\tapp.Tracker\tDIRECT",
+        "END");
+
+    assertThat(serve(daemon, "CHECK"))
+        .startsWith("CLEAR\tapp.A\ttracker\nCLEAR\tapp.B\ttracker\nCLEAR\tapp.C\ttracker\n");
+  }
+
+  @Test
+  public void daemonShouldAnswerTheIssuesInTheOrderAndTextOfTheProcessor() throws IOException {
+    final DiChecksDaemon daemon = new DiChecksDaemon();
+    serve(
+        daemon,
+        "FILE\tC.java",
+        "TYPE\tapp.C\tapp.B",
+        "INJECT\tapp.C\ttracker\tapp.Tracker\tLAZY",
+        "END",
+        "FILE\tB.java",
+        "TYPE\tapp.B\tapp.A",
+        "INJECT\tapp.B\ttracker\tapp.Tracker\tDIRECT",
+        "END",
+        "FILE\tA.java",
+        "TYPE\tapp.A",
+        "INJECT\tapp.A\ttracker\tapp.Tracker\tDIRECT",
+        "END");
+
+    assertThat(serve(daemon, "CHECK"))
+        .startsWith(
+            "ISSUE\tapp.B\ttracker\terror\tDuplicate injection found: injected class "
+                + "app.Tracker in app.B also found in app.A.\n"
+                + "ISSUE\tapp.C\ttracker\terror\tDuplicate injection found: injected class "
+                + "app.Tracker in app.C also found in app.B, app.A.\n"
+                + "CLEAR\tapp.A\ttracker\n");
+  }
+
+  @Test
+  public void daemonShouldStartFromAGraphFile() throws IOException {
+    final InjectionModel graph = new InjectionModel();
+    graph.addSuperClass("app.B", "app.A");
+    graph.addInjectionSite(
+        new InjectionSite("app.A", "tracker", "app.Tracker", InjectionKind.DIRECT, null));
+    graph.addInjectionSite(
+        new InjectionSite("app.B", "tracker", "app.Tracker", InjectionKind.DIRECT, null));
+    final File graphFile = temporaryFolder.newFile("graph.bin");
+    try (GraphWriter writer = new GraphWriter(new FileOutputStream(graphFile))) {
+      writer.write(graph);
+    }
+    final DiChecksDaemon daemon = new DiChecksDaemon();
+    daemon.load(graphFile);
+
+    assertThat(serve(daemon, "CHECK")).contains("ISSUE\tapp.B\ttracker\terror\t");
+
+    final String answer = serve(daemon, "FILE\tA.java", "TYPE\tapp.A", "END");
+
+    assertThat(answer).contains("CLEAR\tapp.B\ttracker");
+    assertThat(serve(daemon, "CHECK")).doesNotContain("app.A");
+  }
+
+  @Test
+  public void daemonShouldKeepServingAfterALostConnection() throws Exception {
+    final DiChecksDaemon daemon = new DiChecksDaemon();
+    try (ServerSocket serverSocket =
+        new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+      final Thread serverThread =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  try {
+                    daemon.serve(serverSocket);
+                  } catch (IOException e) {
+                    throw new AssertionError(e);
+                  }
+                }
+              });
+      serverThread.start();
+
+      try (Socket lostClient = connect(serverSocket)) {
+        final PrintWriter writer =
+            new PrintWriter(
+                new OutputStreamWriter(lostClient.getOutputStream(), StandardCharsets.UTF_8), true);
+        writer.println("FILE\tA.java");
+        // resets the connection instead of closing it
+        lostClient.setSoLinger(true, 0);
+      }
+
+      try (Socket client = connect(serverSocket)) {
+        final PrintWriter writer =
+            new PrintWriter(
+                new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8), true);
+        final BufferedReader reader =
+            new BufferedReader(
+                new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+        writer.println("CHECK");
+        assertThat(reader.readLine()).isEqualTo("DONE\t0");
+        writer.println("QUIT");
+      }
+      serverThread.join(10000);
+      assertThat(serverThread.isAlive()).isFalse();
+    }
+  }
+
+  @Test
+  public void daemonShouldIgnoreTheSuppressedInjections() throws IOException {
+    final DiChecksDaemon daemon = new DiChecksDaemon();
+    serve(
+        daemon,
+        "FILE\tA.java",
+        "TYPE\tapp.A",
+        "INJECT\tapp.A\ttracker\tapp.Tracker\tDIRECT",
+        "END");
+
+    final String answer =
+        serve(
+            daemon,
+            "FILE\tB.java",
+            "TYPE\tapp.B\tapp.A",
+            "INJECT\tapp.B\ttracker\tapp.Tracker\tDIRECT\t\ttrue",
+            "END");
+
+    assertThat(answer).isEqualTo("CLEAR\tapp.A\ttracker\nCLEAR\tapp.B\ttracker\nDONE\t0\n");
+  }
+
+  @Test
+  public void daemonShouldReportTheIssuesWithTheSeverityOfTheProcessorOptions()
+      throws IOException {
+    final String[] commands = {
+      "FILE\tA.java",
+      "TYPE\tapp.A",
+      "INJECT\tapp.A\ttracker\tapp.Tracker\tDIRECT",
+      "TYPE\tapp.B\tapp.A",
+      "INJECT\tapp.B\ttracker\tapp.Tracker\tDIRECT",
+      "END"
+    };
+
+    assertThat(
+            serve(
+                new DiChecksDaemon(
+                    Collections.singletonMap(
+                        CompilerOptions.DUPLICATE_INJECTION_IN_HIERARCHY_FAIL_ON_ERROR, "false")),
+                commands))
+        .startsWith("ISSUE\tapp.B\ttracker\twarning\t");
+    assertThat(
+            serve(
+                new DiChecksDaemon(
+                    Collections.singletonMap(
+                        CompilerOptions.DUPLICATE_INJECTION_IN_HIERARCHY_ENABLED, "false")),
+                commands))
+        .isEqualTo("CLEAR\tapp.A\ttracker\nCLEAR\tapp.B\ttracker\nDONE\t0\n");
+  }
+
+  @Test
+  public void daemonShouldOnlyAnswerTheElapsedTimeWhenTimingIsEnabled() throws IOException {
+    final DiChecksDaemon daemon = new DiChecksDaemon();
+    assertThat(serve(daemon, "CHECK")).isEqualTo("DONE\t0\n");
+
+    daemon.setTiming(true);
+
+    assertThat(serve(daemon, "CHECK")).matches("TIME\t\\d+\nDONE\t0\n");
+  }
+
+  @Test
+  public void daemonShouldReportTheIssuesWithTheirRecordedSeverity() throws IOException {
+    final DiChecksDaemon daemon =
+        new DiChecksDaemon(
+            Collections.singletonMap(
+                CompilerOptions.DUPLICATE_INJECTION_IN_HIERARCHY_SEVERITY, "warning"));
+
+    final String answer =
+        serve(
+            daemon,
+            "FILE\tA.java",
+            "TYPE\tapp.A",
+            "INJECT\tapp.A\ttracker\tapp.Tracker\tDIRECT",
+            "TYPE\tapp.B\tapp.A",
+            "INJECT\tapp.B\ttracker\tapp.Tracker\tDIRECT\t\tfalse\tNOTE",
+            "TYPE\tapp.legacy.C\tapp.A",
+            "INJECT\tapp.legacy.C\ttracker\tapp.Tracker\tDIRECT\t\tfalse\tOFF",
+            "TYPE\tapp.D\tapp.A",
+            "INJECT\tapp.D\ttracker\tapp.Tracker\tDIRECT",
+            "END");
+
+    assertThat(answer).contains("ISSUE\tapp.B\ttracker\tnote\t");
+    assertThat(answer).contains("ISSUE\tapp.D\ttracker\twarning\t");
+    assertThat(answer).contains("CLEAR\tapp.legacy.C\ttracker");
+  }
+
+  /** The deltas written by the processor are sent to the daemon as is. */
+  @Test
+  public void daemonShouldCheckTheDeltasWrittenByTheProcessor() throws IOException {
+    final File deltaFile = temporaryFolder.newFile("deltas.txt");
+    final DiChecksDaemon daemon = new DiChecksDaemon();
+    compile(deltaFile, "");
+
+    assertThat(serve(daemon, Files.readAllLines(deltaFile.toPath(), StandardCharsets.UTF_8)))
+        .isEqualTo(
+            "CLEAR\tapp.Base\ttracker\n"
+                + "DONE\t0\n"
+                + "ISSUE\tapp.Screen\ttracker\twarning\tDuplicate injection found: injected class "
+                + "java.lang.Runnable in app.Screen also found in app.Base.\n"
+                + "CLEAR\tapp.Base\ttracker\n"
+                + "DONE\t1\n");
+
+    compile(deltaFile, "@SuppressWarnings(\"com.groupon.android.dichecks.duplicateCheck\")");
+
+    assertThat(serve(daemon, Files.readAllLines(deltaFile.toPath(), StandardCharsets.UTF_8)))
+        .endsWith("CLEAR\tapp.Base\ttracker\nCLEAR\tapp.Screen\ttracker\nDONE\t0\n");
+  }
+
+  @Test
+  public void daemonShouldReportMalformedCommands() throws IOException {
+    assertThat(serve(new DiChecksDaemon(), "TYPE\tapp.A")).startsWith("ERROR\t");
+  }
+
+  private static Socket connect(ServerSocket serverSocket) throws IOException {
+    return new Socket(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+  }
+
+  private static String serve(DiChecksDaemon daemon, String... commands) throws IOException {
+    return serve(daemon, Arrays.asList(commands));
+  }
+
+  private static String serve(DiChecksDaemon daemon, List<String> commands) throws IOException {
+    final StringWriter output = new StringWriter();
+    daemon.serve(new StringReader(Joiner.on('\n').join(commands)), output);
+    return output.toString();
+  }
+
+  /** Compiles a screen injecting the field of its base class, with {@code annotations}. */
+  private static void compile(File deltaFile, String annotations) {
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setDuplicateInjectionInHierarchyFailOnError(false);
+    processor.setDaemonDeltaFile(deltaFile.getPath());
+    assertAbout(javaSources())
+        .that(
+            Arrays.asList(
+                JavaFileObjects.forSourceLines(
+                    "app.Base",
+                    "package app;",
+                    "public class Base {",
+                    "  @javax.inject.Inject Runnable tracker;",
+                    "}"),
+                JavaFileObjects.forSourceLines(
+                    "app.Screen",
+                    "package app;",
+                    "public class Screen extends Base {",
+                    "  " + annotations + " @javax.inject.Inject Runnable tracker;",
+                    "  static class Header {}",
+                    "}")))
+        .processedWith(processor)
+        .compilesWithoutError();
+  }
+}
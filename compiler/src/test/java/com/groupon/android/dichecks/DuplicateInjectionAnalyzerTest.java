@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.groupon.android.dichecks.checks.common.Severity;
+import com.groupon.android.dichecks.checks.duplicate.DuplicateInjectionAnalyzer;
+import com.groupon.android.dichecks.model.InjectionKind;
+import com.groupon.android.dichecks.model.InjectionModel;
+import com.groupon.android.dichecks.model.InjectionSite;
+import java.util.List;
+import org.junit.Test;
+
+public class DuplicateInjectionAnalyzerTest {
+
+  @Test
+  public void analyzerShouldFindDuplicatesThroughTypesWithoutInjections() {
+    final InjectionModel model = new InjectionModel();
+    model.addSuperClass("app.C", "lib.B");
+    model.addSuperClass("lib.B", "app.A");
+    final InjectionSite duplicateSite =
+        new InjectionSite("app.C", "tracker", "app.Tracker", InjectionKind.LAZY, null);
+    model.addInjectionSite(
+        new InjectionSite("app.A", "tracker", "app.Tracker", InjectionKind.DIRECT, null));
+    model.addInjectionSite(duplicateSite);
+
+    final List<DuplicateInjectionAnalyzer.Duplicate> duplicates =
+        new DuplicateInjectionAnalyzer().analyze(model);
+
+    assertThat(duplicates).hasSize(1);
+    assertThat(duplicates.get(0).getSite()).isEqualTo(duplicateSite);
+    assertThat(duplicates.get(0).getAncestorTypes()).containsExactly("app.A");
+  }
+
+  @Test
+  public void analyzerShouldNotMixQualifiersNorProviders() {
+    final InjectionModel model = new InjectionModel();
+    model.addSuperClass("app.B", "app.A");
+    model.addInjectionSite(
+        new InjectionSite("app.A", "tracker", "app.Tracker", InjectionKind.DIRECT, "main"));
+    model.addInjectionSite(
+        new InjectionSite("app.B", "tracker1", "app.Tracker", InjectionKind.DIRECT, null));
+    model.addInjectionSite(
+        new InjectionSite("app.B", "tracker2", "app.Tracker", InjectionKind.PROVIDER, "main"));
+
+    assertThat(new DuplicateInjectionAnalyzer().analyze(model)).isEmpty();
+  }
+
+  @Test
+  public void analyzerShouldIgnoreSuppressedSites() {
+    final InjectionModel model = new InjectionModel();
+    model.addSuperClass("app.C", "app.B");
+    model.addSuperClass("app.B", "app.A");
+    model.addInjectionSite(
+        new InjectionSite("app.A", "tracker", "app.Tracker", InjectionKind.DIRECT, null, true));
+    model.addInjectionSite(
+        new InjectionSite("app.B", "tracker", "app.Tracker", InjectionKind.DIRECT, null, true));
+    final InjectionSite duplicateSite =
+        new InjectionSite("app.C", "tracker", "app.Tracker", InjectionKind.DIRECT, null);
+    model.addInjectionSite(duplicateSite);
+    model.addInjectionSite(
+        new InjectionSite("app.A", "cache", "app.Cache", InjectionKind.DIRECT, null));
+    model.addInjectionSite(
+        new InjectionSite("app.C", "cache", "app.Cache", InjectionKind.DIRECT, null, true));
+
+    assertThat(new DuplicateInjectionAnalyzer().analyze(model)).isEmpty();
+  }
+
+  @Test
+  public void analyzerShouldOnlyReportTheSitesWhoseSeverityIsNotOff() {
+    final InjectionModel model = new InjectionModel();
+    model.addSuperClass("app.legacy.C", "app.B");
+    model.addSuperClass("app.B", "app.A");
+    model.addInjectionSite(
+        new InjectionSite(
+            "app.A", "tracker", "app.Tracker", InjectionKind.DIRECT, null, false, Severity.OFF));
+    final InjectionSite duplicateSite =
+        new InjectionSite(
+            "app.B", "tracker", "app.Tracker", InjectionKind.DIRECT, null, false, Severity.NOTE);
+    model.addInjectionSite(duplicateSite);
+    model.addInjectionSite(
+        new InjectionSite(
+            "app.legacy.C",
+            "tracker",
+            "app.Tracker",
+            InjectionKind.DIRECT,
+            null,
+            false,
+            Severity.OFF));
+
+    final List<DuplicateInjectionAnalyzer.Duplicate> duplicates =
+        new DuplicateInjectionAnalyzer().analyze(model);
+
+    assertThat(duplicates).hasSize(1);
+    assertThat(duplicates.get(0).getSite()).isEqualTo(duplicateSite);
+    assertThat(duplicates.get(0).getAncestorTypes()).containsExactly("app.A");
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.groupon.android.dichecks.processor.DiChecksProcessor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.element.TypeElement;
+import org.junit.Test;
+
+/**
+ * Verifies the processor returns before touching the round or the messager when there is nothing
+ * to check: the only work left on the fast path is checking for the last round.
+ */
+public class FastPathTest {
+
+  private static final int ROUND_COUNT = 10;
+
+  private static final Set<TypeElement> NO_ANNOTATIONS = Collections.emptySet();
+
+  @Test
+  public void disabledChecksShouldNotQueryTheRound() {
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setDuplicateInjectionInHierarchyEnabled(false);
+    processor.init(processingEnvironment());
+
+    final Set<TypeElement> annotations =
+        Collections.singleton(failingProxy(TypeElement.class));
+    assertThat(processor.process(annotations, round())).isFalse();
+  }
+
+  @Test
+  public void roundWithoutInjectionShouldNotQueryTheRound() {
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.init(processingEnvironment());
+
+    assertThat(processor.process(NO_ANNOTATIONS, round())).isFalse();
+  }
+
+  @Test
+  public void fastPathShouldOnlyCheckForTheLastRound() {
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.init(processingEnvironment());
+    final List<String> calls = new ArrayList<>();
+    final RoundEnvironment round = recordingRound(calls);
+
+    for (int i = 0; i < ROUND_COUNT; i++) {
+      assertThat(processor.process(NO_ANNOTATIONS, round)).isFalse();
+    }
+
+    assertThat(calls).hasSize(ROUND_COUNT);
+    assertThat(new HashSet<>(calls)).containsExactly("processingOver");
+  }
+
+  private static ProcessingEnvironment processingEnvironment() {
+    return (ProcessingEnvironment)
+        Proxy.newProxyInstance(
+            FastPathTest.class.getClassLoader(),
+            new Class<?>[] {ProcessingEnvironment.class},
+            new InvocationHandler() {
+              @Override
+              public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                  case "getOptions":
+                    return Collections.emptyMap();
+                  case "getMessager":
+                    return failingProxy(Messager.class);
+                  default:
+                    return null;
+                }
+              }
+            });
+  }
+
+  /** A round that is not the last one and fails if its elements are queried. */
+  private static RoundEnvironment round() {
+    return (RoundEnvironment)
+        Proxy.newProxyInstance(
+            FastPathTest.class.getClassLoader(),
+            new Class<?>[] {RoundEnvironment.class},
+            new InvocationHandler() {
+              @Override
+              public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("processingOver".equals(method.getName())) {
+                  return false;
+                }
+                throw new AssertionError("Unexpected call to RoundEnvironment." + method.getName());
+              }
+            });
+  }
+
+  /** A round that is not the last one and records the name of the methods called. */
+  private static RoundEnvironment recordingRound(final List<String> calls) {
+    return (RoundEnvironment)
+        Proxy.newProxyInstance(
+            FastPathTest.class.getClassLoader(),
+            new Class<?>[] {RoundEnvironment.class},
+            new InvocationHandler() {
+              @Override
+              public Object invoke(Object proxy, Method method, Object[] args) {
+                calls.add(method.getName());
+                return "processingOver".equals(method.getName()) ? false : null;
+              }
+            });
+  }
+
+  private static <T> T failingProxy(final Class<T> type) {
+    return type.cast(
+        Proxy.newProxyInstance(
+            FastPathTest.class.getClassLoader(),
+            new Class<?>[] {type},
+            new InvocationHandler() {
+              @Override
+              public Object invoke(Object proxy, Method method, Object[] args) {
+                throw new AssertionError(
+                    "Unexpected call to " + type.getSimpleName() + "." + method.getName());
+              }
+            }));
+  }
+}
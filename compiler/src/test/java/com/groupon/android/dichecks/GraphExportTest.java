@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import com.google.common.base.Joiner;
+import com.google.testing.compile.JavaFileObjects;
+import com.groupon.android.dichecks.checks.common.Severity;
+import com.groupon.android.dichecks.export.GraphMerger;
+import com.groupon.android.dichecks.export.GraphReader;
+import com.groupon.android.dichecks.export.GraphWriter;
+import com.groupon.android.dichecks.model.InjectionKind;
+import com.groupon.android.dichecks.model.InjectionModel;
+import com.groupon.android.dichecks.model.InjectionSite;
+import com.groupon.android.dichecks.processor.CompilerOptions;
+import com.groupon.android.dichecks.processor.DiChecksProcessor;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GraphExportTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void processorShouldExportInjectionGraph() throws IOException {
+    final JavaFileObject source =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.dummy.A",
+            Joiner.on('\n')
+                .join(
+                    "package com.groupon.android.dichecks.dummy;",
+                    "import javax.inject.Inject;",
+                    "import javax.inject.Named;",
+                    "import javax.inject.Provider;",
+                    "public class A {",
+                    "    @Inject @Named(\"someNamedString\") String something;",
+                    "}",
+                    "class B extends A {",
+                    "    @Inject Provider<InjectedClass> aClass;",
+                    "}",
+                    "class InjectedClass {}"));
+    final File graphFile = new File(temporaryFolder.getRoot(), "module.digraph");
+
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setGraphExportOutputFile(graphFile.getPath());
+    processor.setGraphExportDot(true);
+    assertAbout(javaSource()).that(source).processedWith(processor).compilesWithoutError();
+
+    final InjectionModel model;
+    try (GraphReader reader = new GraphReader(new FileInputStream(graphFile))) {
+      model = reader.readModel();
+    }
+    assertThat(model.getInjectionSites())
+        .containsExactly(
+            new InjectionSite(
+                "com.groupon.android.dichecks.dummy.A",
+                "something",
+                "java.lang.String",
+                InjectionKind.DIRECT,
+                "someNamedString",
+                false,
+                Severity.ERROR),
+            new InjectionSite(
+                "com.groupon.android.dichecks.dummy.B",
+                "aClass",
+                "com.groupon.android.dichecks.dummy.InjectedClass",
+                InjectionKind.PROVIDER,
+                null,
+                false,
+                Severity.ERROR));
+    assertThat(model.getSuperClass("com.groupon.android.dichecks.dummy.B"))
+        .isEqualTo("com.groupon.android.dichecks.dummy.A");
+    // the compiled types, injecting or not, unlike the library types of their hierarchy
+    assertThat(model.getDefinedTypes())
+        .containsExactly(
+            "com.groupon.android.dichecks.dummy.A",
+            "com.groupon.android.dichecks.dummy.B",
+            "com.groupon.android.dichecks.dummy.InjectedClass");
+    assertThat(new File(graphFile.getPath() + DiChecksProcessor.DOT_FILE_EXTENSION).isFile())
+        .isTrue();
+  }
+
+  @Test
+  public void processorShouldExportTheSuppressionAndSeverityOfInjectionSites() throws IOException {
+    final JavaFileObject source =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.dummy.A",
+            Joiner.on('\n')
+                .join(
+                    "package com.groupon.android.dichecks.dummy;",
+                    "import javax.inject.Inject;",
+                    "public class A {",
+                    "    @Inject String name;",
+                    "}",
+                    "class B extends A {",
+                    "    @SuppressWarnings(\"com.groupon.android.dichecks.duplicateCheck\")",
+                    "    @Inject String name;",
+                    "}"));
+    final File graphFile = new File(temporaryFolder.getRoot(), "module.digraph");
+
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setGraphExportOutputFile(graphFile.getPath());
+    processor.setDuplicateInjectionInHierarchyPackageSeverities(
+        new String[] {"com.groupon.android.dichecks.*=warning"});
+    assertAbout(javaSource()).that(source).processedWith(processor).compilesWithoutError();
+
+    final InjectionModel model;
+    try (GraphReader reader = new GraphReader(new FileInputStream(graphFile))) {
+      model = reader.readModel();
+    }
+    assertThat(model.getInjectionSites())
+        .containsExactly(
+            new InjectionSite(
+                "com.groupon.android.dichecks.dummy.A",
+                "name",
+                "java.lang.String",
+                InjectionKind.DIRECT,
+                null,
+                false,
+                Severity.WARNING),
+            new InjectionSite(
+                "com.groupon.android.dichecks.dummy.B",
+                "name",
+                "java.lang.String",
+                InjectionKind.DIRECT,
+                null,
+                true,
+                Severity.WARNING));
+  }
+
+  @Test
+  public void processorShouldExportTheGraphAsAGeneratedResource() throws IOException {
+    final File generatedSourcesDir = temporaryFolder.newFolder("generated");
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    final JavaCompiler.CompilationTask task =
+        ToolProvider.getSystemJavaCompiler()
+            .getTask(
+                null,
+                null,
+                null,
+                Arrays.asList(
+                    "-proc:only",
+                    "-s",
+                    generatedSourcesDir.getPath(),
+                    "-A" + CompilerOptions.GRAPH_EXPORT_RESOURCE + "=dichecks/compileJava.digraph"),
+                null,
+                Collections.singletonList(
+                    JavaFileObjects.forSourceString(
+                        "com.groupon.android.dichecks.dummy.A",
+                        Joiner.on('\n')
+                            .join(
+                                "package com.groupon.android.dichecks.dummy;",
+                                "import javax.inject.Inject;",
+                                "public class A {",
+                                "    @Inject String name;",
+                                "}"))));
+    task.setProcessors(Collections.singletonList(processor));
+    assertThat(task.call()).isTrue();
+
+    final InjectionModel model;
+    try (GraphReader reader =
+        new GraphReader(
+            new FileInputStream(new File(generatedSourcesDir, "dichecks/compileJava.digraph")))) {
+      model = reader.readModel();
+    }
+    assertThat(model.getInjectionSites())
+        .containsExactly(
+            new InjectionSite(
+                "com.groupon.android.dichecks.dummy.A",
+                "name",
+                "java.lang.String",
+                InjectionKind.DIRECT,
+                null,
+                false,
+                Severity.ERROR));
+    // the graph covers the whole module, incremental compilations must process all the types
+    assertThat(processor.getSupportedOptions())
+        .contains("org.gradle.annotation.processing.aggregating");
+    assertThat(processor.getSupportedOptions())
+        .doesNotContain("org.gradle.annotation.processing.isolating");
+  }
+
+  @Test
+  public void processorShouldClassifyInjectionsOfEveryRound() throws IOException {
+    final JavaFileObject source =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.dummy.A",
+            Joiner.on('\n')
+                .join(
+                    "package com.groupon.android.dichecks.dummy;",
+                    "import javax.inject.Inject;",
+                    "import javax.inject.Provider;",
+                    "public class A {",
+                    "    @Inject Provider<String> name;",
+                    "}"));
+    final File graphFile = new File(temporaryFolder.getRoot(), "module.digraph");
+
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setGraphExportOutputFile(graphFile.getPath());
+    assertAbout(javaSource())
+        .that(source)
+        .processedWith(processor, new GeneratingProcessor())
+        .compilesWithoutError();
+
+    final InjectionModel model;
+    try (GraphReader reader = new GraphReader(new FileInputStream(graphFile))) {
+      model = reader.readModel();
+    }
+    assertThat(model.getInjectionSites())
+        .contains(
+            new InjectionSite(
+                "com.groupon.android.dichecks.dummy.Generated",
+                "count",
+                "java.lang.Integer",
+                InjectionKind.PROVIDER,
+                null,
+                false,
+                Severity.ERROR));
+    assertThat(model.getSuperClass("com.groupon.android.dichecks.dummy.Generated"))
+        .isEqualTo("com.groupon.android.dichecks.dummy.A");
+  }
+
+  @Test
+  public void mergerShouldCombineAndDeduplicateModules() throws IOException {
+    final InjectionModel module1 = new InjectionModel();
+    module1.addSuperClass("app.B", "lib.A");
+    module1.addInjectionSite(
+        new InjectionSite("app.B", "foo", "lib.Foo", InjectionKind.LAZY, null));
+    final InjectionModel module2 = new InjectionModel();
+    module2.addType("lib.A");
+    module2.addInjectionSite(
+        new InjectionSite("lib.A", "foo", "lib.Foo", InjectionKind.DIRECT, "named"));
+
+    final ByteArrayOutputStream merged = new ByteArrayOutputStream();
+    try (GraphWriter writer = new GraphWriter(merged)) {
+      GraphMerger.merge(Arrays.asList(reader(module1), reader(module2)), writer);
+    }
+
+    final InjectionModel model =
+        new GraphReader(new ByteArrayInputStream(merged.toByteArray())).readModel();
+    assertThat(model.getTypes()).containsExactly("app.B", "lib.A", "lib.Foo");
+    assertThat(model.getSuperClasses()).containsEntry("app.B", "lib.A");
+    assertThat(model.getInjectionSites()).hasSize(2);
+  }
+
+  @Test
+  public void readerShouldSkipUnknownRecordsOfNewerVersions() throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(0x44494752);
+    out.writeShort(2);
+    // a record with a tag unknown to this version
+    out.writeInt(4);
+    out.writeByte(42);
+    out.writeByte(1);
+    out.writeBoolean(false);
+    out.writeByte(0);
+    final InjectionModel model = new InjectionModel();
+    model.addSuperClass("app.B", "lib.A");
+    final ByteArrayOutputStream knownRecords = new ByteArrayOutputStream();
+    try (GraphWriter writer = new GraphWriter(knownRecords)) {
+      writer.write(model);
+    }
+    // drops the magic and version of the file written by this version
+    out.write(knownRecords.toByteArray(), 6, knownRecords.size() - 6);
+
+    final InjectionModel readModel =
+        new GraphReader(new ByteArrayInputStream(bytes.toByteArray())).readModel();
+    assertThat(readModel.getSuperClasses()).containsEntry("app.B", "lib.A");
+  }
+
+  private static GraphReader reader(InjectionModel model) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GraphWriter writer = new GraphWriter(bytes)) {
+      writer.write(model);
+    }
+    return new GraphReader(new ByteArrayInputStream(bytes.toByteArray()));
+  }
+
+  /** Generates, in the first round, a class injected in the second round. */
+  @SupportedAnnotationTypes(DiChecksProcessor.INJECT_ANNOTATION_CLASSNAME)
+  static class GeneratingProcessor extends AbstractProcessor {
+
+    private boolean generated;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latest();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      if (generated) {
+        return false;
+      }
+      generated = true;
+      try (Writer writer =
+          processingEnv
+              .getFiler()
+              .createSourceFile("com.groupon.android.dichecks.dummy.Generated")
+              .openWriter()) {
+        writer.write(
+            Joiner.on('\n')
+                .join(
+                    "package com.groupon.android.dichecks.dummy;",
+                    "import javax.inject.Inject;",
+                    "import javax.inject.Provider;",
+                    "public class Generated extends A {",
+                    "    @Inject Provider<Integer> count;",
+                    "}"));
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      return false;
+    }
+  }
+}
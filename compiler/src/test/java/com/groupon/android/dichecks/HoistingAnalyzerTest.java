@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.groupon.android.dichecks.checks.duplicate.HoistingAnalyzer;
+import com.groupon.android.dichecks.export.GraphMerger;
+import com.groupon.android.dichecks.export.GraphWriter;
+import com.groupon.android.dichecks.model.InjectionKind;
+import com.groupon.android.dichecks.model.InjectionModel;
+import com.groupon.android.dichecks.model.InjectionSite;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class HoistingAnalyzerTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void analyzerShouldReportDefinitionsInjectedBySiblingSubtrees() {
+    final InjectionModel model = new InjectionModel();
+    model.addSuperClass("app.HomeFragment", "app.BaseFragment");
+    model.addSuperClass("app.DealFragment", "app.BaseFragment");
+    model.addSuperClass("app.CartFragment", "app.BaseFragment");
+    model.addSuperClass("app.LocalDealFragment", "app.DealFragment");
+    model.addDefinedType("app.BaseFragment");
+    model.addDefinedType("app.DealFragment");
+    model.addInjectionSite(site("app.HomeFragment", InjectionKind.DIRECT));
+    model.addInjectionSite(site("app.CartFragment", InjectionKind.LAZY));
+    // injected deeper in the subtree of a direct subclass, the subclass counts once
+    model.addInjectionSite(site("app.LocalDealFragment", InjectionKind.DIRECT));
+
+    final List<HoistingAnalyzer.Candidate> candidates = new HoistingAnalyzer(3).analyze(model);
+
+    assertThat(candidates).hasSize(1);
+    assertThat(candidates.get(0).getAncestorType()).isEqualTo("app.BaseFragment");
+    assertThat(candidates.get(0).getInjectedType()).isEqualTo("app.Tracker");
+    assertThat(candidates.get(0).getSubclasses())
+        .containsExactly("app.CartFragment", "app.DealFragment", "app.HomeFragment")
+        .inOrder();
+  }
+
+  @Test
+  public void analyzerShouldNotReportTooFewSiblingsNorInheritedInjections() {
+    final InjectionModel model = new InjectionModel();
+    model.addSuperClass("app.BaseFragment", "app.Root");
+    model.addSuperClass("app.HomeFragment", "app.BaseFragment");
+    model.addSuperClass("app.DealFragment", "app.BaseFragment");
+    model.addSuperClass("app.CartFragment", "app.BaseFragment");
+    model.addDefinedType("app.Root");
+    model.addDefinedType("app.BaseFragment");
+    model.addInjectionSite(site("app.HomeFragment", InjectionKind.DIRECT));
+    model.addInjectionSite(site("app.DealFragment", InjectionKind.DIRECT));
+    model.addInjectionSite(site("app.CartFragment", InjectionKind.PROVIDER));
+
+    assertThat(new HoistingAnalyzer(3).analyze(model)).isEmpty();
+
+    // already injected by an ancestor: these are duplicates, not hoisting candidates
+    model.addInjectionSite(site("app.Root", InjectionKind.DIRECT));
+    assertThat(new HoistingAnalyzer(2).analyze(model)).isEmpty();
+  }
+
+  @Test
+  public void analyzerShouldOnlyReportAncestorsDefinedByTheAnalyzedCode() {
+    final InjectionModel model = new InjectionModel();
+    model.addSuperClass("app.HomeFragment", "android.app.Fragment");
+    model.addSuperClass("app.DealFragment", "android.app.Fragment");
+    model.addSuperClass("app.CartFragment", "android.app.Fragment");
+    model.addDefinedType("app.HomeFragment");
+    model.addDefinedType("app.DealFragment");
+    model.addDefinedType("app.CartFragment");
+    model.addInjectionSite(site("app.HomeFragment", InjectionKind.DIRECT));
+    model.addInjectionSite(site("app.DealFragment", InjectionKind.DIRECT));
+    model.addInjectionSite(site("app.CartFragment", InjectionKind.DIRECT));
+
+    // the injection can't be hoisted into a library class
+    assertThat(new HoistingAnalyzer(3).analyze(model)).isEmpty();
+  }
+
+  @Test
+  public void mergerShouldPrintTheHoistingCandidatesOfTheMergedGraph() throws IOException {
+    final InjectionModel module = new InjectionModel();
+    module.addSuperClass("app.HomeFragment", "app.BaseFragment");
+    module.addSuperClass("app.DealFragment", "app.BaseFragment");
+    module.addDefinedType("app.BaseFragment");
+    module.addInjectionSite(site("app.HomeFragment", InjectionKind.DIRECT));
+    module.addInjectionSite(site("app.DealFragment", InjectionKind.DIRECT));
+    final File graphFile = temporaryFolder.newFile("module.digraph");
+    try (GraphWriter writer = new GraphWriter(new FileOutputStream(graphFile))) {
+      writer.write(module);
+    }
+    final File mergedGraph = new File(temporaryFolder.getRoot(), "merged.digraph");
+
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    final PrintStream standardOutput = System.out;
+    System.setOut(new PrintStream(output, true, "UTF-8"));
+    try {
+      GraphMerger.main(
+          new String[] {"-o", mergedGraph.getPath(), "--hoisting", "2", graphFile.getPath()});
+    } finally {
+      System.setOut(standardOutput);
+    }
+
+    assertThat(output.toString("UTF-8"))
+        .isEqualTo(
+            "Hoisting candidate: app.Tracker is injected by 2 subclasses of app.BaseFragment "
+                + "(app.DealFragment, app.HomeFragment), consider injecting it in "
+                + "app.BaseFragment."
+                + System.lineSeparator());
+  }
+
+  private static InjectionSite site(String ownerType, InjectionKind kind) {
+    return new InjectionSite(ownerType, "tracker", "app.Tracker", kind, null);
+  }
+}
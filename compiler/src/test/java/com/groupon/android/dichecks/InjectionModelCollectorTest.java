@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Joiner;
+import com.google.testing.compile.JavaFileObjects;
+import com.groupon.android.dichecks.checks.common.TypeHierarchyIndex;
+import com.groupon.android.dichecks.model.InjectionKindClassifier;
+import com.groupon.android.dichecks.model.InjectionModel;
+import com.groupon.android.dichecks.model.InjectionModelCollector;
+import com.groupon.android.dichecks.model.InjectionSite;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.inject.Inject;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.junit.Test;
+
+public class InjectionModelCollectorTest {
+
+  @Test
+  public void collectorShouldSkipMembersOfLocalAndAnonymousClasses() {
+    final CollectingProcessor processor = new CollectingProcessor();
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final JavaCompiler.CompilationTask task =
+        compiler.getTask(
+            null,
+            null,
+            null,
+            Arrays.asList("-proc:only"),
+            null,
+            Collections.singletonList(
+                JavaFileObjects.forSourceString(
+                    "com.groupon.android.dichecks.dummy.A",
+                    Joiner.on('\n')
+                        .join(
+                            "package com.groupon.android.dichecks.dummy;",
+                            "import javax.inject.Inject;",
+                            "public class A {",
+                            "    @Inject String name;",
+                            "    void create() {",
+                            "        Object first = new A() { @Inject Integer count; };",
+                            "        class Local extends Number {",
+                            "            @Inject Long id;",
+                            "            public int intValue() { return 0; }",
+                            "            public long longValue() { return 0; }",
+                            "            public float floatValue() { return 0; }",
+                            "            public double doubleValue() { return 0; }",
+                            "        }",
+                            "    }",
+                            "}"))));
+    task.setProcessors(Collections.singletonList(processor));
+    assertThat(task.call()).isTrue();
+
+    final InjectionModel model = processor.model;
+    assertThat(processor.localFieldCount).isEqualTo(2);
+    // javac names anonymous classes "" and local classes by their simple name
+    assertThat(model.getTypes()).containsNoneOf("", "Local");
+    assertThat(model.getInjectionSites()).hasSize(1);
+    final InjectionSite site = model.getInjectionSites().iterator().next();
+    assertThat(site.getOwnerType()).isEqualTo("com.groupon.android.dichecks.dummy.A");
+  }
+
+  /**
+   * Adds the injected fields of all the classes, local and anonymous ones included, which javac
+   * doesn't report in {@link RoundEnvironment#getElementsAnnotatedWith}.
+   */
+  @SupportedAnnotationTypes("*")
+  static class CollectingProcessor extends AbstractProcessor {
+
+    private InjectionModel model;
+    private int localFieldCount;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latest();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      if (roundEnv.processingOver()) {
+        return false;
+      }
+      final InjectionModelCollector collector =
+          new InjectionModelCollector(
+              new InjectionKindClassifier(processingEnv),
+              new TypeHierarchyIndex(processingEnv.getTypeUtils()));
+      final Trees trees = Trees.instance(processingEnv);
+      final List<TypeElement> types = new ArrayList<>();
+      for (Element rootElement : roundEnv.getRootElements()) {
+        new TreePathScanner<Void, Void>() {
+          @Override
+          public Void visitClass(ClassTree classTree, Void unused) {
+            types.add((TypeElement) trees.getElement(getCurrentPath()));
+            return super.visitClass(classTree, unused);
+          }
+        }.scan(trees.getPath(rootElement), null);
+      }
+      for (TypeElement type : types) {
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+          if (field.getAnnotation(Inject.class) != null) {
+            if (type.getNestingKind() == NestingKind.LOCAL
+                || type.getNestingKind() == NestingKind.ANONYMOUS) {
+              localFieldCount++;
+            }
+            collector.addInjectedElement(field);
+          }
+        }
+      }
+      model = collector.getModel();
+      return false;
+    }
+  }
+}
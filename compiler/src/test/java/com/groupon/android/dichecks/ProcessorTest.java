@@ -17,15 +17,23 @@
 package com.groupon.android.dichecks;
 
 import static com.google.common.truth.Truth.assertAbout;
+import static com.google.common.truth.Truth.assertThat;
 import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
 import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.testing.compile.JavaFileObjects;
+import com.groupon.android.dichecks.checks.common.Severity;
 import com.groupon.android.dichecks.processor.CompilerOptions;
 import com.groupon.android.dichecks.processor.DiChecksProcessor;
+import java.util.Collections;
+import java.util.Locale;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
 import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
 import org.junit.Test;
 
 public class ProcessorTest {
@@ -81,6 +89,142 @@ public class ProcessorTest {
                                  + "com.groupon.android.dichecks.dummy.A.");
   }
 
+  @Test
+  public void compilationShouldReportAllAncestorsOfDuplicateInjectionInOneIssue() {
+    final JavaFileObject source =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.dummy.A",
+            Joiner.on('\n')
+                .join(
+                    "package com.groupon.android.dichecks.dummy;",
+                    "import javax.inject.Inject;",
+                    "public class A {",
+                    "    @Inject InjectedClass aClass;",
+                    "}",
+                    "class B extends A {",
+                    "    @Inject InjectedClass aClass;",
+                    "}",
+                    "class D extends B {",
+                    "    @Inject InjectedClass aClass;",
+                    "}",
+                    "class InjectedClass {}"));
+
+    assertAbout(javaSource())
+        .that(source)
+        .processedWith(new DiChecksProcessor())
+        .failsToCompile()
+        .withErrorContaining("Duplicate injection found: injected class "
+                                 + "com.groupon.android.dichecks.dummy.InjectedClass in "
+                                 + "com.groupon.android.dichecks.dummy.D also found in "
+                                 + "com.groupon.android.dichecks.dummy.B, "
+                                 + "com.groupon.android.dichecks.dummy.A.");
+  }
+
+  @Test
+  public void compilationShouldSummarizeIssuesAboveTheLimit() {
+    final JavaFileObject source =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.dummy.A",
+            Joiner.on('\n')
+                .join(
+                    "package com.groupon.android.dichecks.dummy;",
+                    "import javax.inject.Inject;",
+                    "public class A {",
+                    "    @Inject InjectedClass aClass;",
+                    "}",
+                    "class B extends A {",
+                    "    @Inject InjectedClass aClass;",
+                    "}",
+                    "class C extends A {",
+                    "    @Inject InjectedClass aClass;",
+                    "}",
+                    "class InjectedClass {}"));
+
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setMaxIssuesPerCheck(1);
+    assertAbout(javaSource())
+        .that(source)
+        .processedWith(processor)
+        .failsToCompile()
+        .withErrorContaining("com.groupon.android.dichecks.dummy.B also found in")
+        .and()
+        .withErrorContaining("1 more dependency injection issue(s) not reported");
+  }
+
+  @Test
+  public void compilationShouldNotFailIfDuplicateFoundInPackageWithLowerSeverity() {
+    final JavaFileObject source =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.dummy.A",
+            Joiner.on('\n')
+                .join(
+                    "package com.groupon.android.dichecks.dummy;",
+                    "import javax.inject.Inject;",
+                    "public class A {",
+                    "    @Inject InjectedClass aClass;",
+                    "}",
+                    "class B extends A {",
+                    "    @Inject InjectedClass aClass;",
+                    "}",
+                    "class InjectedClass {}"));
+
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setDuplicateInjectionInHierarchyPackageSeverities(
+        new String[] {"com.groupon.android.dichecks.*=warning"});
+    assertAbout(javaSource())
+        .that(source)
+        .processedWith(processor)
+        .compilesWithoutError();
+  }
+
+  @Test
+  public void compilationShouldNotFailIfDuplicateCheckRunsOutOfTime() {
+    final JavaFileObject source =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.dummy.A",
+            Joiner.on('\n')
+                .join(
+                    "package com.groupon.android.dichecks.dummy;",
+                    "import javax.inject.Inject;",
+                    "public class A {",
+                    "    @Inject InjectedClass aClass;",
+                    "}",
+                    "class B extends A {",
+                    "    @Inject InjectedClass aClass;",
+                    "}",
+                    "class InjectedClass {}"));
+
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setDuplicateInjectionInHierarchySeverity(Severity.ERROR);
+    processor.setDuplicateInjectionInHierarchyTimeBudgetMillis(0);
+    final String diagnostics = getDiagnostics(processor, source);
+    assertThat(diagnostics).contains("WARNING: ");
+    assertThat(diagnostics).contains("exceeded its time budget of 0ms");
+    assertThat(diagnostics).doesNotContain("ERROR: ");
+  }
+
+  @Test
+  public void issueLimitShouldNotHideThatTheDuplicateCheckRanOutOfTime() {
+    final JavaFileObject source =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.dummy.A",
+            Joiner.on('\n')
+                .join(
+                    "package com.groupon.android.dichecks.dummy;",
+                    "import javax.inject.Inject;",
+                    "public class A {",
+                    "    @Inject InjectedClass aClass;",
+                    "}",
+                    "class InjectedClass {}"));
+
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setDuplicateInjectionInHierarchyTimeBudgetMillis(0);
+    processor.setMaxIssuesPerCheck(0);
+    assertThat(getDiagnostics(processor, source))
+        .startsWith(
+            "WARNING: com.groupon.android.dichecks.duplicateCheck exceeded its time budget");
+  }
+
   @Test
   public void compilationShouldNotFailIfDuplicateFoundAndWarningFlagSet() {
     final JavaFileObject source =
@@ -148,6 +292,110 @@ public class ProcessorTest {
                                    + " com.groupon.android.dichecks.dummy.A.");
   }
 
+  @Test
+  public void lazyDuplicateShouldBeReportedWithTheWrappedType() {
+    final JavaFileObject lazySource =
+        JavaFileObjects.forSourceString(
+            "dagger.Lazy",
+            Joiner.on('\n').join("package dagger;", "public interface Lazy<T> { T get(); }"));
+    final JavaFileObject source =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.dummy.A",
+            Joiner.on('\n')
+                .join(
+                    "package com.groupon.android.dichecks.dummy;",
+                    "import javax.inject.Inject;",
+                    "import dagger.Lazy;",
+                    "public class A {",
+                    "    @Inject InjectedClass aClass;",
+                    "}",
+                    "class B extends A {",
+                    "    @Inject Lazy<InjectedClass> lazyClass;",
+                    "}",
+                    "class InjectedClass {}"));
+
+    // same message as the issues found in a model (gradle plugin, daemon and batch audit)
+    assertAbout(javaSources())
+        .that(ImmutableList.of(source, lazySource))
+        .processedWith(new DiChecksProcessor())
+        .failsToCompile()
+        .withErrorContaining(
+            "Duplicate injection found: injected class "
+                + "com.groupon.android.dichecks.dummy.InjectedClass in "
+                + "com.groupon.android.dichecks.dummy.B also found in "
+                + "com.groupon.android.dichecks.dummy.A.");
+  }
+
+  @Test
+  public void compilationShouldFailIfDuplicateKotlinTypeLazyInjectionFound() {
+    final JavaFileObject lazySource =
+        JavaFileObjects.forSourceString(
+            "kotlin.Lazy",
+            Joiner.on('\n')
+            .join(
+                "package kotlin;",
+                "public interface Lazy<T> { T getValue(); }"
+            ));
+
+    final JavaFileObject source =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.dummy.A",
+            Joiner.on('\n')
+                .join(
+                    "package com.groupon.android.dichecks.dummy;",
+                    "import javax.inject.Inject;",
+                    "import kotlin.Lazy;",
+                    "public class A {",
+                    "    @Inject Lazy<InjectedClass> aClass;",
+                    "}",
+                    "class B extends A {",
+                    "    @Inject InjectedClass aClass;",
+                    "}",
+                    "class InjectedClass {}"));
+
+    assertAbout(javaSources())
+        .that(ImmutableList.of(source, lazySource))
+        .processedWith(new DiChecksProcessor())
+        .failsToCompile()
+        .withErrorContaining("Duplicate injection found: injected class "
+                                 + "com.groupon.android.dichecks.dummy.InjectedClass in "
+                                 + "com.groupon.android.dichecks.dummy.B also found in "
+                                 + "com.groupon.android.dichecks.dummy.A.");
+  }
+
+  @Test
+  public void compilationShouldNotFailIfUnrelatedLazyTypeInSuperClassAndRegularInjectionInSubclass() {
+    final JavaFileObject lazySource =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.other.Lazy",
+            Joiner.on('\n')
+            .join(
+                "package com.groupon.android.dichecks.other;",
+                "public class Lazy<T> {}"
+            ));
+
+    final JavaFileObject source =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.dummy.A",
+            Joiner.on('\n')
+                .join(
+                    "package com.groupon.android.dichecks.dummy;",
+                    "import javax.inject.Inject;",
+                    "import com.groupon.android.dichecks.other.Lazy;",
+                    "public class A {",
+                    "    @Inject Lazy<InjectedClass> aClass;",
+                    "}",
+                    "class B extends A {",
+                    "    @Inject InjectedClass aClass;",
+                    "}",
+                    "class InjectedClass {}"));
+
+    assertAbout(javaSources())
+        .that(ImmutableList.of(source, lazySource))
+        .processedWith(new DiChecksProcessor())
+        .compilesWithoutError();
+  }
+
   @Test
   public void compilationShouldFailIfDuplicateDaggerTypeLazyInjectionFound() {
     final JavaFileObject lazySource =
@@ -220,6 +468,61 @@ public class ProcessorTest {
                                      + "com.groupon.android.dichecks.dummy.A.");
     }
 
+  @Test
+  public void compilationShouldNotFailIfProviderInjectionsHaveDifferentQualifiers() {
+    final JavaFileObject source =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.dummy.A",
+            Joiner.on('\n')
+                .join(
+                    "package com.groupon.android.dichecks.dummy;",
+                    "import javax.inject.Inject;",
+                    "import javax.inject.Named;",
+                    "import javax.inject.Provider;",
+                    "public class A {",
+                    "    @Inject @Named(\"first\") Provider<Foo> foo;",
+                    "}",
+                    "class B extends A {",
+                    "    @Inject @Named(\"second\") Provider<Foo> otherFoo;",
+                    "}",
+                    "class Foo {}"));
+
+    assertAbout(javaSource())
+        .that(source)
+        .processedWith(new DiChecksProcessor())
+        .compilesWithoutError();
+  }
+
+  @Test
+  public void compilationShouldFailIfProviderInjectionsHaveTheSameQualifier() {
+    final JavaFileObject source =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.dummy.A",
+            Joiner.on('\n')
+                .join(
+                    "package com.groupon.android.dichecks.dummy;",
+                    "import javax.inject.Inject;",
+                    "import javax.inject.Named;",
+                    "import javax.inject.Provider;",
+                    "public class A {",
+                    "    @Inject @Named(\"first\") Provider<Foo> foo;",
+                    "}",
+                    "class B extends A {",
+                    "    @Inject @Named(\"first\") Provider<Foo> otherFoo;",
+                    "}",
+                    "class Foo {}"));
+
+    assertAbout(javaSource())
+        .that(source)
+        .processedWith(new DiChecksProcessor())
+        .failsToCompile()
+        .withErrorContaining(
+            "Duplicate injection found: injected class "
+                + "com.groupon.android.dichecks.dummy.Foo in "
+                + "com.groupon.android.dichecks.dummy.B also found in "
+                + "com.groupon.android.dichecks.dummy.A.");
+  }
+
   @Test
   public void compilationShouldNotFailIfRegularInjectionInSuperClassAndProviderInjectionInSubclass() {
     final JavaFileObject source =
@@ -364,4 +667,29 @@ public class ProcessorTest {
 
     assertAbout(javaSource()).that(source).processedWith(new DiChecksProcessor()).failsToCompile();
   }
+
+  /** @return the diagnostics of the compilation of {@code source}, one per line. */
+  private static String getDiagnostics(DiChecksProcessor processor, JavaFileObject source) {
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    final JavaCompiler.CompilationTask task =
+        compiler.getTask(
+            null,
+            null,
+            diagnostics,
+            ImmutableList.of("-proc:only"),
+            null,
+            Collections.singletonList(source));
+    task.setProcessors(Collections.singletonList(processor));
+    task.call();
+    final StringBuilder messages = new StringBuilder();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      messages
+          .append(diagnostic.getKind())
+          .append(": ")
+          .append(diagnostic.getMessage(Locale.US))
+          .append('\n');
+    }
+    return messages.toString();
+  }
 }
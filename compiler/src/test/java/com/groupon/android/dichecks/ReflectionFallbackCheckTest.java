@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.testing.compile.JavaFileObjects;
+import com.groupon.android.dichecks.checks.common.Severity;
+import com.groupon.android.dichecks.checks.reflection.ReflectionFallbackCheck;
+import com.groupon.android.dichecks.processor.DiChecksProcessor;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.inject.Inject;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReflectionFallbackCheckTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final JavaFileObject SOURCE =
+      JavaFileObjects.forSourceString(
+          "com.groupon.android.dichecks.dummy.A",
+          Joiner.on('\n')
+              .join(
+                  "package com.groupon.android.dichecks.dummy;",
+                  "import javax.inject.Inject;",
+                  "public class A {",
+                  "    @Inject String name;",
+                  "    @Inject private Integer count;",
+                  "    private static class Hidden {",
+                  "        @Inject String name;",
+                  "    }",
+                  "}",
+                  "class B {",
+                  "    @Inject B() {}",
+                  "}"));
+
+  @Test
+  public void compilationShouldFailIfMembersAreInjectedByReflection() {
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setReflectionSeverity(Severity.ERROR);
+
+    assertAbout(javaSources())
+        .that(ImmutableList.of(SOURCE))
+        .processedWith(processor)
+        .failsToCompile()
+        .withErrorContaining(
+            "Reflective injection: field count in com.groupon.android.dichecks.dummy.A is "
+                + "injected by reflection because it is private")
+        .and()
+        .withErrorContaining(
+            "Reflective injection: field name in com.groupon.android.dichecks.dummy.A.Hidden is "
+                + "injected by reflection because its class or an enclosing class is private.")
+        .and()
+        .withErrorContaining(
+            "Reflective injection: field name in com.groupon.android.dichecks.dummy.A is "
+                + "injected by reflection because no member injector was generated")
+        .and()
+        .withErrorContaining(
+            "Reflective injection: constructor <init> in com.groupon.android.dichecks.dummy.B is "
+                + "injected by reflection because no factory was generated");
+  }
+
+  @Test
+  public void classesGeneratedInLaterRoundsShouldPreventReflection() throws Exception {
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setReflectionSeverity(Severity.ERROR);
+
+    final List<String> errors = new ArrayList<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic :
+        compile(processor, new GeneratingProcessor())) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+        errors.add(diagnostic.getMessage(Locale.US));
+      }
+    }
+
+    assertThat(errors).hasSize(2);
+    assertThat(errors.get(0)).contains("field count in com.groupon.android.dichecks.dummy.A is");
+    assertThat(errors.get(1))
+        .contains("field name in com.groupon.android.dichecks.dummy.A.Hidden is");
+  }
+
+  @Test
+  public void reflectiveMembersShouldBeCountedPerModule() throws Exception {
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setReflectionSeverity(Severity.WARNING);
+
+    final List<String> notes = new ArrayList<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : compile(processor)) {
+      if (diagnostic.getKind() == Diagnostic.Kind.NOTE) {
+        notes.add(diagnostic.getMessage(Locale.US));
+      }
+    }
+
+    assertThat(notes)
+        .contains(
+            "4 injected member(s) of this module are likely injected by reflection "
+                + "(private_member: 1, private_class: 1, missing_member_injector: 1, "
+                + "missing_factory: 1).");
+  }
+
+  @Test
+  public void summaryShouldNotCountInTheIssueLimit() throws Exception {
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setReflectionSeverity(Severity.ERROR);
+    processor.setMaxIssuesPerCheck(1);
+
+    final List<String> messages = new ArrayList<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : compile(processor)) {
+      messages.add(diagnostic.getKind() + ": " + diagnostic.getMessage(Locale.US));
+    }
+
+    assertThat(messages).hasSize(3);
+    assertThat(messages.get(0)).startsWith("NOTE: 4 injected member(s) of this module");
+    assertThat(messages.get(1)).startsWith("ERROR: Reflective injection: field count in");
+    assertThat(messages.get(2)).startsWith("ERROR: 3 more dependency injection issue(s)");
+  }
+
+  @Test
+  public void suppressedMembersShouldNotBeReported() {
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setReflectionSeverity(Severity.ERROR);
+
+    assertAbout(javaSources())
+        .that(
+            ImmutableList.of(
+                JavaFileObjects.forSourceString(
+                    "com.groupon.android.dichecks.dummy.A",
+                    Joiner.on('\n')
+                        .join(
+                            "package com.groupon.android.dichecks.dummy;",
+                            "import javax.inject.Inject;",
+                            "@SuppressWarnings(\"com.groupon.android.dichecks.reflectionCheck\")",
+                            "public class A {",
+                            "    @Inject private String name;",
+                            "}"))))
+        .processedWith(processor)
+        .compilesWithoutError();
+  }
+
+  private List<Diagnostic<? extends JavaFileObject>> compile(Processor... processors)
+      throws IOException {
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    final JavaCompiler.CompilationTask task =
+        compiler.getTask(
+            null,
+            null,
+            diagnostics,
+            ImmutableList.of("-proc:only", "-s", temporaryFolder.newFolder().getPath()),
+            null,
+            Collections.singletonList(SOURCE));
+    task.setProcessors(Arrays.asList(processors));
+    task.call();
+    return diagnostics.getDiagnostics();
+  }
+
+  /** Generates the member injectors and factories of the injected classes, like Toothpick. */
+  @SupportedAnnotationTypes(DiChecksProcessor.INJECT_ANNOTATION_CLASSNAME)
+  public static class GeneratingProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latest();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      final Set<String> generatedClasses = new LinkedHashSet<>();
+      for (Element element : roundEnv.getElementsAnnotatedWith(Inject.class)) {
+        final TypeElement owner = (TypeElement) element.getEnclosingElement();
+        generatedClasses.add(
+            processingEnv.getElementUtils().getBinaryName(owner)
+                + (element.getKind() == ElementKind.CONSTRUCTOR
+                    ? ReflectionFallbackCheck.FACTORY_SUFFIX
+                    : ReflectionFallbackCheck.MEMBER_INJECTOR_SUFFIX));
+      }
+      for (String generatedClass : generatedClasses) {
+        final int separator = generatedClass.lastIndexOf('.');
+        try (Writer writer =
+            processingEnv.getFiler().createSourceFile(generatedClass).openWriter()) {
+          writer.write(
+              String.format(
+                  "package %s; public class %s {}",
+                  generatedClass.substring(0, separator),
+                  generatedClass.substring(separator + 1)));
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.testing.compile.JavaFileObjects;
+import com.groupon.android.dichecks.checks.common.Severity;
+import com.groupon.android.dichecks.processor.DiChecksProcessor;
+import java.util.ArrayList;
+import java.util.List;
+import javax.tools.JavaFileObject;
+import org.junit.Test;
+
+public class StartupInjectionCheckTest {
+
+  private static final JavaFileObject ACTIVITY =
+      JavaFileObjects.forSourceString(
+          "android.app.Activity",
+          Joiner.on('\n').join("package android.app;", "public class Activity {}"));
+
+  private static final JavaFileObject DEPENDENCIES =
+      JavaFileObjects.forSourceString(
+          "com.groupon.android.dichecks.dummy.Api",
+          Joiner.on('\n')
+              .join(
+                  "package com.groupon.android.dichecks.dummy;",
+                  "import javax.inject.Inject;",
+                  "public class Api {",
+                  "    @Inject Api(Repository repository) {}",
+                  "}",
+                  "class Repository {",
+                  "    @Inject Repository(Database database) {}",
+                  "}",
+                  "class Database {}",
+                  "class Tracker {}"));
+
+  private static final JavaFileObject HOME_ACTIVITY =
+      JavaFileObjects.forSourceString(
+          "com.groupon.android.dichecks.dummy.HomeActivity",
+          Joiner.on('\n')
+              .join(
+                  "package com.groupon.android.dichecks.dummy;",
+                  "import javax.inject.Inject;",
+                  "import javax.inject.Provider;",
+                  "abstract class BaseActivity extends android.app.Activity {",
+                  "    @Inject Tracker tracker;",
+                  "}",
+                  "public class HomeActivity extends BaseActivity {",
+                  "    @Inject Api api;",
+                  "    @Inject Provider<Database> database;",
+                  "}"));
+
+  @Test
+  public void compilationShouldFailIfEntryPointInjectsTooManyDependencies() {
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setStartupSeverity(Severity.ERROR);
+    processor.setStartupMaxEagerInjections(1);
+
+    assertAbout(javaSources())
+        .that(ImmutableList.of(ACTIVITY, DEPENDENCIES, HOME_ACTIVITY))
+        .processedWith(processor)
+        .failsToCompile()
+        .withErrorContaining(
+            "Heavy startup injection: activity com.groupon.android.dichecks.dummy.HomeActivity "
+                + "eagerly injects 2 dependencies (max 1) with a dependency graph depth of 3");
+  }
+
+  @Test
+  public void compilationShouldFailIfEntryPointDependencyGraphIsTooDeep() {
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setStartupSeverity(Severity.ERROR);
+    processor.setStartupMaxGraphDepth(2);
+
+    assertAbout(javaSources())
+        .that(ImmutableList.of(ACTIVITY, DEPENDENCIES, HOME_ACTIVITY))
+        .processedWith(processor)
+        .failsToCompile()
+        .withErrorContaining("with a dependency graph depth of 3 (max 2)");
+  }
+
+  @Test
+  public void compilationShouldFailIfEntryPointInheritsTooManyDependencies() {
+    final JavaFileObject mainActivity =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.dummy.MainActivity",
+            Joiner.on('\n')
+                .join(
+                    "package com.groupon.android.dichecks.dummy;",
+                    "import javax.inject.Inject;",
+                    "abstract class InjectedActivity extends android.app.Activity {",
+                    "    @Inject Tracker tracker;",
+                    "    @Inject Api api;",
+                    "}",
+                    "public class MainActivity extends InjectedActivity {}"));
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setStartupSeverity(Severity.ERROR);
+    processor.setStartupMaxEagerInjections(1);
+
+    assertAbout(javaSources())
+        .that(ImmutableList.of(ACTIVITY, DEPENDENCIES, mainActivity))
+        .processedWith(processor)
+        .failsToCompile()
+        .withErrorContaining(
+            "Heavy startup injection: activity com.groupon.android.dichecks.dummy.MainActivity "
+                + "eagerly injects 2 dependencies (max 1)");
+  }
+
+  @Test
+  public void dependencyCycleDepthShouldNotDependOnTheVisitOrder() {
+    final JavaFileObject cycle =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.dummy.Cache",
+            Joiner.on('\n')
+                .join(
+                    "package com.groupon.android.dichecks.dummy;",
+                    "import javax.inject.Inject;",
+                    "public class Cache {",
+                    "    @Inject Cache(Store store) {}",
+                    "}",
+                    "class Store {",
+                    "    @Inject Store(Cache cache) {}",
+                    "}",
+                    "class CacheActivity extends android.app.Activity {",
+                    "    @Inject Cache cache;",
+                    "}",
+                    "class StoreActivity extends android.app.Activity {",
+                    "    @Inject Store store;",
+                    "}"));
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setStartupSeverity(Severity.ERROR);
+    processor.setStartupMaxGraphDepth(2);
+
+    // both types of the cycle have the same depth, whichever is visited first
+    assertAbout(javaSources())
+        .that(ImmutableList.of(ACTIVITY, cycle))
+        .processedWith(processor)
+        .failsToCompile()
+        .withErrorContaining(
+            "activity com.groupon.android.dichecks.dummy.CacheActivity eagerly injects 1 "
+                + "dependencies (max 20) with a dependency graph depth of 3 (max 2)")
+        .and()
+        .withErrorContaining(
+            "activity com.groupon.android.dichecks.dummy.StoreActivity eagerly injects 1 "
+                + "dependencies (max 20) with a dependency graph depth of 3 (max 2)");
+  }
+
+  @Test
+  public void nestedEntryPointsShouldInheritTheInjectionsOfTheirBaseClass() {
+    final JavaFileObject screens =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.dummy.Screens",
+            Joiner.on('\n')
+                .join(
+                    "package com.groupon.android.dichecks.dummy;",
+                    "import javax.inject.Inject;",
+                    "public class Screens {",
+                    "    abstract static class InjectedActivity extends android.app.Activity {",
+                    "        @Inject Tracker tracker;",
+                    "        @Inject Api api;",
+                    "    }",
+                    "    public static class DealActivity extends InjectedActivity {}",
+                    "}"));
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setStartupSeverity(Severity.ERROR);
+    processor.setStartupMaxEagerInjections(1);
+
+    assertAbout(javaSources())
+        .that(ImmutableList.of(ACTIVITY, DEPENDENCIES, screens))
+        .processedWith(processor)
+        .failsToCompile()
+        .withErrorContaining(
+            "Heavy startup injection: activity "
+                + "com.groupon.android.dichecks.dummy.Screens.DealActivity eagerly injects 2 "
+                + "dependencies (max 1)");
+  }
+
+  @Test
+  public void longDependencyChainsShouldNotOverflowTheStack() {
+    final int chainLength = 10000;
+    final List<String> lines = new ArrayList<>();
+    lines.add("package com.groupon.android.dichecks.dummy;");
+    lines.add("import javax.inject.Inject;");
+    lines.add("class ChainActivity extends android.app.Activity {");
+    lines.add("    @Inject Link0 link;");
+    lines.add("}");
+    for (int i = 0; i < chainLength; i++) {
+      lines.add("class Link" + i + " {");
+      if (i + 1 < chainLength) {
+        lines.add("    @Inject Link" + i + "(Link" + (i + 1) + " next) {}");
+      }
+      lines.add("}");
+    }
+    final JavaFileObject chain =
+        JavaFileObjects.forSourceString(
+            "com.groupon.android.dichecks.dummy.ChainActivity", Joiner.on('\n').join(lines));
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setStartupSeverity(Severity.ERROR);
+
+    assertAbout(javaSources())
+        .that(ImmutableList.of(ACTIVITY, chain))
+        .processedWith(processor)
+        .failsToCompile()
+        .withErrorContaining("with a dependency graph depth of " + chainLength + " (max 6)");
+  }
+
+  @Test
+  public void compilationShouldNotFailIfStartupCheckIsNotEnabled() {
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setStartupMaxEagerInjections(0);
+    processor.setStartupMaxGraphDepth(0);
+
+    assertAbout(javaSources())
+        .that(ImmutableList.of(ACTIVITY, DEPENDENCIES, HOME_ACTIVITY))
+        .processedWith(processor)
+        .compilesWithoutError();
+  }
+
+  @Test
+  public void compilationShouldNotFailIfEntryPointIsWithinThresholds() {
+    final DiChecksProcessor processor = new DiChecksProcessor();
+    processor.setStartupSeverity(Severity.ERROR);
+    processor.setStartupMaxEagerInjections(2);
+    processor.setStartupMaxGraphDepth(3);
+
+    assertAbout(javaSources())
+        .that(ImmutableList.of(ACTIVITY, DEPENDENCIES, HOME_ACTIVITY))
+        .processedWith(processor)
+        .compilesWithoutError();
+  }
+}
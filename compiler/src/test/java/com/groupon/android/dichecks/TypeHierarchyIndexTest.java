@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+import com.google.testing.compile.JavaFileObjects;
+import com.groupon.android.dichecks.checks.common.TypeHierarchyIndex;
+import java.util.Collections;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import org.junit.Test;
+
+public class TypeHierarchyIndexTest {
+
+  @Test
+  public void indexShouldAnswerAncestorQueries() {
+    final StringBuilder source = new StringBuilder("package dummy;\nclass C0 {}\n");
+    for (int i = 1; i < 20; i++) {
+      source.append("class C").append(i).append(" extends C").append(i - 1).append(" {}\n");
+    }
+    source.append("class Sibling extends C10 {}\n");
+
+    assertAbout(javaSource())
+        .that(JavaFileObjects.forSourceString("dummy.C0", source.toString()))
+        .processedWith(
+            new AbstractProcessor() {
+              @Override
+              public Set<String> getSupportedAnnotationTypes() {
+                return Collections.singleton("*");
+              }
+
+              @Override
+              public SourceVersion getSupportedSourceVersion() {
+                return SourceVersion.latest();
+              }
+
+              @Override
+              public boolean process(
+                  Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+                if (!roundEnv.processingOver()) {
+                  checkIndex(processingEnv.getElementUtils(), processingEnv.getTypeUtils());
+                }
+                return false;
+              }
+            })
+        .compilesWithoutError();
+  }
+
+  private static void checkIndex(Elements elements, Types types) {
+    final TypeHierarchyIndex index = new TypeHierarchyIndex(types);
+    final TypeElement c19 = elements.getTypeElement("dummy.C19");
+    final TypeElement c10 = elements.getTypeElement("dummy.C10");
+    final TypeElement c0 = elements.getTypeElement("dummy.C0");
+    final TypeElement sibling = elements.getTypeElement("dummy.Sibling");
+
+    assertThat(index.getDepth(c19)).isEqualTo(19);
+    assertThat(index.getDepth(c0)).isEqualTo(0);
+    assertThat(index.getSuperClass(c0)).isNull();
+    assertThat(index.getAncestors(c19)).hasSize(19);
+    assertThat(index.getAncestors(c19).get(0)).isEqualTo(elements.getTypeElement("dummy.C18"));
+    for (int distance = 0; distance <= 19; distance++) {
+      assertThat(index.getAncestor(c19, distance))
+          .isEqualTo(elements.getTypeElement("dummy.C" + (19 - distance)));
+    }
+    assertThat(index.getAncestor(c19, 20)).isNull();
+    assertThat(index.getAncestor(sibling, 11)).isEqualTo(c0);
+    assertThat(index.isSubclassOf(c19, c10)).isTrue();
+    assertThat(index.isSubclassOf(sibling, c10)).isTrue();
+    assertThat(index.isSubclassOf(c10, c19)).isFalse();
+    assertThat(index.isSubclassOf(c19, sibling)).isFalse();
+    assertThat(index.isSubclassOf(c10, c10)).isFalse();
+
+    index.clear();
+    assertThat(index.getDepth(sibling)).isEqualTo(11);
+    assertThat(index.isSubclassOf(c19, c10)).isTrue();
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.gradle;
+
+import com.groupon.android.dichecks.checks.common.Severity;
+import com.groupon.android.dichecks.checks.duplicate.DuplicateDICheckIssue;
+import com.groupon.android.dichecks.checks.duplicate.DuplicateInjectionAnalyzer;
+import com.groupon.android.dichecks.checks.duplicate.HoistingAnalyzer;
+import com.groupon.android.dichecks.export.GraphMerger;
+import com.groupon.android.dichecks.export.GraphReader;
+import com.groupon.android.dichecks.export.GraphWriter;
+import com.groupon.android.dichecks.model.InjectionModel;
+import com.groupon.android.dichecks.model.InjectionSite;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.inject.Inject;
+import org.gradle.api.GradleException;
+
+/**
+ * Checks the summaries of a single variant, run by the worker API. It writes the merged graph
+ * ({@code <variant>.digraph}), the list of issues ({@code <variant>.txt}) and the hoisting
+ * candidates ({@code <variant>-hoisting.txt}) in the report directory.
+ */
+public class AggregateCheckWork implements Runnable {
+
+  private final String variant;
+  private final List<File> summaries;
+  private final File reportDir;
+  private final boolean failOnError;
+  private final int hoistingMinSubclasses;
+
+  @Inject
+  public AggregateCheckWork(
+      String variant,
+      ArrayList<File> summaries,
+      File reportDir,
+      Boolean failOnError,
+      Integer hoistingMinSubclasses) {
+    this.variant = variant;
+    this.summaries = summaries;
+    this.reportDir = reportDir;
+    this.failOnError = failOnError;
+    this.hoistingMinSubclasses = hoistingMinSubclasses;
+  }
+
+  @Override
+  public void run() {
+    try {
+      final File mergedGraph =
+          new File(reportDir, variant + DiChecksAggregateTask.SUMMARY_FILE_EXTENSION);
+      merge(mergedGraph);
+
+      final InjectionModel model;
+      try (GraphReader reader = new GraphReader(new FileInputStream(mergedGraph))) {
+        model = reader.readModel();
+      }
+      final List<DuplicateInjectionAnalyzer.Duplicate> duplicates =
+          new DuplicateInjectionAnalyzer().analyze(model);
+      // the report is an output of a cacheable task, it must not depend on the analysis order
+      Collections.sort(duplicates);
+      final List<String> issues = new ArrayList<>(duplicates.size());
+      int errorCount = 0;
+      for (DuplicateInjectionAnalyzer.Duplicate duplicate : duplicates) {
+        final InjectionSite site = duplicate.getSite();
+        issues.add(DuplicateDICheckIssue.formatMessage(site, duplicate.getAncestorTypes()));
+        // the severity recorded by the processor, the sites of other front ends are errors
+        if (site.getSeverity() == null || site.getSeverity() == Severity.ERROR) {
+          errorCount++;
+        }
+      }
+      writeReport(new File(reportDir, variant + ".txt"), issues);
+      if (hoistingMinSubclasses > 0) {
+        writeHoistingReport(model);
+      }
+
+      if (failOnError && errorCount > 0) {
+        throw new GradleException(
+            String.format(
+                "%d dependency injection error(s) found in %s, see %s",
+                errorCount, variant, reportDir));
+      }
+    } catch (IOException e) {
+      throw new GradleException("Unable to check the injections of " + variant, e);
+    }
+  }
+
+  private void merge(File mergedGraph) throws IOException {
+    final List<GraphReader> readers = new ArrayList<>();
+    try (GraphWriter writer = new GraphWriter(new FileOutputStream(mergedGraph))) {
+      for (File summary : summaries) {
+        readers.add(new GraphReader(new FileInputStream(summary)));
+      }
+      GraphMerger.merge(readers, writer);
+    } finally {
+      for (GraphReader reader : readers) {
+        reader.close();
+      }
+    }
+  }
+
+  /** Hoisting candidates are refactoring hints, they never fail the build. */
+  private void writeHoistingReport(InjectionModel model) throws IOException {
+    final List<String> candidates = new ArrayList<>();
+    for (HoistingAnalyzer.Candidate candidate :
+        new HoistingAnalyzer(hoistingMinSubclasses).analyze(model)) {
+      candidates.add(candidate.formatMessage());
+    }
+    writeReport(new File(reportDir, variant + "-hoisting.txt"), candidates);
+  }
+
+  private static void writeReport(File report, List<String> issues) throws IOException {
+    try (Writer writer =
+        new OutputStreamWriter(new FileOutputStream(report), StandardCharsets.UTF_8)) {
+      for (String issue : issues) {
+        writer.write(issue);
+        writer.write('\n');
+      }
+    }
+  }
+}
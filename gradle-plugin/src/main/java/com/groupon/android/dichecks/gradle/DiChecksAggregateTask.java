@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.gradle;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.inject.Inject;
+import org.gradle.api.Action;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkerConfiguration;
+import org.gradle.workers.WorkerExecutor;
+
+/**
+ * Merges the injection summaries of all the modules and checks the merged graph.
+ *
+ * <p>Summaries are grouped by variant (the name of the compile task that produced them), summaries
+ * of plain java modules ({@value #SHARED_VARIANT}) belong to every variant. Each variant is checked
+ * in its own worker, so multi variant builds are checked in parallel. The task only depends on its
+ * declared inputs and outputs: it is skipped when up-to-date and its outputs can be cached.
+ */
+@CacheableTask
+public class DiChecksAggregateTask extends DefaultTask {
+
+  public static final String SUMMARY_FILE_EXTENSION = ".digraph";
+  public static final String SHARED_VARIANT = "compileJava";
+
+  private final WorkerExecutor workerExecutor;
+  private final ConfigurableFileCollection summaries;
+  private DiChecksExtension extension = new DiChecksExtension();
+  private File reportDir;
+
+  @Inject
+  public DiChecksAggregateTask(WorkerExecutor workerExecutor) {
+    this.workerExecutor = workerExecutor;
+    summaries = getProject().files();
+  }
+
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public ConfigurableFileCollection getSummaries() {
+    return summaries;
+  }
+
+  @Input
+  public boolean isFailOnError() {
+    return extension.isFailOnError();
+  }
+
+  @Input
+  public int getHoistingMinSubclasses() {
+    return extension.getHoistingMinSubclasses();
+  }
+
+  void setExtension(DiChecksExtension extension) {
+    this.extension = extension;
+  }
+
+  @OutputDirectory
+  public File getReportDir() {
+    return reportDir;
+  }
+
+  public void setReportDir(File reportDir) {
+    this.reportDir = reportDir;
+  }
+
+  @TaskAction
+  public void check() {
+    for (final Map.Entry<String, List<File>> variant : groupSummariesByVariant().entrySet()) {
+      workerExecutor.submit(
+          AggregateCheckWork.class,
+          new Action<WorkerConfiguration>() {
+            @Override
+            public void execute(WorkerConfiguration configuration) {
+              configuration.setDisplayName("DI checks of " + variant.getKey());
+              configuration.setParams(
+                  variant.getKey(),
+                  new ArrayList<>(variant.getValue()),
+                  reportDir,
+                  isFailOnError(),
+                  getHoistingMinSubclasses());
+            }
+          });
+    }
+    workerExecutor.await();
+  }
+
+  Map<String, List<File>> groupSummariesByVariant() {
+    final Map<String, List<File>> summariesByVariant = new TreeMap<>();
+    final List<File> sharedSummaries = new ArrayList<>();
+    for (File summary : summaries.getFiles()) {
+      // modules without the processor don't produce a summary
+      if (!summary.isFile()) {
+        continue;
+      }
+      final String fileName = summary.getName();
+      final String variant =
+          fileName.substring(0, fileName.length() - SUMMARY_FILE_EXTENSION.length());
+      if (SHARED_VARIANT.equals(variant)) {
+        sharedSummaries.add(summary);
+      } else {
+        List<File> variantSummaries = summariesByVariant.get(variant);
+        if (variantSummaries == null) {
+          variantSummaries = new ArrayList<>();
+          summariesByVariant.put(variant, variantSummaries);
+        }
+        variantSummaries.add(summary);
+      }
+    }
+
+    if (summariesByVariant.isEmpty() && !sharedSummaries.isEmpty()) {
+      summariesByVariant.put(SHARED_VARIANT, sharedSummaries);
+    } else {
+      for (List<File> variantSummaries : summariesByVariant.values()) {
+        variantSummaries.addAll(sharedSummaries);
+      }
+    }
+    return summariesByVariant;
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.gradle;
+
+import com.groupon.android.dichecks.checks.duplicate.HoistingAnalyzer;
+
+/** Configuration of the {@link DiChecksPlugin}, exposed as the {@code diChecks} extension. */
+public class DiChecksExtension {
+
+  private boolean failOnError = true;
+  private int hoistingMinSubclasses = HoistingAnalyzer.DEFAULT_MIN_SUBCLASSES;
+
+  /** Whether or not the aggregate check fails the build when an issue is detected. */
+  public boolean isFailOnError() {
+    return failOnError;
+  }
+
+  public void setFailOnError(boolean failOnError) {
+    this.failOnError = failOnError;
+  }
+
+  /**
+   * Minimum number of sibling subclasses injecting the same class for their super class to be
+   * reported as a hoisting candidate, 0 disables the hoisting report.
+   */
+  public int getHoistingMinSubclasses() {
+    return hoistingMinSubclasses;
+  }
+
+  public void setHoistingMinSubclasses(int hoistingMinSubclasses) {
+    this.hoistingMinSubclasses = hoistingMinSubclasses;
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.gradle;
+
+import static com.groupon.android.dichecks.processor.CompilerOptions.GRAPH_EXPORT_RESOURCE;
+
+import com.groupon.android.dichecks.processor.DiChecksProcessor;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.zip.ZipFile;
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.compile.JavaCompile;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Runs the DI checks on the whole app instead of module by module.
+ *
+ * <p>The plugin is applied to the root project. It makes the processor export its injection graph
+ * (the per module summary) in every java compilation of the build that runs it and registers the
+ * {@value #AGGREGATE_TASK_NAME} task that merges the summaries and checks the merged graph. This
+ * way hierarchies spanning several modules are checked as a whole.
+ */
+public class DiChecksPlugin implements Plugin<Project> {
+
+  public static final String EXTENSION_NAME = "diChecks";
+  public static final String AGGREGATE_TASK_NAME = "diChecksAggregate";
+  public static final String SUMMARIES_DIR = "dichecks";
+  public static final String REPORTS_DIR = "reports/dichecks";
+
+  private static final String PROC_NONE_ARGUMENT = "-proc:none";
+  private static final String GENERATED_SOURCES_DIR_ARGUMENT = "-s";
+  private static final String GENERATED_SOURCES_DIR = "generated/source/dichecks";
+  private static final String GENERATED_SOURCES_DIR_GETTER =
+      "getAnnotationProcessorGeneratedSourcesDirectory";
+  private static final String PROCESSOR_CLASS_FILE =
+      DiChecksProcessor.class.getName().replace('.', '/') + ".class";
+
+  @Override
+  public void apply(Project project) {
+    final DiChecksExtension extension =
+        project.getExtensions().create(EXTENSION_NAME, DiChecksExtension.class);
+    final DiChecksAggregateTask aggregateTask =
+        project.getTasks().create(AGGREGATE_TASK_NAME, DiChecksAggregateTask.class);
+    aggregateTask.setGroup("verification");
+    aggregateTask.setDescription("Checks the dependency injections of all the modules together.");
+    aggregateTask.setExtension(extension);
+    aggregateTask.setReportDir(new File(project.getBuildDir(), REPORTS_DIR));
+
+    project.allprojects(
+        new Action<Project>() {
+          @Override
+          public void execute(final Project module) {
+            module
+                .getTasks()
+                .withType(
+                    JavaCompile.class,
+                    new Action<JavaCompile>() {
+                      @Override
+                      public void execute(JavaCompile compileTask) {
+                        exportSummary(module, compileTask, aggregateTask);
+                      }
+                    });
+          }
+        });
+  }
+
+  /**
+   * The summary of a compilation is named after its task, ex: {@code compileDebugJavaWithJavac},
+   * which is how the aggregate task groups the summaries of a same variant. The processor writes it
+   * through the Filer in the generated sources directory of the task, so incremental compilations
+   * track it, and the summary is only located once the task is configured.
+   */
+  private static void exportSummary(
+      final Project module,
+      final JavaCompile compileTask,
+      DiChecksAggregateTask aggregateTask) {
+    final Callable<File> summary =
+        new Callable<File>() {
+          @Override
+          public File call() {
+            return getSummary(module, compileTask);
+          }
+        };
+    compileTask.doFirst(new ExportSummaryAction(module));
+    compileTask.getOutputs().file(summary);
+    aggregateTask.getSummaries().from(summary);
+    aggregateTask.dependsOn(compileTask);
+  }
+
+  static String getSummaryResourceName(JavaCompile compileTask) {
+    return SUMMARIES_DIR
+        + "/"
+        + compileTask.getName()
+        + DiChecksAggregateTask.SUMMARY_FILE_EXTENSION;
+  }
+
+  static File getSummary(Project module, JavaCompile compileTask) {
+    return new File(
+        getGeneratedSourcesDir(module, compileTask), getSummaryResourceName(compileTask));
+  }
+
+  /**
+   * @return the directory of the files generated by the processors of {@code compileTask}: the
+   *     {@code -s} argument, the directory configured in the options (Gradle 4.3 and newer) or
+   *     else a directory of the plugin, which {@link ExportSummaryAction} passes to javac.
+   */
+  static File getGeneratedSourcesDir(Project module, JavaCompile compileTask) {
+    final List<String> compilerArgs = compileTask.getOptions().getCompilerArgs();
+    final int index = compilerArgs.indexOf(GENERATED_SOURCES_DIR_ARGUMENT);
+    if (index >= 0 && index + 1 < compilerArgs.size()) {
+      return module.file(compilerArgs.get(index + 1));
+    }
+    final File configuredDir = getConfiguredGeneratedSourcesDir(compileTask);
+    if (configuredDir != null) {
+      return configuredDir;
+    }
+    return new File(
+        module.getBuildDir(), GENERATED_SOURCES_DIR + File.separator + compileTask.getName());
+  }
+
+  @Nullable
+  private static File getConfiguredGeneratedSourcesDir(JavaCompile compileTask) {
+    try {
+      final Method getter =
+          compileTask.getOptions().getClass().getMethod(GENERATED_SOURCES_DIR_GETTER);
+      return (File) getter.invoke(compileTask.getOptions());
+    } catch (NoSuchMethodException e) {
+      // Gradle older than 4.3
+      return null;
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new GradleException("Unable to read the generated sources directory", e);
+    }
+  }
+
+  /**
+   * @return whether {@link DiChecksProcessor} runs in the compilation of {@code compileTask}, i.e.
+   *     it is in its processor path or, if the task has none, in its classpath.
+   */
+  static boolean hasProcessor(JavaCompile compileTask) {
+    if (compileTask.getOptions().getCompilerArgs().contains(PROC_NONE_ARGUMENT)) {
+      return false;
+    }
+    FileCollection processorPath = compileTask.getOptions().getAnnotationProcessorPath();
+    if (processorPath == null) {
+      processorPath = compileTask.getClasspath();
+    }
+    for (File file : processorPath) {
+      if (containsProcessor(file)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean containsProcessor(File file) {
+    if (file.isDirectory()) {
+      return new File(file, PROCESSOR_CLASS_FILE).isFile();
+    }
+    if (!file.isFile()) {
+      return false;
+    }
+    try (ZipFile zipFile = new ZipFile(file)) {
+      return zipFile.getEntry(PROCESSOR_CLASS_FILE) != null;
+    } catch (IOException e) {
+      // not an archive, ex: a resource file
+      return false;
+    }
+  }
+
+  /**
+   * Asks the processor for a summary when it runs in the compilation. The summary of the previous
+   * compilation is deleted first: the processor writes nothing when a module no longer runs the
+   * processor, a summary left behind would be merged as if it was current.
+   */
+  static final class ExportSummaryAction implements Action<Task> {
+
+    private final Project module;
+
+    ExportSummaryAction(Project module) {
+      this.module = module;
+    }
+
+    @Override
+    public void execute(Task task) {
+      final JavaCompile compileTask = (JavaCompile) task;
+      final File summary = getSummary(module, compileTask);
+      if (summary.exists() && !summary.delete()) {
+        throw new GradleException("Unable to delete " + summary);
+      }
+      if (!hasProcessor(compileTask)) {
+        return;
+      }
+      final List<String> compilerArgs = compileTask.getOptions().getCompilerArgs();
+      final File generatedSourcesDir = getGeneratedSourcesDir(module, compileTask);
+      if (!compilerArgs.contains(GENERATED_SOURCES_DIR_ARGUMENT)
+          && getConfiguredGeneratedSourcesDir(compileTask) == null) {
+        // without a directory, javac would generate the summary next to the classes
+        if (!generatedSourcesDir.isDirectory() && !generatedSourcesDir.mkdirs()) {
+          throw new GradleException("Unable to create " + generatedSourcesDir);
+        }
+        compilerArgs.add(GENERATED_SOURCES_DIR_ARGUMENT);
+        compilerArgs.add(generatedSourcesDir.getAbsolutePath());
+      }
+      final String exportArgument =
+          "-A" + GRAPH_EXPORT_RESOURCE + "=" + getSummaryResourceName(compileTask);
+      if (!compilerArgs.contains(exportArgument)) {
+        compilerArgs.add(exportArgument);
+      }
+    }
+  }
+}
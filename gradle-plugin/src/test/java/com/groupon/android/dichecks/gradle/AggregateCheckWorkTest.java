@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.gradle;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.io.Files;
+import com.groupon.android.dichecks.checks.common.Severity;
+import com.groupon.android.dichecks.export.GraphWriter;
+import com.groupon.android.dichecks.model.InjectionKind;
+import com.groupon.android.dichecks.model.InjectionModel;
+import com.groupon.android.dichecks.model.InjectionSite;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.gradle.api.GradleException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AggregateCheckWorkTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void duplicatesSpanningModulesShouldBeReported() throws Exception {
+    final File reportDir = temporaryFolder.newFolder("reports");
+
+    new AggregateCheckWork("compileJava", writeSummaries(), reportDir, false, 0).run();
+
+    // same message as the processor, the wrapped type names the lazy injection
+    assertThat(Files.toString(new File(reportDir, "compileJava.txt"), StandardCharsets.UTF_8))
+        .isEqualTo(
+            "Duplicate injection found: injected class app.Tracker in app.B "
+                + "also found in app.A.\n");
+    assertThat(new File(reportDir, "compileJava.digraph").isFile()).isTrue();
+  }
+
+  @Test
+  public void duplicatesShouldFailTheBuildWithFailOnError() throws Exception {
+    final File reportDir = temporaryFolder.newFolder("reports");
+
+    try {
+      new AggregateCheckWork("compileJava", writeSummaries(), reportDir, true, 0).run();
+      fail("the duplicate should fail the build");
+    } catch (GradleException e) {
+      assertThat(e.getMessage()).contains("1 dependency injection error(s) found in compileJava");
+    }
+  }
+
+  /** The severity recorded by the processor in the package of the duplicate is the one used. */
+  @Test
+  public void onlyTheDuplicatesRecordedAsErrorsShouldFailTheBuild() throws Exception {
+    final File reportDir = temporaryFolder.newFolder("reports");
+
+    new AggregateCheckWork("compileJava", writeSummaries(Severity.WARNING), reportDir, true, 0)
+        .run();
+
+    assertThat(Files.toString(new File(reportDir, "compileJava.txt"), StandardCharsets.UTF_8))
+        .startsWith("Duplicate injection found: injected class app.Tracker in app.B");
+  }
+
+  private ArrayList<File> writeSummaries() throws Exception {
+    return writeSummaries(null);
+  }
+
+  /**
+   * @param severity the severity of the subclass injection, {@code null} if not recorded.
+   * @return the summaries of a module with a base class and of a module with its subclass.
+   */
+  private ArrayList<File> writeSummaries(Severity severity) throws Exception {
+    final InjectionModel libModel = new InjectionModel();
+    libModel.addType("app.A");
+    libModel.addInjectionSite(
+        new InjectionSite("app.A", "tracker", "app.Tracker", InjectionKind.DIRECT, null));
+    final InjectionModel appModel = new InjectionModel();
+    appModel.addSuperClass("app.B", "app.A");
+    appModel.addType("app.A");
+    appModel.addInjectionSite(
+        new InjectionSite(
+            "app.B", "lazyTracker", "app.Tracker", InjectionKind.LAZY, null, false, severity));
+    return new ArrayList<>(
+        Arrays.asList(write(libModel, "lib.digraph"), write(appModel, "app.digraph")));
+  }
+
+  private File write(InjectionModel model, String fileName) throws Exception {
+    final File summary = temporaryFolder.newFile(fileName);
+    try (GraphWriter writer = new GraphWriter(new FileOutputStream(summary))) {
+      writer.write(model);
+    }
+    return summary;
+  }
+}
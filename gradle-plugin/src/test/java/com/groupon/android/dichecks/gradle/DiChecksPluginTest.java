@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2017, Groupon, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.groupon.android.dichecks.gradle;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+import com.groupon.android.dichecks.processor.CompilerOptions;
+import com.groupon.android.dichecks.processor.DiChecksProcessor;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.processing.Processor;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.tasks.compile.JavaCompile;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DiChecksPluginTest {
+
+  private static final String PROCESSOR_CLASS_FILE =
+      "com/groupon/android/dichecks/processor/DiChecksProcessor.class";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Project rootProject;
+  private Project module;
+  private JavaCompile compileTask;
+  private Project lib;
+  private String compiledClassesPath = System.getProperty("java.class.path");
+
+  @Before
+  public void setUp() throws Exception {
+    rootProject = ProjectBuilder.builder().withProjectDir(temporaryFolder.newFolder()).build();
+    module = ProjectBuilder.builder().withParent(rootProject).withName("app").build();
+    module.getPluginManager().apply(JavaPlugin.class);
+    lib = ProjectBuilder.builder().withParent(rootProject).withName("lib").build();
+    lib.getPluginManager().apply(JavaPlugin.class);
+    rootProject.getPluginManager().apply(DiChecksPlugin.class);
+    compileTask = (JavaCompile) module.getTasks().getByName(JavaPlugin.COMPILE_JAVA_TASK_NAME);
+  }
+
+  @Test
+  public void aggregateTaskShouldDependOnTheCompilationsOfAllModules() {
+    final Task aggregateTask = rootProject.getTasks().getByName(DiChecksPlugin.AGGREGATE_TASK_NAME);
+
+    assertThat(aggregateTask).isInstanceOf(DiChecksAggregateTask.class);
+    assertThat(aggregateTask.getDependsOn()).contains(compileTask);
+    assertThat(((DiChecksAggregateTask) aggregateTask).getSummaries().getFiles())
+        .contains(DiChecksPlugin.getSummary(module, compileTask));
+  }
+
+  @Test
+  public void summaryShouldNotBeRequestedWithoutTheProcessor() throws Exception {
+    compileTask
+        .getOptions()
+        .setAnnotationProcessorPath(rootProject.files(temporaryFolder.newFolder("processors")));
+
+    new DiChecksPlugin.ExportSummaryAction(module).execute(compileTask);
+
+    assertThat(compileTask.getOptions().getCompilerArgs()).isEmpty();
+  }
+
+  @Test
+  public void summaryShouldBeRequestedWhenTheProcessorIsInAProcessorJar() throws Exception {
+    final File processorJar = temporaryFolder.newFile("compiler.jar");
+    try (ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(processorJar))) {
+      outputStream.putNextEntry(new ZipEntry(PROCESSOR_CLASS_FILE));
+      outputStream.closeEntry();
+    }
+    compileTask.getOptions().setAnnotationProcessorPath(rootProject.files(processorJar));
+    final File generatedSourcesDir = temporaryFolder.newFolder("generated");
+    compileTask.getOptions().getCompilerArgs().add("-s");
+    compileTask.getOptions().getCompilerArgs().add(generatedSourcesDir.getPath());
+
+    new DiChecksPlugin.ExportSummaryAction(module).execute(compileTask);
+
+    assertThat(compileTask.getOptions().getCompilerArgs())
+        .containsExactly(
+            "-s",
+            generatedSourcesDir.getPath(),
+            "-A" + CompilerOptions.GRAPH_EXPORT_RESOURCE + "=dichecks/compileJava.digraph")
+        .inOrder();
+    assertThat(DiChecksPlugin.getSummary(module, compileTask))
+        .isEqualTo(new File(generatedSourcesDir, "dichecks/compileJava.digraph"));
+  }
+
+  @Test
+  public void summaryShouldNotBeRequestedWhenProcessingIsDisabled() throws Exception {
+    final File processorDir = temporaryFolder.newFolder("classes");
+    final File processorClass = new File(processorDir, PROCESSOR_CLASS_FILE);
+    assertThat(processorClass.getParentFile().mkdirs()).isTrue();
+    assertThat(processorClass.createNewFile()).isTrue();
+    compileTask.getOptions().setAnnotationProcessorPath(rootProject.files(processorDir));
+    assertThat(DiChecksPlugin.hasProcessor(compileTask)).isTrue();
+
+    compileTask.getOptions().getCompilerArgs().add("-proc:none");
+
+    assertThat(DiChecksPlugin.hasProcessor(compileTask)).isFalse();
+  }
+
+  @Test
+  public void summaryOfThePreviousCompilationShouldBeDeleted() throws Exception {
+    final File summary = DiChecksPlugin.getSummary(module, compileTask);
+    assertThat(summary.getParentFile().mkdirs()).isTrue();
+    assertThat(summary.createNewFile()).isTrue();
+    compileTask
+        .getOptions()
+        .setAnnotationProcessorPath(rootProject.files(temporaryFolder.newFolder("processors")));
+
+    new DiChecksPlugin.ExportSummaryAction(module).execute(compileTask);
+
+    assertThat(summary.exists()).isFalse();
+  }
+
+  /**
+   * Compiles two modules with the compiler arguments set up by the plugin, then checks the
+   * summaries found by the aggregate task: the duplicate spans the modules and is only found in the
+   * merged graph.
+   */
+  @Test
+  public void aggregateTaskShouldCheckTheSummariesOfAllTheCompilations() throws Exception {
+    final JavaCompile libCompileTask =
+        (JavaCompile) lib.getTasks().getByName(JavaPlugin.COMPILE_JAVA_TASK_NAME);
+    compile(
+        lib,
+        libCompileTask,
+        "Base",
+        "package lib;",
+        "public class Base {",
+        "  @javax.inject.Inject Runnable tracker;",
+        "}");
+    compile(
+        module,
+        compileTask,
+        "Screen",
+        "package app;",
+        "public class Screen extends lib.Base {",
+        "  @javax.inject.Inject Runnable tracker;",
+        "}");
+
+    assertThat(checkCompilations())
+        .isEqualTo(
+            "Duplicate injection found: injected class java.lang.Runnable in app.Screen "
+                + "also found in lib.Base.\n");
+  }
+
+  @Test
+  public void aggregateTaskShouldIgnoreTheSuppressedInjections() throws Exception {
+    final JavaCompile libCompileTask =
+        (JavaCompile) lib.getTasks().getByName(JavaPlugin.COMPILE_JAVA_TASK_NAME);
+    compile(
+        lib,
+        libCompileTask,
+        "Base",
+        "package lib;",
+        "public class Base {",
+        "  @javax.inject.Inject Runnable tracker;",
+        "}");
+    compile(
+        module,
+        compileTask,
+        "Screen",
+        "package app;",
+        "public class Screen extends lib.Base {",
+        "  @SuppressWarnings(\"com.groupon.android.dichecks.duplicateCheck\")",
+        "  @javax.inject.Inject Runnable tracker;",
+        "}");
+
+    assertThat(checkCompilations()).isEmpty();
+  }
+
+  /** Runs the work of the aggregate task on the summaries of the compilations. */
+  private String checkCompilations() throws Exception {
+    final DiChecksAggregateTask aggregateTask =
+        (DiChecksAggregateTask)
+            rootProject.getTasks().getByName(DiChecksPlugin.AGGREGATE_TASK_NAME);
+    final Map<String, List<File>> summaries = aggregateTask.groupSummariesByVariant();
+    assertThat(summaries.keySet()).containsExactly("compileJava");
+    final File reportDir = temporaryFolder.newFolder("reports");
+    new AggregateCheckWork(
+            "compileJava", new ArrayList<>(summaries.get("compileJava")), reportDir, false, 0)
+        .run();
+    return Files.toString(new File(reportDir, "compileJava.txt"), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Runs javac like the compile task would: with the arguments of the task once the plugin
+   * configured it, and the generated sources directory of the task. The classes of the previous
+   * compilations are on the classpath.
+   */
+  private void compile(Project project, JavaCompile task, String className, String... lines)
+      throws Exception {
+    final File processorClasses =
+        new File(
+            DiChecksProcessor.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    task.getOptions().setAnnotationProcessorPath(project.files(processorClasses));
+    new DiChecksPlugin.ExportSummaryAction(project).execute(task);
+
+    final File generatedSourcesDir = DiChecksPlugin.getGeneratedSourcesDir(project, task);
+    assertThat(generatedSourcesDir.isDirectory() || generatedSourcesDir.mkdirs()).isTrue();
+    final List<String> arguments = new ArrayList<>(task.getOptions().getCompilerArgs());
+    if (!arguments.contains("-s")) {
+      arguments.addAll(Arrays.asList("-s", generatedSourcesDir.getPath()));
+    }
+    final File classesDir = task.getDestinationDir();
+    assertThat(classesDir.isDirectory() || classesDir.mkdirs()).isTrue();
+    compiledClassesPath += File.pathSeparator + classesDir.getPath();
+    arguments.addAll(
+        Arrays.asList("-d", classesDir.getPath(), "-classpath", compiledClassesPath));
+    final File source = new File(temporaryFolder.newFolder(), className + ".java");
+    Files.write(Joiner.on('\n').join(lines), source, StandardCharsets.UTF_8);
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    try (StandardJavaFileManager fileManager =
+        compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+      final JavaCompiler.CompilationTask compilationTask =
+          compiler.getTask(
+              null, fileManager, null, arguments, null, fileManager.getJavaFileObjects(source));
+      compilationTask.setProcessors(
+          Collections.singletonList((Processor) new DiChecksProcessor()));
+      assertThat(compilationTask.call()).isTrue();
+    }
+    assertThat(DiChecksPlugin.getSummary(project, task).isFile()).isTrue();
+  }
+}